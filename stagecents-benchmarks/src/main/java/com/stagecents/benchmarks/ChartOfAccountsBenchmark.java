@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.benchmarks;
+
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stagecents.gl.api.service.AccountCodeSink;
+import com.stagecents.gl.api.service.AccountGenerator;
+import com.stagecents.gl.domain.AccountCode;
+import com.stagecents.gl.domain.AccountCodeIndex;
+import com.stagecents.gl.domain.Structure;
+
+/**
+ * Measures chart of accounts generation and code combination validation over
+ * a structure of N segments of M values each.
+ *
+ * @author Blair Caple
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChartOfAccountsBenchmark {
+
+    private static final int CODES = 10000;
+
+    @Param({ "3", "4" })
+    private int segments;
+
+    @Param({ "10", "20" })
+    private int values;
+
+    private Structure structure;
+    private String[] codes;
+
+    @Setup
+    public void setUp() {
+	SyntheticData data = new SyntheticData(42);
+	structure = data.createStructure(segments, values);
+	codes = data.createCodeCombinations(structure, CODES);
+    }
+
+    @Benchmark
+    public SortedSet<AccountCode> generate() {
+	return new AccountGenerator(structure).generate();
+    }
+
+    @Benchmark
+    public long generateToSink() {
+	final long[] count = new long[1];
+	return new AccountGenerator(structure).generate(new AccountCodeSink() {
+	    public void write(List<AccountCode> accountCodes) {
+		count[0] += accountCodes.size();
+	    }
+	}, 1000) + count[0];
+    }
+
+    @Benchmark
+    public long parallelStream() {
+	return new AccountGenerator(structure).stream(true).count();
+    }
+
+    @Benchmark
+    public int validateCodeCombination() {
+	int result = 0;
+	for (int i = 0; i < codes.length; i++) {
+	    if (AccountCode.validateCodeCombination(codes[i], structure)) {
+		result++;
+	    }
+	}
+	return result;
+    }
+
+    @Benchmark
+    public long resolveCodeCombination() {
+	AccountCodeIndex index = structure.getAccountCodeIndex();
+	int[] ordinals = new int[index.getSegmentCount()];
+	long result = 0;
+	for (int i = 0; i < codes.length; i++) {
+	    result += index.resolve(codes[i], ordinals);
+	}
+	return result;
+    }
+}
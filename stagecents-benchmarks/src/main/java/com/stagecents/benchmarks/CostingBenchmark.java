@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.benchmarks;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stagecents.pa.api.ActivityService;
+import com.stagecents.pa.api.BudgetCostEngine;
+import com.stagecents.pa.domain.Activity;
+import com.stagecents.pay.domain.PayCycle;
+
+/**
+ * Measures the generation of the budget cost of a season. Every invocation
+ * costs a freshly generated season so that no timecard carries hours from a
+ * previous invocation.
+ *
+ * @author Blair Caple
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class CostingBenchmark {
+
+    @Param({ "W", "CM" })
+    private String frequency;
+
+    @Param({ "10" })
+    private int projects;
+
+    @Param({ "50" })
+    private int activitiesPerProject;
+
+    @Param({ "40" })
+    private int positions;
+
+    @Param({ "5" })
+    private int positionsPerActivity;
+
+    @Param({ "false", "true" })
+    private boolean compactStorage;
+
+    private List<Activity> activities;
+    private BudgetCostEngine engine;
+
+    @Setup(Level.Trial)
+    public void createEngine() {
+	engine = new BudgetCostEngine();
+	engine.setCompactStorage(compactStorage);
+    }
+
+    @Setup(Level.Invocation)
+    public void createSeason() {
+	SyntheticData data = new SyntheticData(42);
+	activities = SyntheticData.getActivities(data.createSeason(
+		PayCycle.Frequency.valueOf(frequency), projects,
+		activitiesPerProject, positions, positionsPerActivity, 3));
+    }
+
+    @Benchmark
+    public List<Activity> generateBudgetCost() {
+	Iterator<Activity> iter = activities.iterator();
+	while (iter.hasNext()) {
+	    new ActivityService(iter.next(), compactStorage)
+		    .generateBudgetCost();
+	}
+	return activities;
+    }
+
+    @Benchmark
+    public List<Activity> generateBudgetCostInParallel() {
+	engine.generateBudgetCost(activities);
+	return activities;
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stagecents.common.EffectiveDateInterval;
+
+/**
+ * Measures effective date checks against a set of date ranges.
+ *
+ * @author Blair Caple
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EffectiveDateBenchmark {
+
+    private static final int SIZE = 1000;
+
+    private EffectiveDateInterval[] ranges;
+    private LocalDate[] dates;
+    private DateTime[] instants;
+
+    @Setup
+    public void setUp() {
+	Random random = new Random(42);
+	ranges = new EffectiveDateInterval[SIZE];
+	dates = new LocalDate[SIZE];
+	instants = new DateTime[SIZE];
+	for (int i = 0; i < SIZE; i++) {
+	    LocalDate start = SyntheticData.START_DATE.plusDays(random
+		    .nextInt(300));
+	    ranges[i] = new EffectiveDateInterval(start, start.plusDays(random
+		    .nextInt(60)));
+	    dates[i] = SyntheticData.START_DATE.plusDays(random.nextInt(365));
+	    instants[i] = dates[i].toDateTimeAtStartOfDay().plusHours(
+		    random.nextInt(24));
+	}
+    }
+
+    @Benchmark
+    public int isEffectiveOnDate() {
+	int result = 0;
+	for (int i = 0; i < SIZE; i++) {
+	    if (ranges[i].isEffective(dates[i])) {
+		result++;
+	    }
+	}
+	return result;
+    }
+
+    @Benchmark
+    public int isEffectiveAtInstant() {
+	int result = 0;
+	for (int i = 0; i < SIZE; i++) {
+	    if (ranges[i].isEffective(instants[i])) {
+		result++;
+	    }
+	}
+	return result;
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.benchmarks;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stagecents.gl.domain.AccountBalance;
+import com.stagecents.gl.domain.Calendar;
+import com.stagecents.gl.domain.JournalBatch;
+import com.stagecents.gl.domain.JournalEntry;
+import com.stagecents.gl.domain.Ledger;
+import com.stagecents.gl.domain.Period;
+import com.stagecents.gl.domain.Structure;
+
+/**
+ * Measures the posting of a batch of journal entries to the account balances
+ * of a ledger. Every invocation posts a freshly created batch of unposted
+ * entries.
+ *
+ * @author Blair Caple
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class JournalPostingBenchmark {
+
+    @Param({ "100" })
+    private int entries;
+
+    @Param({ "10" })
+    private int lines;
+
+    private SyntheticData data;
+    private Structure structure;
+    private Calendar calendar;
+    private Ledger ledger;
+    private Period period;
+    private List<JournalEntry> batch;
+
+    @Setup(Level.Trial)
+    public void createLedger() {
+	data = new SyntheticData(42);
+	structure = data.createChartOfAccounts(3, 10);
+	calendar = data.createCalendar();
+	ledger = data.createLedger(structure, calendar);
+	period = calendar.getPeriods().first();
+    }
+
+    @Setup(Level.Invocation)
+    public void createBatch() {
+	batch = data.createJournalEntries(ledger, structure, period, entries,
+		lines);
+    }
+
+    @Benchmark
+    public Ledger newLedger() {
+	return data.createLedger(structure, calendar);
+    }
+
+    @Benchmark
+    public List<JournalEntry> post() {
+	Iterator<JournalEntry> iter = batch.iterator();
+	while (iter.hasNext()) {
+	    JournalBatch journalBatch = new JournalBatch();
+	    journalBatch.add(iter.next());
+	    journalBatch.post();
+	}
+	return batch;
+    }
+
+    @Benchmark
+    public List<AccountBalance> postBatch() {
+	JournalBatch journalBatch = new JournalBatch();
+	Iterator<JournalEntry> iter = batch.iterator();
+	while (iter.hasNext()) {
+	    journalBatch.add(iter.next());
+	}
+	return journalBatch.post();
+    }
+}
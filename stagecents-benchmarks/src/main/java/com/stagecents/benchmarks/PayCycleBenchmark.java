@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stagecents.pay.domain.PayCycle;
+import com.stagecents.pay.domain.PayCycleCalendar;
+import com.stagecents.pay.domain.Payroll;
+
+/**
+ * Measures pay cycle arithmetic over a season's worth of activity intervals.
+ *
+ * @author Blair Caple
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PayCycleBenchmark {
+
+    private static final int INTERVALS = 1000;
+
+    @Param({ "W", "SM", "CM", "Q" })
+    private String frequency;
+
+    private PayCycle payCycle;
+    private Payroll payroll;
+    private Interval[] intervals;
+    private LocalDate[] dates;
+
+    @Setup
+    public void setUp() {
+	SyntheticData data = new SyntheticData(42);
+	payroll = data.createPayroll(PayCycle.Frequency.valueOf(frequency));
+	payCycle = payroll.getPayCycle();
+
+	Random random = new Random(42);
+	intervals = new Interval[INTERVALS];
+	dates = new LocalDate[INTERVALS];
+	for (int i = 0; i < INTERVALS; i++) {
+	    DateTime start = SyntheticData.START_DATE.plusDays(
+		    random.nextInt(300)).toDateTimeAtStartOfDay();
+	    intervals[i] = new Interval(start, start.plusDays(random
+		    .nextInt(5)).plusHours(4));
+	    dates[i] = start.toLocalDate();
+	}
+    }
+
+    @Benchmark
+    public int getCyclePeriods() {
+	int result = 0;
+	for (int i = 0; i < intervals.length; i++) {
+	    result += payCycle.getCyclePeriods(intervals[i]);
+	}
+	return result;
+    }
+
+    @Benchmark
+    public int calendarIndexOf() {
+	PayCycleCalendar calendar = payroll.getPayCycleCalendar(
+		SyntheticData.START_DATE, SyntheticData.END_DATE);
+	int result = 0;
+	for (int i = 0; i < dates.length; i++) {
+	    result += calendar.indexOf(dates[i]);
+	}
+	return result;
+    }
+}
@@ -0,0 +1,312 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.joda.time.DateTime;
+import org.joda.time.Days;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+
+import com.stagecents.common.DayOfWeek;
+import com.stagecents.gl.api.command.CalendarDTO;
+import com.stagecents.gl.api.command.ChartOfAccountsGeneratedEvent;
+import com.stagecents.gl.api.command.JournalHeaderDTO;
+import com.stagecents.gl.api.command.JournalLineDTO;
+import com.stagecents.gl.api.command.LedgerDTO;
+import com.stagecents.gl.api.command.PeriodDTO;
+import com.stagecents.gl.api.command.SegmentDTO;
+import com.stagecents.gl.api.command.StructureDTO;
+import com.stagecents.gl.domain.AccountCode;
+import com.stagecents.gl.domain.AccountType;
+import com.stagecents.gl.domain.Calendar;
+import com.stagecents.gl.domain.CalendarId;
+import com.stagecents.gl.domain.JournalEntry;
+import com.stagecents.gl.domain.JournalEntryCategory;
+import com.stagecents.gl.domain.JournalEntryId;
+import com.stagecents.gl.domain.Ledger;
+import com.stagecents.gl.domain.LedgerId;
+import com.stagecents.gl.domain.Period;
+import com.stagecents.gl.domain.PeriodType;
+import com.stagecents.gl.domain.Segment;
+import com.stagecents.gl.domain.SegmentValue;
+import com.stagecents.gl.domain.Structure;
+import com.stagecents.gl.domain.StructureId;
+import com.stagecents.hr.domain.Position;
+import com.stagecents.pa.domain.Activity;
+import com.stagecents.pa.domain.PositionResource;
+import com.stagecents.pa.domain.Project;
+import com.stagecents.pa.domain.Rehearsal;
+import com.stagecents.pa.domain.Season;
+import com.stagecents.pay.domain.ElementLink;
+import com.stagecents.pay.domain.MinimumCallValue;
+import com.stagecents.pay.domain.PayCycle;
+import com.stagecents.pay.domain.Payroll;
+import com.stagecents.pay.domain.RegularWages;
+
+/**
+ * Generates synthetic seasons, charts of accounts and journals for the
+ * benchmarks. Data is generated from a fixed seed so that every fork of a
+ * benchmark measures the same work.
+ *
+ * @author Blair Caple
+ */
+public class SyntheticData {
+
+    public static final LocalDate START_DATE = new LocalDate(2014, 7, 1);
+    public static final LocalDate END_DATE = new LocalDate(2015, 6, 30);
+
+    private final Random random;
+
+    public SyntheticData(long seed) {
+	random = new Random(seed);
+    }
+
+    /**
+     * Creates a season of the given number of projects, each with the given
+     * number of rehearsals. Every rehearsal is assigned a random selection of
+     * the given number of positions, each of which is paid regular wages on a
+     * payroll with the given pay cycle.
+     *
+     * @param frequency The pay cycle frequency of the payroll.
+     * @param projects The number of projects in the season.
+     * @param activities The number of activities in each project.
+     * @param positions The number of positions in the season.
+     * @param positionsPerActivity The number of positions assigned to each
+     *            activity.
+     * @param maxDays The maximum number of days spanned by an activity.
+     * @return The season.
+     */
+    public Season createSeason(PayCycle.Frequency frequency, int projects,
+	    int activities, int positions, int positionsPerActivity,
+	    int maxDays) {
+	Payroll payroll = createPayroll(frequency);
+	RegularWages wages = new RegularWages("Regular", "Regular Wages",
+		START_DATE, END_DATE);
+	wages.addInputValue(new MinimumCallValue(4, 2, START_DATE, END_DATE));
+
+	List<PositionResource> resources = new ArrayList<PositionResource>();
+	for (int i = 0; i < positions; i++) {
+	    Position position = new Position(START_DATE, END_DATE, "Position "
+		    + i, null, Position.PositionType.SINGLE, null, 1, null);
+	    position.linkElement(new ElementLink(wages, position, null, null,
+		    true, START_DATE, END_DATE));
+	    resources.add(new PositionResource("Resource " + i, null,
+		    START_DATE, END_DATE, position, payroll));
+	}
+
+	Season season = new Season("Season", START_DATE, END_DATE);
+	int seasonDays = Days.daysBetween(START_DATE, END_DATE).getDays()
+		- maxDays;
+	for (int i = 0; i < projects; i++) {
+	    Project project = new Project("Project " + i, null,
+		    Project.Status.APPROVED, season, i, START_DATE, END_DATE);
+	    season.addProject(project);
+	    for (int j = 0; j < activities; j++) {
+		DateTime start = START_DATE.plusDays(random.nextInt(seasonDays))
+			.toDateTime(new LocalTime(8 + random.nextInt(8), 0));
+		DateTime end = start.plusDays(random.nextInt(maxDays))
+			.plusHours(1 + random.nextInt(6));
+		Rehearsal activity = new Rehearsal("Rehearsal " + i + "." + j,
+			null, project, start, end, null);
+		for (int k = 0; k < positionsPerActivity; k++) {
+		    activity.addResource(resources.get(random
+			    .nextInt(resources.size())));
+		}
+		project.addActivity(activity);
+	    }
+	}
+	return season;
+    }
+
+    /**
+     * Returns every activity of the given season.
+     */
+    public static List<Activity> getActivities(Season season) {
+	List<Activity> result = new ArrayList<Activity>();
+	Iterator<Project> iter = season.getProjects().iterator();
+	while (iter.hasNext()) {
+	    result.addAll(iter.next().getActivities());
+	}
+	return result;
+    }
+
+    /**
+     * Creates a payroll with the given pay cycle frequency over the benchmark
+     * date range.
+     */
+    public Payroll createPayroll(PayCycle.Frequency frequency) {
+	PayCycle payCycle = new PayCycle(frequency.name(), frequency,
+		DayOfWeek.SUNDAY, 0, false);
+	LocalDate firstEndDate = START_DATE.plusDays(7 - START_DATE
+		.getDayOfWeek());
+	return new Payroll(payCycle, null, "Payroll", null, firstEndDate, 0,
+		0, 0, null, START_DATE, END_DATE);
+    }
+
+    /**
+     * Creates an account structure of the given number of segments, each with
+     * the given number of values. The first segment is the natural account
+     * segment.
+     *
+     * @param segments The number of segments.
+     * @param values The number of values in each segment.
+     * @return The structure.
+     */
+    public Structure createStructure(int segments, int values) {
+	List<SegmentDTO> data = new ArrayList<SegmentDTO>();
+	int length = String.valueOf(values - 1).length();
+	for (int i = 0; i < segments; i++) {
+	    data.add(new SegmentDTO("segment-" + i, "Segment " + i, i, true,
+		    length, i == 0, i == 1));
+	}
+	Structure structure = new Structure(new StructureDTO(new StructureId(),
+		"Structure", true, false, data));
+
+	AccountType[] types = AccountType.values();
+	Iterator<Segment> iter = structure.getSegments().iterator();
+	while (iter.hasNext()) {
+	    Segment segment = iter.next();
+	    for (int j = 0; j < values; j++) {
+		String value = pad(j, length);
+		AccountType type = segment.isNaturalAccountSegment() ? types[j
+			% types.length] : null;
+		segment.addSegmentValue(new SegmentValue(segment.getSegmentId()
+			+ "-" + value, segment, segment.getSequence(), value,
+			"Value " + value, null, null, type));
+	    }
+	}
+	return structure;
+    }
+
+    /**
+     * Creates a structure of the given size together with its chart of
+     * accounts.
+     */
+    public Structure createChartOfAccounts(int segments, int values) {
+	Structure structure = createStructure(segments, values);
+	structure.handleGenerateChartOfAccounts(
+		new ChartOfAccountsGeneratedEvent(structure.getIdentifier()));
+	return structure;
+    }
+
+    /**
+     * Returns the given number of account code strings in the given
+     * structure, of which roughly one in ten is invalid.
+     */
+    public String[] createCodeCombinations(Structure structure, int count) {
+	List<Segment> segments = new ArrayList<Segment>(
+		structure.getSegments());
+	String[] result = new String[count];
+	for (int i = 0; i < count; i++) {
+	    StringBuilder sb = new StringBuilder();
+	    for (int j = 0; j < segments.size(); j++) {
+		Segment segment = segments.get(j);
+		int n = segment.getSegmentValues().size();
+		if (j > 0) {
+		    sb.append("-");
+		}
+		if (random.nextInt(10) == 0) {
+		    sb.append(pad("X", 'X', segment.getLength()));
+		} else {
+		    sb.append(pad(random.nextInt(n), segment.getLength()));
+		}
+	    }
+	    result[i] = sb.toString();
+	}
+	return result;
+    }
+
+    /**
+     * Creates a monthly calendar over the benchmark date range.
+     */
+    public Calendar createCalendar() {
+	CalendarDTO data = new CalendarDTO(new CalendarId(), "Fiscal", null,
+		new ArrayList<PeriodDTO>());
+	LocalDate start = START_DATE;
+	for (int i = 1; i <= 12; i++) {
+	    data.getPeriods().add(new PeriodDTO("period-" + i, data, "P" + i,
+		    null, start, start.plusMonths(1).minusDays(1), START_DATE,
+		    PeriodType.MONTH, START_DATE.getYear(), i, false));
+	    start = start.plusMonths(1);
+	}
+	return new Calendar(data);
+    }
+
+    /**
+     * Creates a ledger over the given structure and calendar. Account
+     * balances are created as entries are posted.
+     */
+    public Ledger createLedger(Structure structure, Calendar calendar) {
+	return new Ledger(new LedgerDTO(new LedgerId(), "Ledger", "GL", null,
+		Currency.getInstance("USD"), calendar, null, null, structure));
+    }
+
+    /**
+     * Creates the given number of balanced, unposted journal entries of the
+     * given number of lines against random account codes of the given ledger.
+     */
+    public List<JournalEntry> createJournalEntries(Ledger ledger,
+	    Structure structure, Period period, int entries, int lines) {
+	List<AccountCode> accounts = new ArrayList<AccountCode>(
+		structure.getChartOfAccounts());
+	JournalEntryCategory category = new JournalEntryCategory("payroll",
+		"Payroll", null);
+	List<JournalEntry> result = new ArrayList<JournalEntry>(entries);
+	for (int i = 0; i < entries; i++) {
+	    List<JournalLineDTO> data = new ArrayList<JournalLineDTO>();
+	    for (int j = 0; j < lines; j += 2) {
+		// Amounts are in cents.
+		long amount = 100 * (1 + random.nextInt(10000));
+		data.add(new JournalLineDTO("line-" + i + "-" + j, null,
+			accounts.get(random.nextInt(accounts.size())), amount,
+			0, null));
+		data.add(new JournalLineDTO("line-" + i + "-" + (j + 1), null,
+			accounts.get(random.nextInt(accounts.size())), 0,
+			amount, null));
+	    }
+	    result.add(new JournalEntry(new JournalHeaderDTO(
+		    new JournalEntryId(), ledger, category, period, "Journal "
+			    + i, Currency.getInstance("USD"),
+		    JournalEntry.Status.UNPOSTED, START_DATE, null, null, 0, 0,
+		    0, data)));
+	}
+	return result;
+    }
+
+    private static String pad(int value, int length) {
+	return pad(String.valueOf(value), '0', length);
+    }
+
+    private static String pad(String value, char c, int length) {
+	StringBuilder sb = new StringBuilder(value);
+	while (sb.length() < length) {
+	    sb.insert(0, c);
+	}
+	return sb.toString();
+    }
+}
@@ -30,6 +30,14 @@ public class EffectiveDateInterval implements DateEffective {
     private DateTime startDate;
     private DateTime endDate;
 
+    // Lazy loaded primitive bounds. The day bounds are the first day, and the
+    // day after the last day, that are wholly contained in this interval.
+    private transient long startMillis;
+    private transient long endMillis;
+    private transient long startDay;
+    private transient long endDay;
+    private transient volatile boolean initialized;
+
     /**
      * Creates a new EffectiveDateInterval from the given <code>startDate</code>
      * and <code>endDate</code>.
@@ -91,14 +99,81 @@ public class EffectiveDateInterval implements DateEffective {
 	return endDate;
     }
 
+    /**
+     * Returns the start of this interval in milliseconds from the epoch.
+     * 
+     * @return The start of this interval in epoch millis.
+     */
+    public long getStartMillis() {
+	initialize();
+	return startMillis;
+    }
+
+    /**
+     * Returns the exclusive end of this interval in milliseconds from the
+     * epoch.
+     * 
+     * @return The end of this interval in epoch millis.
+     */
+    public long getEndMillis() {
+	initialize();
+	return endMillis;
+    }
+
+    /**
+     * Returns the epoch day of the first day wholly contained in this
+     * interval.
+     * 
+     * @return The epoch day of the first effective day.
+     */
+    public long getStartDay() {
+	initialize();
+	return startDay;
+    }
+
+    /**
+     * Returns the epoch day following the last day wholly contained in this
+     * interval.
+     * 
+     * @return The exclusive epoch day of the last effective day.
+     */
+    public long getEndDay() {
+	initialize();
+	return endDay;
+    }
+
     public boolean isEffective(DateTime effectiveDate) {
-	Interval interval = new Interval(startDate, endDate);
-	return interval.contains(effectiveDate);
+	return isEffective(effectiveDate.getMillis());
     }
 
     public boolean isEffective(LocalDate effectiveDate) {
-	Interval period = new Interval(startDate, endDate);
-	return period.contains(effectiveDate.toInterval());
+	initialize();
+	long day = Utils.toEpochDay(effectiveDate);
+	return startDay <= day && day < endDay;
+    }
+
+    /**
+     * Returns true if the given instant falls within this interval.
+     * 
+     * @param instant The instant to test in epoch millis.
+     * @return True if the given instant is contained within this interval.
+     */
+    public boolean isEffective(long instant) {
+	initialize();
+	return startMillis <= instant && instant < endMillis;
+    }
+
+    /**
+     * Returns true if the given period overlaps this interval. Abutting
+     * periods do not overlap.
+     * 
+     * @param start The start of the period in epoch millis.
+     * @param end The exclusive end of the period in epoch millis.
+     * @return True if the given period overlaps this interval.
+     */
+    public boolean overlaps(long start, long end) {
+	initialize();
+	return startMillis < end && start < endMillis;
     }
 
     /**
@@ -106,11 +181,35 @@ public class EffectiveDateInterval implements DateEffective {
      * EffectivedateInterval object and the given interval.
      * 
      * @param arg The interval to test for overlap.
-     * @return The overlapping interval.
+     * @return The overlapping interval, or null if the intervals do not
+     *         overlap.
      */
     public Interval getOverlap(Interval arg) {
-	Interval period = new Interval(startDate, endDate);
-	return period.overlap(arg);
+	long start = arg.getStartMillis();
+	long end = arg.getEndMillis();
+	if (!overlaps(start, end)) {
+	    return null;
+	}
+	return new Interval(Math.max(startMillis, start), Math.min(endMillis,
+		end));
+    }
+
+    private void initialize() {
+	if (initialized) {
+	    return;
+	}
+	startMillis = startDate.getMillis();
+	endMillis = endDate.getMillis();
+
+	// A day is effective only if it lies wholly within this interval.
+	LocalDate first = new LocalDate(startMillis);
+	if (first.toDateTimeAtStartOfDay().getMillis() < startMillis) {
+	    first = first.plusDays(1);
+	}
+	startDay = Utils.toEpochDay(first);
+	endDay = (endMillis == Long.MAX_VALUE) ? Long.MAX_VALUE : Utils
+		.toEpochDay(new LocalDate(endMillis));
+	initialized = true;
     }
 
     @Override
@@ -0,0 +1,215 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.common;
+
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+ * Performs fixed-point arithmetic on amounts held as scaled <code>long</code>
+ * values, e.g. money in cents or hours in hundredths of an hour. A value of
+ * scale 2 holds the amount times 100. No objects are created, so the methods
+ * may be used in the costing and posting hot paths in place of
+ * <code>float</code> or <code>BigDecimal</code> arithmetic.
+ * <p>
+ * Products are exact and take the sum of the scales of their factors. Only
+ * <code>rescale()</code> and <code>divide()</code> round, under an explicit
+ * rounding mode. Arithmetic that overflows a <code>long</code> throws an
+ * <code>ArithmeticException</code>.
+ *
+ * @author Blair Caple
+ */
+public final class FixedPoint {
+
+    /** The scale of money amounts, i.e. cents. */
+    public static final int MONEY_SCALE = 2;
+
+    /** The scale of hours, i.e. hundredths of an hour. */
+    public static final int HOURS_SCALE = 2;
+
+    /** The scale of rates and multipliers. */
+    public static final int FACTOR_SCALE = 4;
+
+    private static final long[] POWERS_OF_TEN = { 1L, 10L, 100L, 1000L,
+	    10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L,
+	    10000000000L, 100000000000L, 1000000000000L, 10000000000000L,
+	    100000000000000L, 1000000000000000L, 10000000000000000L,
+	    100000000000000000L, 1000000000000000000L };
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Returns the scale of the minor units of the given currency, or
+     * <code>MONEY_SCALE</code> if the currency is null or has none.
+     *
+     * @param currency The currency.
+     * @return The scale of the currency.
+     */
+    public static int getScale(Currency currency) {
+	if (currency == null || currency.getDefaultFractionDigits() < 0) {
+	    return MONEY_SCALE;
+	}
+	return currency.getDefaultFractionDigits();
+    }
+
+    /**
+     * Returns the given amount as a value of the given scale, rounded half
+     * away from zero. The amount is taken to be the decimal number closest to
+     * it, so that e.g. 0.1F yields 10 at scale 2.
+     *
+     * @param amount The amount to convert.
+     * @param scale The scale of the result.
+     * @return The scaled value.
+     */
+    public static long valueOf(float amount, int scale) {
+	long p = powerOfTen(scale);
+	float a = Math.abs(amount);
+	double d = (double) a * p;
+	if (d >= Long.MAX_VALUE) {
+	    throw new ArithmeticException("overflow");
+	}
+	long n = (long) d;
+	if (d - n >= 0.5) {
+	    n++;
+	} else if ((double) Math.ulp(a) * p < 1
+		&& (float) ((n + 0.5) / p) == a) {
+	    // Round up a half such as 0.005 that the float holds only
+	    // approximately. Once floats are a minor unit or more apart, every
+	    // float is a whole number of minor units and is left as it is.
+	    n++;
+	}
+	return (amount < 0) ? -n : n;
+    }
+
+    /**
+     * Returns the given scaled value as a float.
+     *
+     * @param value The scaled value.
+     * @param scale The scale of the value.
+     * @return The amount.
+     */
+    public static float toFloat(long value, int scale) {
+	return (float) ((double) value / powerOfTen(scale));
+    }
+
+    public static long add(long x, long y) {
+	return Math.addExact(x, y);
+    }
+
+    public static long subtract(long x, long y) {
+	return Math.subtractExact(x, y);
+    }
+
+    /**
+     * Returns the exact product of the given values, whose scale is the sum of
+     * the scales of the factors.
+     *
+     * @param x The first factor.
+     * @param y The second factor.
+     * @return The product.
+     */
+    public static long multiply(long x, long y) {
+	return Math.multiplyExact(x, y);
+    }
+
+    /**
+     * Returns the given value converted from one scale to another, rounded
+     * under the given rounding mode if the scale is reduced.
+     *
+     * @param value The scaled value.
+     * @param fromScale The scale of the value.
+     * @param toScale The scale of the result.
+     * @param mode The rounding mode.
+     * @return The rescaled value.
+     */
+    public static long rescale(long value, int fromScale, int toScale,
+	    RoundingMode mode) {
+	if (toScale >= fromScale) {
+	    return Math.multiplyExact(value, powerOfTen(toScale - fromScale));
+	}
+	return divide(value, powerOfTen(fromScale - toScale), mode);
+    }
+
+    /**
+     * Returns the quotient of the given values, rounded under the given
+     * rounding mode.
+     *
+     * @param dividend The dividend.
+     * @param divisor The divisor.
+     * @param mode The rounding mode.
+     * @return The rounded quotient.
+     * @throws ArithmeticException If the divisor is zero, or if the mode is
+     *             <code>UNNECESSARY</code> and the quotient is inexact.
+     */
+    public static long divide(long dividend, long divisor, RoundingMode mode) {
+	long q = dividend / divisor;
+	long r = dividend % divisor;
+	if (r == 0) {
+	    return q;
+	}
+	int signum = ((dividend < 0) == (divisor < 0)) ? 1 : -1;
+	boolean increment;
+	switch (mode) {
+	case UP:
+	    increment = true;
+	    break;
+	case DOWN:
+	    increment = false;
+	    break;
+	case CEILING:
+	    increment = signum > 0;
+	    break;
+	case FLOOR:
+	    increment = signum < 0;
+	    break;
+	case HALF_UP:
+	case HALF_DOWN:
+	case HALF_EVEN:
+	    // Compare the remainder with half the divisor without overflow.
+	    long absR = Math.abs(r);
+	    long half = Math.abs(divisor) - absR;
+	    if (absR > half) {
+		increment = true;
+	    } else if (absR < half) {
+		increment = false;
+	    } else if (mode == RoundingMode.HALF_UP) {
+		increment = true;
+	    } else if (mode == RoundingMode.HALF_DOWN) {
+		increment = false;
+	    } else {
+		increment = (q & 1) != 0;
+	    }
+	    break;
+	default:
+	    throw new ArithmeticException("rounding necessary");
+	}
+	return increment ? q + signum : q;
+    }
+
+    private static long powerOfTen(int n) {
+	if (n < 0 || n >= POWERS_OF_TEN.length) {
+	    throw new IllegalArgumentException("invalid scale");
+	}
+	return POWERS_OF_TEN[n];
+    }
+}
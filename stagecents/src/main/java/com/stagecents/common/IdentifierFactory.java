@@ -21,6 +21,7 @@
  */
 package com.stagecents.common;
 
+import java.io.UnsupportedEncodingException;
 import java.util.UUID;
 
 /**
@@ -60,4 +61,20 @@ public class IdentifierFactory {
     public String generateIdentifier() {
 	return UUID.randomUUID().toString();
     }
+
+    /**
+     * Generate a unique identifier that is derived from the given name, so
+     * that the same name always yields the same identifier. The identifier is
+     * a name based <code>java.util.UUID</code>.
+     * 
+     * @param name The name from which to derive the identifier.
+     * @return a String representation of a unique identifier.
+     */
+    public String generateIdentifier(String name) {
+	try {
+	    return UUID.nameUUIDFromBytes(name.getBytes("UTF-8")).toString();
+	} catch (UnsupportedEncodingException e) {
+	    throw new IllegalStateException(e);
+	}
+    }
 }
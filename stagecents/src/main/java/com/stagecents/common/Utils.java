@@ -35,6 +35,28 @@ public class Utils {
 	return v;
     }
     
+    /**
+     * Returns the number of days between 1970-01-01 and the given date. The
+     * result is computed from the date's fields without creating any
+     * intermediate objects.
+     *
+     * @param date The date to convert.
+     * @return The epoch day of the given date.
+     */
+    public static long toEpochDay(LocalDate date) {
+	long y = date.getYear();
+	int m = date.getMonthOfYear();
+	int d = date.getDayOfMonth();
+
+	// Count from March 1 so that the leap day is the last day of the year.
+	y -= (m <= 2) ? 1 : 0;
+	long era = (y >= 0 ? y : y - 399) / 400;
+	long yoe = y - era * 400;
+	long doy = (153 * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+	long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+	return era * 146097 + doe - 719468;
+    }
+
     public static AggregateId nvl(AggregateId v, AggregateId defaultValue) {
 	if(v == null) {
 	    return defaultValue;
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.common.hibernate.type;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.type.BigDecimalType;
+import org.hibernate.usertype.ParameterizedType;
+import org.hibernate.usertype.UserType;
+
+import com.stagecents.common.FixedPoint;
+
+/**
+ * Maps a fixed-point <code>long</code> property to a decimal column, e.g. 12345
+ * cents to 123.45. The scale of the property is given by the
+ * <code>scale</code> parameter and defaults to
+ * <code>FixedPoint.MONEY_SCALE</code>. Values read with more decimal places
+ * than the scale are rounded half up, and a null column is read as a null
+ * property, so a nullable column must map to a <code>Long</code> property.
+ * <p>
+ * No mapping uses this type yet. It is provided for amounts that move from
+ * <code>float</code> to fixed-point storage.
+ *
+ * @author Blair Caple
+ */
+public class MoneyType implements UserType, ParameterizedType {
+
+    private int scale = FixedPoint.MONEY_SCALE;
+
+    public void setParameterValues(Properties parameters) {
+	if (parameters != null && parameters.getProperty("scale") != null) {
+	    scale = Integer.parseInt(parameters.getProperty("scale"));
+	}
+    }
+
+    public int[] sqlTypes() {
+	return new int[] { BigDecimalType.INSTANCE.sqlType() };
+    }
+
+    public Class returnedClass() {
+	return Long.class;
+    }
+
+    public boolean equals(Object x, Object y) throws HibernateException {
+	if (x == y) {
+	    return true;
+	}
+	if (x != null && y != null && x.equals(y)) {
+	    return true;
+	}
+	return false;
+    }
+
+    public int hashCode(Object x) throws HibernateException {
+	if (x != null) {
+	    return x.hashCode();
+	}
+	return 0;
+    }
+
+    public Object nullSafeGet(ResultSet rs, String[] names,
+	    SessionImplementor session, Object owner)
+	    throws HibernateException, SQLException {
+	BigDecimal value = (BigDecimal) BigDecimalType.INSTANCE.get(rs,
+		names[0], session);
+	if (value == null) {
+	    return null;
+	}
+	return Long.valueOf(value.setScale(scale, RoundingMode.HALF_UP)
+		.unscaledValue().longValue());
+    }
+
+    public void nullSafeSet(PreparedStatement st, Object value, int index,
+	    SessionImplementor session) throws HibernateException, SQLException {
+	if (value == null) {
+	    BigDecimalType.INSTANCE.set(st, null, index, session);
+	} else {
+	    BigDecimal amount = BigDecimal.valueOf(((Long) value).longValue(),
+		    scale);
+	    BigDecimalType.INSTANCE.set(st, amount, index, session);
+	}
+    }
+
+    public Object deepCopy(Object value) throws HibernateException {
+	return value;
+    }
+
+    public boolean isMutable() {
+	return false;
+    }
+
+    public Serializable disassemble(Object value) throws HibernateException {
+	return (Long) value;
+    }
+
+    public Object assemble(Serializable cached, Object owner)
+	    throws HibernateException {
+	return cached;
+    }
+
+    public Object replace(Object original, Object target, Object owner)
+	    throws HibernateException {
+	return original;
+    }
+
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.common.infrastructure;
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.domain.EventMessage;
+import org.axonframework.eventhandling.EventListener;
+
+/**
+ * Reads reference aggregates through a cache in front of a repository. An
+ * aggregate that is not cached is loaded from the wrapped repository and
+ * added to the cache. A lookup with a lock always reads the wrapped
+ * repository. Subscribed to the event bus, the repository evicts an aggregate
+ * when it publishes an event, so that the next lookup reads its new state.
+ * Events of other types of aggregate, told apart by the type of their
+ * identifier, are ignored.
+ * Other lookups are delegated to the wrapped repository, which must return
+ * fully loaded objects that can be read outside the session that loaded them.
+ *
+ * @author Blair Caple
+ * @see ReferenceCache
+ */
+public class CachingRepository<E, K extends Serializable> implements
+	BaseRepository<E, K>, EventListener {
+
+    private final BaseRepository<E, K> delegate;
+    private final ReferenceCache<K, E> cache;
+    private final Class<K> identifierType;
+
+    public CachingRepository(BaseRepository<E, K> delegate,
+	    ReferenceCache<K, E> cache, Class<K> identifierType) {
+	this.delegate = delegate;
+	this.cache = cache;
+	this.identifierType = identifierType;
+    }
+
+    public ReferenceCache<K, E> getCache() {
+	return cache;
+    }
+
+    public E findById(K identifier, boolean lock) {
+	if (lock) {
+	    return delegate.findById(identifier, true);
+	}
+	E result = cache.get(identifier);
+	if (result == null) {
+	    long stamp = cache.stamp();
+	    result = delegate.findById(identifier, false);
+	    if (result != null) {
+		cache.put(identifier, result, stamp);
+	    }
+	}
+	return result;
+    }
+
+    public List<E> findAll() {
+	return delegate.findAll();
+    }
+
+    public List<E> findByExample(E exampleInstance, String... excludeProperty) {
+	return delegate.findByExample(exampleInstance, excludeProperty);
+    }
+
+    /**
+     * Evicts the aggregate with the given identifier from the cache.
+     */
+    public void evict(K identifier) {
+	cache.remove(identifier);
+    }
+
+    public void handle(EventMessage event) {
+	if (event instanceof DomainEventMessage) {
+	    Object identifier = ((DomainEventMessage<?>) event)
+		    .getAggregateIdentifier();
+	    if (identifierType.isInstance(identifier)) {
+		cache.remove(identifier);
+	    }
+	}
+    }
+}
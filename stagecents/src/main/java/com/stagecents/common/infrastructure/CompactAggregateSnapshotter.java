@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.common.infrastructure;
+
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.domain.DomainEventStream;
+import org.axonframework.domain.GenericDomainEventMessage;
+import org.axonframework.eventsourcing.AggregateSnapshotter;
+
+/**
+ * Creates snapshots of event-sourced aggregates. The snapshot of an aggregate
+ * that is a <code>SnapshotSource</code> carries the aggregate's compact
+ * snapshot as its payload, rather than the aggregate itself, so that it is
+ * serialized without the aggregate's derived state. Other aggregates are
+ * snapshot as by <code>AggregateSnapshotter</code>.
+ *
+ * @author Blair Caple
+ */
+public class CompactAggregateSnapshotter extends AggregateSnapshotter {
+
+    @Override
+    protected DomainEventMessage createSnapshot(String typeIdentifier,
+	    Object aggregateIdentifier, DomainEventStream eventStream) {
+	DomainEventMessage snapshot = super.createSnapshot(typeIdentifier,
+		aggregateIdentifier, eventStream);
+	if (snapshot == null
+		|| !(snapshot.getPayload() instanceof SnapshotSource)) {
+	    return snapshot;
+	}
+	Object payload = ((SnapshotSource) snapshot.getPayload())
+		.createSnapshot();
+	return new GenericDomainEventMessage<Object>(
+		snapshot.getAggregateIdentifier(),
+		snapshot.getSequenceNumber(), payload, snapshot.getMetaData());
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.common.infrastructure;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.eventhandling.annotation.AnnotationEventListenerAdapter;
+import org.axonframework.eventstore.EventVisitor;
+import org.axonframework.eventstore.management.EventStoreManagement;
+
+/**
+ * Rebuilds in-memory projections by replaying every event in the event store
+ * to their annotated event handlers. Projections that are
+ * <code>ReplayAware</code> are told before the replay starts, so that they
+ * can discard their state, and when it has ended or failed. The replay
+ * should run at startup, before the projections are read and before commands
+ * are accepted.
+ *
+ * @author Blair Caple
+ */
+public class ProjectionReplayer {
+
+    private EventStoreManagement eventStore;
+    private List<Object> projections = new ArrayList<Object>();
+
+    public void setEventStore(EventStoreManagement eventStore) {
+	this.eventStore = eventStore;
+    }
+
+    public void setProjections(List<Object> projections) {
+	this.projections = new ArrayList<Object>(projections);
+    }
+
+    /**
+     * Replays the event store to the projections.
+     */
+    public void replay() {
+	final List<AnnotationEventListenerAdapter> listeners =
+		new ArrayList<AnnotationEventListenerAdapter>();
+	Iterator<Object> iter = projections.iterator();
+	while (iter.hasNext()) {
+	    listeners.add(new AnnotationEventListenerAdapter(iter.next()));
+	}
+
+	Iterator<AnnotationEventListenerAdapter> listenerIter = listeners
+		.iterator();
+	while (listenerIter.hasNext()) {
+	    listenerIter.next().beforeReplay();
+	}
+	try {
+	    eventStore.visitEvents(new EventVisitor() {
+		public void doWithEvent(DomainEventMessage domainEvent) {
+		    Iterator<AnnotationEventListenerAdapter> iter = listeners
+			    .iterator();
+		    while (iter.hasNext()) {
+			iter.next().handle(domainEvent);
+		    }
+		}
+	    });
+	} catch (RuntimeException e) {
+	    listenerIter = listeners.iterator();
+	    while (listenerIter.hasNext()) {
+		listenerIter.next().onReplayFailed(e);
+	    }
+	    throw e;
+	}
+	listenerIter = listeners.iterator();
+	while (listenerIter.hasNext()) {
+	    listenerIter.next().afterReplay();
+	}
+    }
+}
@@ -0,0 +1,339 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.common.infrastructure;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * Represents a size-bounded, in-process cache of reference data, i.e. objects
+ * that are read constantly and change rarely. When the cache is full, adding
+ * an object evicts the least recently used object, or the least frequently
+ * used object, according to the eviction policy. The numbers of hits, misses
+ * and evictions are counted.
+ * <p>
+ * A value loaded on a miss must be added with the stamp taken before it was
+ * loaded, so that a value that was invalidated while it was being loaded is
+ * not cached. Removals are recorded by key, so that removing one key does not
+ * refuse values of other keys being loaded at the time. The most recent
+ * <code>maximumSize</code> removals are recorded; a value loaded before an
+ * older removal, or before the cache was cleared, is refused. Cached objects
+ * are shared between threads and must not be modified. A cache is thread
+ * safe.
+ *
+ * @author Blair Caple
+ */
+public class ReferenceCache<K, V> {
+
+    public enum EvictionPolicy {
+	LEAST_RECENTLY_USED, LEAST_FREQUENTLY_USED
+    }
+
+    private final int maximumSize;
+    private final Store<K, V> store;
+
+    // The stamp of the last removal of each recently removed key, eldest
+    // first, and the stamp before which values are refused.
+    private final LinkedHashMap<Object, Long> removals =
+	    new LinkedHashMap<Object, Long>();
+    private long stamp;
+    private long floor;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public ReferenceCache(int maximumSize, EvictionPolicy policy) {
+	if (maximumSize < 1) {
+	    throw new IllegalArgumentException("invalid maximum size");
+	}
+	this.maximumSize = maximumSize;
+	if (policy == EvictionPolicy.LEAST_FREQUENTLY_USED) {
+	    store = new LfuStore<K, V>();
+	} else {
+	    store = new LruStore<K, V>();
+	}
+    }
+
+    /**
+     * Returns the cached value of the given key, or null if it is not cached.
+     */
+    public synchronized V get(K key) {
+	V result = store.get(key);
+	if (result == null) {
+	    missCount++;
+	} else {
+	    hitCount++;
+	}
+	return result;
+    }
+
+    /**
+     * Returns a stamp to add a value with once it has been loaded.
+     */
+    public synchronized long stamp() {
+	return stamp;
+    }
+
+    /**
+     * Adds the given value of the given key, unless the key was removed or the
+     * cache cleared since the given stamp was taken.
+     *
+     * @param key The key of the value.
+     * @param value The value to cache.
+     * @param stamp The stamp taken before the value was loaded.
+     * @return True if the value was added, false otherwise.
+     */
+    public synchronized boolean put(K key, V value, long stamp) {
+	if (stamp < floor) {
+	    return false;
+	}
+	Long removed = removals.get(key);
+	if (removed != null && removed.longValue() > stamp) {
+	    return false;
+	}
+	if (!store.contains(key) && store.size() >= maximumSize) {
+	    store.evict();
+	    evictionCount++;
+	}
+	store.put(key, value);
+	return true;
+    }
+
+    /**
+     * Removes the value of the given key.
+     */
+    public synchronized void remove(Object key) {
+	stamp++;
+	removals.remove(key);
+	removals.put(key, stamp);
+	if (removals.size() > maximumSize) {
+	    Iterator<Long> iter = removals.values().iterator();
+	    floor = Math.max(floor, iter.next().longValue());
+	    iter.remove();
+	}
+	store.remove(key);
+    }
+
+    /**
+     * Removes all values.
+     */
+    public synchronized void clear() {
+	stamp++;
+	floor = stamp;
+	removals.clear();
+	store.clear();
+    }
+
+    public synchronized int size() {
+	return store.size();
+    }
+
+    public int getMaximumSize() {
+	return maximumSize;
+    }
+
+    public synchronized long getHitCount() {
+	return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+	return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+	return evictionCount;
+    }
+
+    /**
+     * Returns the ratio of hits to lookups, or zero if there were none.
+     */
+    public synchronized double getHitRatio() {
+	long lookups = hitCount + missCount;
+	return (lookups == 0) ? 0 : (double) hitCount / lookups;
+    }
+
+    private interface Store<K, V> {
+	V get(K key);
+
+	boolean contains(K key);
+
+	void put(K key, V value);
+
+	void remove(Object key);
+
+	void evict();
+
+	void clear();
+
+	int size();
+    }
+
+    private static class LruStore<K, V> implements Store<K, V> {
+	private final LinkedHashMap<K, V> values = new LinkedHashMap<K, V>(16,
+		0.75f, true);
+
+	public V get(K key) {
+	    return values.get(key);
+	}
+
+	public boolean contains(K key) {
+	    return values.containsKey(key);
+	}
+
+	public void put(K key, V value) {
+	    values.put(key, value);
+	}
+
+	public void remove(Object key) {
+	    values.remove(key);
+	}
+
+	public void evict() {
+	    Iterator<K> iter = values.keySet().iterator();
+	    iter.next();
+	    iter.remove();
+	}
+
+	public void clear() {
+	    values.clear();
+	}
+
+	public int size() {
+	    return values.size();
+	}
+    }
+
+    /**
+     * Holds the keys in buckets by the number of times they were used, in
+     * the order they entered the bucket, so that every operation takes
+     * constant time. Of the least frequently used keys, the one used least
+     * recently is evicted.
+     */
+    private static class LfuStore<K, V> implements Store<K, V> {
+	private final Map<K, Node<V>> nodes = new HashMap<K, Node<V>>();
+	private final Map<Integer, LinkedHashSet<K>> buckets =
+		new HashMap<Integer, LinkedHashSet<K>>();
+	private int minimumCount;
+
+	public V get(K key) {
+	    Node<V> node = nodes.get(key);
+	    if (node == null) {
+		return null;
+	    }
+	    touch(key, node);
+	    return node.value;
+	}
+
+	public boolean contains(K key) {
+	    return nodes.containsKey(key);
+	}
+
+	public void put(K key, V value) {
+	    Node<V> node = nodes.get(key);
+	    if (node != null) {
+		node.value = value;
+		touch(key, node);
+		return;
+	    }
+	    nodes.put(key, new Node<V>(value));
+	    bucket(1).add(key);
+	    minimumCount = 1;
+	}
+
+	public void remove(Object key) {
+	    Node<V> node = nodes.remove(key);
+	    if (node != null) {
+		LinkedHashSet<K> bucket = buckets.get(node.count);
+		bucket.remove(key);
+		if (bucket.isEmpty()) {
+		    buckets.remove(node.count);
+		}
+	    }
+	}
+
+	public void evict() {
+	    LinkedHashSet<K> bucket = buckets.get(minimumCount);
+	    if (bucket == null) {
+		// The least used keys were removed.
+		minimumCount = Integer.MAX_VALUE;
+		Iterator<Integer> iter = buckets.keySet().iterator();
+		while (iter.hasNext()) {
+		    minimumCount = Math.min(minimumCount, iter.next());
+		}
+		bucket = buckets.get(minimumCount);
+	    }
+	    Iterator<K> iter = bucket.iterator();
+	    K key = iter.next();
+	    iter.remove();
+	    if (bucket.isEmpty()) {
+		buckets.remove(minimumCount);
+	    }
+	    nodes.remove(key);
+	}
+
+	public void clear() {
+	    nodes.clear();
+	    buckets.clear();
+	    minimumCount = 0;
+	}
+
+	public int size() {
+	    return nodes.size();
+	}
+
+	private void touch(K key, Node<V> node) {
+	    LinkedHashSet<K> bucket = buckets.get(node.count);
+	    bucket.remove(key);
+	    if (bucket.isEmpty()) {
+		buckets.remove(node.count);
+		if (minimumCount == node.count) {
+		    minimumCount++;
+		}
+	    }
+	    if (node.count < Integer.MAX_VALUE) {
+		node.count++;
+	    }
+	    bucket(node.count).add(key);
+	}
+
+	private LinkedHashSet<K> bucket(int count) {
+	    LinkedHashSet<K> result = buckets.get(count);
+	    if (result == null) {
+		result = new LinkedHashSet<K>();
+		buckets.put(count, result);
+	    }
+	    return result;
+	}
+    }
+
+    private static class Node<V> {
+	V value;
+	int count = 1;
+
+	Node(V value) {
+	    this.value = value;
+	}
+    }
+}
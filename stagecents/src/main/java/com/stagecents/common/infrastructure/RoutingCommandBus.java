@@ -0,0 +1,247 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.common.infrastructure;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.axonframework.commandhandling.CommandCallback;
+import org.axonframework.commandhandling.CommandMessage;
+import org.axonframework.commandhandling.CommandTargetResolver;
+import org.axonframework.commandhandling.GenericCommandMessage;
+import org.axonframework.commandhandling.SimpleCommandBus;
+import org.axonframework.commandhandling.annotation.AnnotationCommandTargetResolver;
+import org.axonframework.commandhandling.callbacks.FutureCallback;
+
+/**
+ * Dispatches commands asynchronously on a fixed number of lanes, each a single
+ * worker thread with a bounded queue. A command is routed to a lane by the
+ * identifier of the aggregate it targets, so that the commands of one
+ * aggregate, e.g. one <code>JournalEntryId</code> or <code>StructureId</code>,
+ * are handled in the order they were dispatched while commands of other
+ * aggregates are handled in parallel. Commands without a target identifier
+ * are spread over the lanes.
+ * <p>
+ * Ordering holds only between commands that resolve to the same target. A
+ * command that changes several aggregates must be resolved to a key shared
+ * with every other command that changes them, by setting a target resolver,
+ * or it may run alongside them. The <code>LedgerTargetResolver</code>, for
+ * instance, routes the commands that post journal entries by their ledger.
+ * <p>
+ * Dispatch interceptors run on the caller's thread. Dispatching blocks while
+ * the command's lane is full, so that callers are held back rather than
+ * queuing without bound. Handling, including the unit of work and the
+ * repository load and save, runs on the lane's thread, and the outcome is
+ * reported to the callback. The time each command waits in its queue and the
+ * time it takes to handle are recorded per stage. A handler must not wait for
+ * a command it dispatches, which may be queued behind it on its own lane.
+ *
+ * @author Blair Caple
+ */
+public class RoutingCommandBus extends SimpleCommandBus {
+
+    private final Lane[] lanes;
+    private final AtomicInteger nextLane = new AtomicInteger();
+    private CommandTargetResolver targetResolver =
+	    new AnnotationCommandTargetResolver();
+
+    private final StageStatistics queueStatistics = new StageStatistics();
+    private final StageStatistics handlerStatistics = new StageStatistics();
+
+    public RoutingCommandBus(int laneCount, int queueCapacity) {
+	if (laneCount < 1 || queueCapacity < 1) {
+	    throw new IllegalArgumentException("invalid lane configuration");
+	}
+	lanes = new Lane[laneCount];
+	for (int i = 0; i < laneCount; i++) {
+	    lanes[i] = new Lane(queueCapacity);
+	    Thread thread = new Thread(lanes[i], "command-lane-" + i);
+	    thread.setDaemon(true);
+	    thread.start();
+	}
+    }
+
+    public void setTargetResolver(CommandTargetResolver targetResolver) {
+	this.targetResolver = targetResolver;
+    }
+
+    /**
+     * Dispatches the given command and returns a future of its result.
+     *
+     * @param command The command, or command message, to dispatch.
+     * @return The future result of the command.
+     */
+    public <R> Future<R> send(Object command) {
+	FutureCallback<R> callback = new FutureCallback<R>();
+	dispatch(GenericCommandMessage.asCommandMessage(command), callback);
+	return callback;
+    }
+
+    @Override
+    protected <R> void doDispatch(CommandMessage<?> command,
+	    CommandCallback<R> callback) {
+	Lane lane = lanes[laneOf(command)];
+	try {
+	    lane.queue.put(new Task<R>(command, callback));
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    callback.onFailure(e);
+	}
+    }
+
+    private int laneOf(CommandMessage<?> command) {
+	Object target = null;
+	try {
+	    target = targetResolver.resolveTarget(command).getIdentifier();
+	} catch (IllegalArgumentException e) {
+	    // The command does not identify its aggregate.
+	}
+	int hash = (target != null) ? target.hashCode() : nextLane
+		.getAndIncrement();
+	hash ^= (hash >>> 16);
+	return (hash & Integer.MAX_VALUE) % lanes.length;
+    }
+
+    /**
+     * Stops the lanes once the commands already queued have been handled.
+     */
+    public void shutdown() {
+	for (int i = 0; i < lanes.length; i++) {
+	    try {
+		lanes[i].queue.put(new Task<Object>(null, null));
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+		return;
+	    }
+	}
+    }
+
+    /**
+     * Returns the number of commands waiting in the lanes' queues.
+     */
+    public int getQueuedCommandCount() {
+	int result = 0;
+	for (int i = 0; i < lanes.length; i++) {
+	    result += lanes[i].queue.size();
+	}
+	return result;
+    }
+
+    /**
+     * Returns the statistics of the time commands wait in their queue.
+     */
+    public StageStatistics getQueueStatistics() {
+	return queueStatistics;
+    }
+
+    /**
+     * Returns the statistics of the time commands take to handle.
+     */
+    public StageStatistics getHandlerStatistics() {
+	return handlerStatistics;
+    }
+
+    private void handle(Task<?> task) {
+	long start = System.nanoTime();
+	queueStatistics.record(start - task.queued);
+	task.run();
+	handlerStatistics.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Represents a command waiting in a lane, or the end of a lane if the
+     * command is null.
+     */
+    private class Task<R> {
+	final CommandMessage<?> command;
+	final CommandCallback<R> callback;
+	final long queued = System.nanoTime();
+
+	Task(CommandMessage<?> command, CommandCallback<R> callback) {
+	    this.command = command;
+	    this.callback = callback;
+	}
+
+	void run() {
+	    RoutingCommandBus.super.doDispatch(command, callback);
+	}
+    }
+
+    private class Lane implements Runnable {
+	final BlockingQueue<Task<?>> queue;
+
+	Lane(int capacity) {
+	    queue = new ArrayBlockingQueue<Task<?>>(capacity);
+	}
+
+	public void run() {
+	    try {
+		Task<?> task = queue.take();
+		while (task.command != null) {
+		    handle(task);
+		    task = queue.take();
+		}
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    }
+	}
+    }
+
+    /**
+     * Represents the number of commands that passed a stage of dispatch and
+     * their total and maximum time in the stage.
+     */
+    public static class StageStatistics {
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong totalNanos = new AtomicLong();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	void record(long nanos) {
+	    count.incrementAndGet();
+	    totalNanos.addAndGet(nanos);
+	    long max = maxNanos.get();
+	    while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+		max = maxNanos.get();
+	    }
+	}
+
+	public long getCount() {
+	    return count.get();
+	}
+
+	public long getTotalNanos() {
+	    return totalNanos.get();
+	}
+
+	public long getMaxNanos() {
+	    return maxNanos.get();
+	}
+
+	public long getMeanNanos() {
+	    long n = count.get();
+	    return (n == 0) ? 0 : totalNanos.get() / n;
+	}
+    }
+}
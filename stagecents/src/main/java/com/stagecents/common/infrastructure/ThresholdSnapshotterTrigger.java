@@ -0,0 +1,241 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.common.infrastructure;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.axonframework.domain.DomainEventMessage;
+import org.axonframework.domain.DomainEventStream;
+import org.axonframework.eventsourcing.EventSourcedAggregateRoot;
+import org.axonframework.eventsourcing.Snapshotter;
+import org.axonframework.eventsourcing.SnapshotterTrigger;
+import org.axonframework.unitofwork.CurrentUnitOfWork;
+import org.axonframework.unitofwork.UnitOfWork;
+import org.axonframework.unitofwork.UnitOfWorkListenerAdapter;
+
+/**
+ * Schedules a snapshot of an aggregate when loading it replayed more events,
+ * or took longer, than the threshold for its type. The events read when the
+ * aggregate is loaded and the events appended when it is saved are counted
+ * together, and the time taken to read the events is measured, so that load
+ * time stays flat however long the aggregate's history grows.
+ * <p>
+ * Thresholds are configured per aggregate type identifier, e.g.
+ * "Structure", and default to <code>DEFAULT_EVENT_COUNT</code> events and no
+ * time limit. A threshold of zero disables the corresponding trigger. The
+ * snapshot is scheduled after the current unit of work commits.
+ * <p>
+ * The counts of the aggregates loaded in a unit of work are held as a
+ * resource of that unit of work, so that units of work loading the same
+ * aggregate at once count apart, and the counts are dropped with the unit of
+ * work. Events read outside a unit of work are not counted.
+ *
+ * @author Blair Caple
+ */
+public class ThresholdSnapshotterTrigger implements SnapshotterTrigger {
+
+    public static final int DEFAULT_EVENT_COUNT = 50;
+
+    private static final String RESOURCE_PREFIX =
+	    ThresholdSnapshotterTrigger.class.getName() + ".";
+
+    private Snapshotter snapshotter;
+    private int defaultEventCount = DEFAULT_EVENT_COUNT;
+    private long defaultReplayMillis;
+    private Map<String, Integer> eventCounts = new HashMap<String, Integer>();
+    private Map<String, Long> replayMillis = new HashMap<String, Long>();
+
+    public void setSnapshotter(Snapshotter snapshotter) {
+	this.snapshotter = snapshotter;
+    }
+
+    public void setDefaultEventCount(int defaultEventCount) {
+	this.defaultEventCount = defaultEventCount;
+    }
+
+    public void setDefaultReplayMillis(long defaultReplayMillis) {
+	this.defaultReplayMillis = defaultReplayMillis;
+    }
+
+    /**
+     * Sets the event count thresholds by aggregate type identifier.
+     */
+    public void setEventCounts(Map<String, Integer> eventCounts) {
+	this.eventCounts = new HashMap<String, Integer>(eventCounts);
+    }
+
+    /**
+     * Sets the replay time thresholds, in milliseconds, by aggregate type
+     * identifier.
+     */
+    public void setReplayMillis(Map<String, Long> replayMillis) {
+	this.replayMillis = new HashMap<String, Long>(replayMillis);
+    }
+
+    public DomainEventStream decorateForRead(String aggregateType,
+	    Object aggregateIdentifier, DomainEventStream eventStream) {
+	Map<Object, Replay> replays = getReplays(aggregateType);
+	if (replays == null) {
+	    return eventStream;
+	}
+	Replay replay = new Replay();
+	replays.put(aggregateIdentifier, replay);
+	return new CountingEventStream(eventStream, replay);
+    }
+
+    public DomainEventStream decorateForAppend(String aggregateType,
+	    EventSourcedAggregateRoot aggregate,
+	    DomainEventStream eventStream) {
+	Object aggregateIdentifier = aggregate.getIdentifier();
+	Map<Object, Replay> replays = getReplays(aggregateType);
+	Replay replay = (replays == null) ? null : replays
+		.remove(aggregateIdentifier);
+	if (replay == null) {
+	    replay = new Replay();
+	}
+	return new TriggeringEventStream(aggregateType, aggregateIdentifier,
+		eventStream, replay);
+    }
+
+    /**
+     * Returns the counts of the aggregates of the given type loaded in the
+     * current unit of work, by aggregate identifier, or null if no unit of
+     * work is active.
+     */
+    private Map<Object, Replay> getReplays(String aggregateType) {
+	if (!CurrentUnitOfWork.isStarted()) {
+	    return null;
+	}
+	UnitOfWork unitOfWork = CurrentUnitOfWork.get();
+	String name = RESOURCE_PREFIX + aggregateType;
+	Map<Object, Replay> result = unitOfWork.getResource(name);
+	if (result == null) {
+	    result = new HashMap<Object, Replay>();
+	    unitOfWork.attachResource(name, result);
+	}
+	return result;
+    }
+
+    private boolean isExceeded(String aggregateType, Replay replay) {
+	Integer count = eventCounts.get(aggregateType);
+	int maxEvents = (count == null) ? defaultEventCount : count;
+	if (maxEvents > 0 && replay.events > maxEvents) {
+	    return true;
+	}
+	Long millis = replayMillis.get(aggregateType);
+	long maxMillis = (millis == null) ? defaultReplayMillis : millis;
+	return maxMillis > 0
+		&& replay.nanos > TimeUnit.MILLISECONDS.toNanos(maxMillis);
+    }
+
+    private void scheduleSnapshot(final String aggregateType,
+	    final Object aggregateIdentifier) {
+	if (CurrentUnitOfWork.isStarted()) {
+	    CurrentUnitOfWork.get().registerListener(
+		    new UnitOfWorkListenerAdapter() {
+			@Override
+			public void afterCommit(UnitOfWork unitOfWork) {
+			    snapshotter.scheduleSnapshot(aggregateType,
+				    aggregateIdentifier);
+			}
+		    });
+	} else {
+	    snapshotter.scheduleSnapshot(aggregateType, aggregateIdentifier);
+	}
+    }
+
+    /**
+     * Represents the number of events of an aggregate read and appended in
+     * one unit of work, and the time taken to read them.
+     */
+    private static class Replay {
+	int events;
+	long nanos;
+    }
+
+    private static class CountingEventStream implements DomainEventStream {
+	private final DomainEventStream delegate;
+	private final Replay replay;
+	private final long start = System.nanoTime();
+
+	CountingEventStream(DomainEventStream delegate, Replay replay) {
+	    this.delegate = delegate;
+	    this.replay = replay;
+	}
+
+	public boolean hasNext() {
+	    boolean result = delegate.hasNext();
+	    if (!result) {
+		replay.nanos = System.nanoTime() - start;
+	    }
+	    return result;
+	}
+
+	public DomainEventMessage next() {
+	    replay.events++;
+	    return delegate.next();
+	}
+
+	public DomainEventMessage peek() {
+	    return delegate.peek();
+	}
+    }
+
+    private class TriggeringEventStream implements DomainEventStream {
+	private final String aggregateType;
+	private final Object aggregateIdentifier;
+	private final DomainEventStream delegate;
+	private final Replay replay;
+	private boolean checked;
+
+	TriggeringEventStream(String aggregateType,
+		Object aggregateIdentifier, DomainEventStream delegate,
+		Replay replay) {
+	    this.aggregateType = aggregateType;
+	    this.aggregateIdentifier = aggregateIdentifier;
+	    this.delegate = delegate;
+	    this.replay = replay;
+	}
+
+	public boolean hasNext() {
+	    boolean result = delegate.hasNext();
+	    if (!result && !checked) {
+		checked = true;
+		if (isExceeded(aggregateType, replay)) {
+		    scheduleSnapshot(aggregateType, aggregateIdentifier);
+		}
+	    }
+	    return result;
+	}
+
+	public DomainEventMessage next() {
+	    replay.events++;
+	    return delegate.next();
+	}
+
+	public DomainEventMessage peek() {
+	    return delegate.peek();
+	}
+    }
+}
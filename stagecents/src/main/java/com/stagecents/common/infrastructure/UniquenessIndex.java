@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.common.infrastructure;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.axonframework.unitofwork.CurrentUnitOfWork;
+import org.axonframework.unitofwork.UnitOfWork;
+import org.axonframework.unitofwork.UnitOfWorkListenerAdapter;
+
+/**
+ * Represents the names that must be unique, by type of name, e.g. the name of
+ * a structure, and by the scope within which the name must be unique, e.g. a
+ * business unit, with the identifier of the object that owns each name.
+ * <p>
+ * A command handler reserves a name before it creates or renames the object,
+ * so that of two concurrent commands for the same name only one succeeds. A
+ * reservation made in a unit of work is released if the unit of work rolls
+ * back. Names are registered from the creation and update events, so that the
+ * index is rebuilt when the event store is replayed. Every operation takes
+ * constant time and needs no database round trip.
+ *
+ * @author Blair Caple
+ */
+public class UniquenessIndex {
+
+    private final ConcurrentMap<Key, String> owners =
+	    new ConcurrentHashMap<Key, String>();
+
+    /**
+     * Reserves the given name for the given owner. Returns true if the name
+     * was free or is already the owner's, false if another object owns it.
+     *
+     * @param type The type of the name.
+     * @param scope The scope within which the name must be unique, or null if
+     *            it must be unique across all objects of the type.
+     * @param name The name to reserve.
+     * @param owner The identifier of the object that takes the name.
+     * @return True if the name is reserved for the owner, false otherwise.
+     */
+    public boolean reserve(String type, Object scope, String name,
+	    Object owner) {
+	final Key key = new Key(type, scope, name);
+	final String value = owner.toString();
+	String current = owners.putIfAbsent(key, value);
+	if (current != null) {
+	    return current.equals(value);
+	}
+	if (CurrentUnitOfWork.isStarted()) {
+	    CurrentUnitOfWork.get().registerListener(
+		    new UnitOfWorkListenerAdapter() {
+			@Override
+			public void onRollback(UnitOfWork unitOfWork,
+				Throwable failureCause) {
+			    owners.remove(key, value);
+			}
+		    });
+	}
+	return true;
+    }
+
+    /**
+     * Returns true if the given name is free or is the given owner's, false
+     * otherwise.
+     */
+    public boolean isUnique(String type, Object scope, String name,
+	    Object owner) {
+	String current = owners.get(new Key(type, scope, name));
+	return current == null || current.equals(owner.toString());
+    }
+
+    /**
+     * Registers the given name as the given owner's, replacing any previous
+     * owner.
+     */
+    public void register(String type, Object scope, String name, Object owner) {
+	owners.put(new Key(type, scope, name), owner.toString());
+    }
+
+    /**
+     * Releases the given name if it is the given owner's.
+     */
+    public void release(String type, Object scope, String name, Object owner) {
+	owners.remove(new Key(type, scope, name), owner.toString());
+    }
+
+    /**
+     * Releases all names of the given type.
+     */
+    public void clear(String type) {
+	Iterator<Key> iter = owners.keySet().iterator();
+	while (iter.hasNext()) {
+	    if (iter.next().type.equals(type)) {
+		iter.remove();
+	    }
+	}
+    }
+
+    private static final class Key {
+	final String type;
+	final String scope;
+	final String name;
+
+	Key(String type, Object scope, String name) {
+	    this.type = type;
+	    this.scope = (scope == null) ? null : scope.toString();
+	    this.name = name;
+	}
+
+	@Override
+	public int hashCode() {
+	    int result = type.hashCode();
+	    result = 31 * result + ((scope == null) ? 0 : scope.hashCode());
+	    result = 31 * result + ((name == null) ? 0 : name.hashCode());
+	    return result;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+	    if (o == this) {
+		return true;
+	    }
+	    if (!(o instanceof Key)) {
+		return false;
+	    }
+	    Key other = (Key) o;
+	    return type.equals(other.type)
+		    && ((scope == null) ? other.scope == null : scope
+			    .equals(other.scope))
+		    && ((name == null) ? other.name == null : name
+			    .equals(other.name));
+	}
+    }
+}
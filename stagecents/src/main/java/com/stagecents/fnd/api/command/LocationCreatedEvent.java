@@ -24,11 +24,13 @@ package com.stagecents.fnd.api.command;
 import org.joda.time.LocalDate;
 
 import com.stagecents.common.Region;
+import com.stagecents.fnd.domain.BusinessUnitId;
 import com.stagecents.fnd.domain.LocationId;
 
 public class LocationCreatedEvent {
 
     private final LocationId locationId;
+    private final BusinessUnitId businessUnitId;
     private final String name;
     private final String description;
     private final LocalDate inactiveDate;
@@ -39,11 +41,12 @@ public class LocationCreatedEvent {
     private final Region region;
     private final String postalCode;
 
-    public LocationCreatedEvent(LocationId locationId, String name,
-	    String description, LocalDate inactiveDate, String street1,
-	    String street2, String street3, String city, Region region,
-	    String postalCode) {
+    public LocationCreatedEvent(LocationId locationId,
+	    BusinessUnitId businessUnitId, String name, String description,
+	    LocalDate inactiveDate, String street1, String street2,
+	    String street3, String city, Region region, String postalCode) {
 	this.locationId = locationId;
+	this.businessUnitId = businessUnitId;
 	this.name = name;
 	this.description = description;
 	this.inactiveDate = inactiveDate;
@@ -59,6 +62,10 @@ public class LocationCreatedEvent {
 	return locationId;
     }
 
+    public BusinessUnitId getBusinessUnitId() {
+	return businessUnitId;
+    }
+
     public String getName() {
 	return name;
     }
@@ -29,11 +29,13 @@ import org.axonframework.repository.Repository;
 import org.joda.time.LocalDate;
 import org.springframework.stereotype.Component;
 
+import com.stagecents.common.infrastructure.UniquenessIndex;
 import com.stagecents.fnd.api.command.CreateLocationCommand;
 import com.stagecents.fnd.api.command.DeleteLocationCommand;
 import com.stagecents.fnd.domain.BusinessUnitId;
 import com.stagecents.fnd.domain.Location;
 import com.stagecents.fnd.domain.LocationId;
+import com.stagecents.fnd.query.UniqueNameListener;
 import com.stagecents.fnd.query.repository.LocationRepository;
 
 @Component
@@ -41,6 +43,7 @@ public class LocationCommandHandler implements LocationService {
 
     private Repository<Location> repository;
     private LocationRepository locationRepository;
+    private UniquenessIndex uniquenessIndex;
 
     @Resource(name = "locationJpaRepository")
     public void setRepository(Repository<Location> repository) {
@@ -52,6 +55,11 @@ public class LocationCommandHandler implements LocationService {
 	this.locationRepository = locationRepository;
     }
 
+    @Resource(name = "uniquenessIndex")
+    public void setUniquenessIndex(UniquenessIndex uniquenessIndex) {
+	this.uniquenessIndex = uniquenessIndex;
+    }
+
     @CommandHandler
     public void createLocation(CreateLocationCommand command) {
 	checkUniqueName(command.getLocationId(), command.getName(),
@@ -71,9 +79,9 @@ public class LocationCommandHandler implements LocationService {
     }
 
     /**
-     * Checks that the given name is unique within the given business unit. If
-     * the name is not unique, an IllegalArgumentExcption is raised and
-     * processing terminates.
+     * Checks that the given name is unique within the given business unit and
+     * reserves it for the location. If the name is not unique, an
+     * IllegalArgumentExcption is raised and processing terminates.
      * 
      * @param locationId The identifier of the location to check.
      * @param name The location name to check for uniqueness.
@@ -81,9 +89,10 @@ public class LocationCommandHandler implements LocationService {
      */
     private void checkUniqueName(LocationId locationId, String name,
 	    BusinessUnitId businessUnitId) {
-	Assert.notNull(locationRepository, "null repository");
-	boolean isUnique = locationRepository.checkUniqueName(locationId, name,
-		businessUnitId);
+	Assert.notNull(uniquenessIndex, "null index");
+	boolean isUnique = uniquenessIndex.reserve(
+		UniqueNameListener.LOCATION_NAME, businessUnitId, name,
+		locationId);
 	if (!isUnique) {
 	    throw new IllegalArgumentException(
 		    "duplicate name within the business unit");
@@ -28,6 +28,7 @@ import org.axonframework.repository.Repository;
 import org.joda.time.LocalDate;
 import org.springframework.stereotype.Component;
 
+import com.stagecents.common.infrastructure.UniquenessIndex;
 import com.stagecents.fnd.api.command.AuthenticateUserCommand;
 import com.stagecents.fnd.api.command.ChangeUserCredentialsCommand;
 import com.stagecents.fnd.api.command.ChangeUserEmailCommand;
@@ -38,6 +39,8 @@ import com.stagecents.fnd.api.command.InvalidUserEndDateException;
 import com.stagecents.fnd.api.command.InvalidUsernameException;
 import com.stagecents.fnd.api.command.UsernameNotUniqueException;
 import com.stagecents.fnd.domain.User;
+import com.stagecents.fnd.domain.UserId;
+import com.stagecents.fnd.query.UniqueNameListener;
 import com.stagecents.fnd.query.repository.UserRepository;
 
 /**
@@ -50,6 +53,7 @@ public class UserCommandHandler implements UserService {
 
     private Repository<User> repository;
     private UserRepository userRepository;
+    private UniquenessIndex uniquenessIndex;
 
     @Resource(name = "userJpaRepository")
     public void setRepository(Repository<User> repository) {
@@ -61,10 +65,15 @@ public class UserCommandHandler implements UserService {
 	this.userRepository = userRepository;
     }
 
+    @Resource(name = "uniquenessIndex")
+    public void setUniquenessIndex(UniquenessIndex uniquenessIndex) {
+	this.uniquenessIndex = uniquenessIndex;
+    }
+
     @CommandHandler
     public void createUser(CreateUserCommand command) {
 	validateUsername(command.getUsername());
-	validateUsernameUnique(command.getUsername());
+	validateUsernameUnique(command.getUserId(), command.getUsername());
 
 	User user = new User(command);
 	repository.add(user);
@@ -125,9 +134,14 @@ public class UserCommandHandler implements UserService {
 	}
     }
 
-    private void validateUsernameUnique(String username) {
-	User user = userRepository.findByUsername(username);
-	if (user != null) {
+    /**
+     * Reserves the given username for the user, or raises a
+     * UsernameNotUniqueException if another user has the username. The
+     * username is released if the command fails.
+     */
+    private void validateUsernameUnique(UserId userId, String username) {
+	if (!uniquenessIndex.reserve(UniqueNameListener.USERNAME, null,
+		username, userId)) {
 	    throw new UsernameNotUniqueException(username);
 	}
     }
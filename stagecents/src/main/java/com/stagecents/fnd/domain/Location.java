@@ -65,10 +65,11 @@ public class Location extends AbstractAnnotatedAggregateRoot<LocationId> {
 
     public Location(CreateLocationCommand command) {
 	apply(new LocationCreatedEvent(command.getLocationId(),
-		command.getName(), command.getDescription(),
-		command.getInactiveDate(), command.getStreet1(),
-		command.getStreet2(), command.getStreet3(), command.getCity(),
-		command.getRegion(), command.getPostalCode()));
+		command.getBusinessUnitId(), command.getName(),
+		command.getDescription(), command.getInactiveDate(),
+		command.getStreet1(), command.getStreet2(),
+		command.getStreet3(), command.getCity(), command.getRegion(),
+		command.getPostalCode()));
     }
 
     @Override
@@ -95,6 +96,7 @@ public class Location extends AbstractAnnotatedAggregateRoot<LocationId> {
     @EventHandler
     public void handleCreate(LocationCreatedEvent event) {
 	locationId = event.getLocationId();
+	businessUnitId = event.getBusinessUnitId();
 	name = event.getName();
 	description = event.getDescription();
 	inactiveDate = event.getInactiveDate();
@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.fnd.query;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.axonframework.eventhandling.annotation.EventHandler;
+import org.axonframework.eventhandling.replay.ReplayAware;
+
+import com.stagecents.common.infrastructure.UniquenessIndex;
+import com.stagecents.fnd.api.command.LocationCreatedEvent;
+import com.stagecents.fnd.api.command.LocationDeletedEvent;
+import com.stagecents.fnd.api.command.UserCreatedEvent;
+import com.stagecents.fnd.domain.BusinessUnitId;
+import com.stagecents.fnd.domain.Location;
+import com.stagecents.fnd.domain.LocationId;
+import com.stagecents.fnd.query.repository.LocationRepository;
+
+/**
+ * Registers usernames, and the names of locations within their business unit,
+ * in the uniqueness index from the creation events, and releases the name of
+ * a location when it is deleted.
+ * <p>
+ * Location creation events stored before the event carried the business unit
+ * are replayed with a null business unit. The business unit of such a
+ * location is read from the location repository, if one is set.
+ *
+ * @author Blair Caple
+ */
+public class UniqueNameListener implements ReplayAware {
+
+    public static final String USERNAME = "User.username";
+    public static final String LOCATION_NAME = "Location.name";
+
+    private UniquenessIndex uniquenessIndex;
+    private LocationRepository locationRepository;
+
+    // The business unit and name of each location, by location.
+    private final Map<LocationId, LocationName> locations =
+	    new ConcurrentHashMap<LocationId, LocationName>();
+
+    public void setUniquenessIndex(UniquenessIndex uniquenessIndex) {
+	this.uniquenessIndex = uniquenessIndex;
+    }
+
+    public void setLocationRepository(LocationRepository locationRepository) {
+	this.locationRepository = locationRepository;
+    }
+
+    @EventHandler
+    public void handle(UserCreatedEvent event) {
+	uniquenessIndex.register(USERNAME, null, event.getUsername(),
+		event.getUserId());
+    }
+
+    @EventHandler
+    public void handle(LocationCreatedEvent event) {
+	BusinessUnitId businessUnitId = event.getBusinessUnitId();
+	if (businessUnitId == null && locationRepository != null) {
+	    Location location = locationRepository.findById(
+		    event.getLocationId(), false);
+	    if (location != null) {
+		businessUnitId = location.getBusinessUnit();
+	    }
+	}
+	locations.put(event.getLocationId(), new LocationName(businessUnitId,
+		event.getName()));
+	uniquenessIndex.register(LOCATION_NAME, businessUnitId,
+		event.getName(), event.getLocationId());
+    }
+
+    @EventHandler
+    public void handle(LocationDeletedEvent event) {
+	LocationName created = locations.remove(event.getLocationId());
+	if (created != null) {
+	    uniquenessIndex.release(LOCATION_NAME, created.businessUnitId,
+		    created.name, event.getLocationId());
+	}
+    }
+
+    public void beforeReplay() {
+	locations.clear();
+	uniquenessIndex.clear(USERNAME);
+	uniquenessIndex.clear(LOCATION_NAME);
+    }
+
+    public void afterReplay() {
+    }
+
+    public void onReplayFailed(Throwable cause) {
+    }
+
+    /**
+     * Represents the name of a location within its business unit.
+     */
+    private static class LocationName {
+	final BusinessUnitId businessUnitId;
+	final String name;
+
+	LocationName(BusinessUnitId businessUnitId, String name) {
+	    this.businessUnitId = businessUnitId;
+	    this.name = name;
+	}
+    }
+}
@@ -21,8 +21,6 @@
  */
 package com.stagecents.fnd.query.repository.hibernate;
 
-import java.util.List;
-
 import org.hibernate.Query;
 
 import com.stagecents.common.hibernate.BaseJpaRepository;
@@ -36,15 +34,14 @@ public class LocationQueryRepository extends
 
     public boolean checkUniqueName(LocationId locationId, String name,
 	    BusinessUnitId businessUnitId) {
-	String hql = "from Location loc where loc.name = :name "
+	String hql = "select count(*) from Location loc where loc.name = :name "
 		+ "and loc.locationId != :locationId "
-		+ "and (loc.businessUnit.businessUnitId != :businessUnitId)";
+		+ "and loc.businessUnitId = :businessUnitId";
 	Query q = getSession().createQuery(hql);
 	q.setString("name", name);
 	q.setString("locationId", locationId.getIdentifier());
 	q.setString("businessUnitId", businessUnitId.getIdentifier());
-	List<Location> result = q.list();
-	return result.isEmpty();
+	return ((Long) q.uniqueResult()) == 0;
     }
 
     @Override
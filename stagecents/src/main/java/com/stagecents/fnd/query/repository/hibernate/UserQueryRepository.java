@@ -57,8 +57,10 @@ public class UserQueryRepository extends BaseJpaRepository<User, UserId>
     }
 
     public boolean isUsernameUnique(String username) {
-	User user = findByUsername(username);
-	return (user == null) ? true : false;
+	String hql = "select count(*) from User u where u.username = :username";
+	Query q = getSession().createQuery(hql);
+	q.setString("username", username);
+	return ((Long) q.uniqueResult()) == 0;
     }
 
 }
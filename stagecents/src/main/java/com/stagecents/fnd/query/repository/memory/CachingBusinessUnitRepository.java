@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.fnd.query.repository.memory;
+
+import com.stagecents.common.infrastructure.CachingRepository;
+import com.stagecents.common.infrastructure.ReferenceCache;
+import com.stagecents.fnd.domain.BusinessUnit;
+import com.stagecents.fnd.domain.BusinessUnitId;
+import com.stagecents.fnd.query.repository.BusinessUnitRepository;
+
+/**
+ * Reads business units through a cache in front of the business unit
+ * repository.
+ *
+ * @author Blair Caple
+ */
+public class CachingBusinessUnitRepository extends
+	CachingRepository<BusinessUnit, BusinessUnitId> implements
+	BusinessUnitRepository {
+
+    private final BusinessUnitRepository delegate;
+
+    public CachingBusinessUnitRepository(BusinessUnitRepository delegate,
+	    ReferenceCache<BusinessUnitId, BusinessUnit> cache) {
+	super(delegate, cache, BusinessUnitId.class);
+	this.delegate = delegate;
+    }
+
+    public boolean uniqueName(BusinessUnitId parentId,
+	    BusinessUnitId childId, String name) {
+	return delegate.uniqueName(parentId, childId, name);
+    }
+}
@@ -26,13 +26,38 @@ import com.stagecents.common.AggregateId;
 public class ChartOfAccountsGeneratedEvent {
 
     private final AggregateId structureId;
+    private final long size;
+    private final boolean streamed;
 
     public ChartOfAccountsGeneratedEvent(AggregateId structureId) {
+	this(structureId, 0, false);
+    }
+
+    /**
+     * Creates a new event.
+     *
+     * @param structureId The identifier of the structure.
+     * @param size The number of account codes in the chart of accounts.
+     * @param streamed True if the account codes were written to a sink rather
+     *            than held by the structure.
+     */
+    public ChartOfAccountsGeneratedEvent(AggregateId structureId, long size,
+	    boolean streamed) {
 	this.structureId = structureId;
+	this.size = size;
+	this.streamed = streamed;
     }
 
     public AggregateId getStructureId() {
 	return structureId;
     }
 
+    public long getSize() {
+	return size;
+    }
+
+    public boolean isStreamed() {
+	return streamed;
+    }
+
 }
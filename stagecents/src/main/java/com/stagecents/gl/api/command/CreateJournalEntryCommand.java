@@ -21,10 +21,13 @@
  */
 package com.stagecents.gl.api.command;
 
+import org.axonframework.commandhandling.annotation.TargetAggregateIdentifier;
+
 import com.stagecents.gl.domain.JournalEntryId;
 
 public class CreateJournalEntryCommand {
 
+    @TargetAggregateIdentifier
     private final JournalEntryId journalId;
     private final JournalHeaderDTO journalHeaderDTO;
 
@@ -24,18 +24,37 @@ package com.stagecents.gl.api.command;
 import org.axonframework.commandhandling.annotation.TargetAggregateIdentifier;
 
 import com.stagecents.common.AggregateId;
+import com.stagecents.gl.api.service.AccountCodeSink;
 
 public class GenerateChartOfAccountsCommand {
 
     @TargetAggregateIdentifier
     private final AggregateId structureId;
+    private final transient AccountCodeSink sink;
 
     public GenerateChartOfAccountsCommand(AggregateId structureId) {
+	this(structureId, null);
+    }
+
+    /**
+     * Creates a command to generate a chart of accounts that is written to the
+     * given sink in bounded chunks rather than held by the structure.
+     *
+     * @param structureId The identifier of the structure.
+     * @param sink The sink to which to write the account codes.
+     */
+    public GenerateChartOfAccountsCommand(AggregateId structureId,
+	    AccountCodeSink sink) {
 	this.structureId = structureId;
+	this.sink = sink;
     }
 
     public AggregateId getStructureId() {
 	return structureId;
     }
 
+    public AccountCodeSink getSink() {
+	return sink;
+    }
+
 }
@@ -46,16 +46,17 @@ public class JournalHeaderDTO {
     private LocalDate effectiveDate;
     private LocalDate postedDate;
     private String description;
-    private float controlTotal;
-    private float runningTotalDebit;
-    private float runningTotalCredit;
+    // Totals are held in minor units of the currency.
+    private long controlTotal;
+    private long runningTotalDebit;
+    private long runningTotalCredit;
     private List<JournalLineDTO> lines = new ArrayList<JournalLineDTO>();
 
     public JournalHeaderDTO(JournalEntryId journalId, Ledger ledger,
 	    JournalEntryCategory category, Period period, String name,
 	    Currency currency, Status status, LocalDate effectiveDate,
-	    LocalDate postedDate, String description, float controlTotal,
-	    float runningTotalDebit, float runningTotalCredit,
+	    LocalDate postedDate, String description, long controlTotal,
+	    long runningTotalDebit, long runningTotalCredit,
 	    List<JournalLineDTO> lines) {
 	this.journalId = journalId;
 	this.ledger = ledger;
@@ -113,15 +114,15 @@ public class JournalHeaderDTO {
 	return description;
     }
 
-    public float getControlTotal() {
+    public long getControlTotal() {
 	return controlTotal;
     }
 
-    public float getRunningTotalDebit() {
+    public long getRunningTotalDebit() {
 	return runningTotalDebit;
     }
 
-    public float getRunningTotalCredit() {
+    public long getRunningTotalCredit() {
 	return runningTotalCredit;
     }
 
@@ -28,13 +28,14 @@ public class JournalLineDTO {
     private String journalLineId;
     private JournalHeaderDTO hournalHeaderDTO;
     private AccountCode accountCode;
-    private float debit;
-    private float credit;
+    // Amounts are held in minor units of the currency, e.g. cents.
+    private long debit;
+    private long credit;
     private String description;
 
     public JournalLineDTO(String journalLineId,
 	    JournalHeaderDTO hournalHeaderDTO, 
-	    AccountCode accountCode, float debit, float credit,
+	    AccountCode accountCode, long debit, long credit,
 	    String description) {
 	this.journalLineId = journalLineId;
 	this.hournalHeaderDTO = hournalHeaderDTO;
@@ -56,11 +57,11 @@ public class JournalLineDTO {
 	return accountCode;
     }
 
-    public float getDebit() {
+    public long getDebit() {
 	return debit;
     }
 
-    public float getCredit() {
+    public long getCredit() {
 	return credit;
     }
 
@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.gl.api.command;
+
+import java.util.List;
+
+import com.stagecents.gl.domain.JournalEntryId;
+import com.stagecents.gl.domain.LedgerId;
+
+/**
+ * Command to post a batch of journal entries of the given ledger in a single
+ * unit of work.
+ *
+ * @author Blair Caple
+ */
+public class PostJournalBatchCommand {
+
+    private final LedgerId ledgerId;
+    private final List<JournalEntryId> journalEntryIds;
+
+    public PostJournalBatchCommand(LedgerId ledgerId,
+	    List<JournalEntryId> journalEntryIds) {
+	this.ledgerId = ledgerId;
+	this.journalEntryIds = journalEntryIds;
+    }
+
+    public LedgerId getLedgerId() {
+	return ledgerId;
+    }
+
+    public List<JournalEntryId> getJournalEntryIds() {
+	return journalEntryIds;
+    }
+}
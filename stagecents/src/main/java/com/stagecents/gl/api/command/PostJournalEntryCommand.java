@@ -24,17 +24,25 @@ package com.stagecents.gl.api.command;
 import org.axonframework.commandhandling.annotation.TargetAggregateIdentifier;
 
 import com.stagecents.gl.domain.JournalEntryId;
+import com.stagecents.gl.domain.LedgerId;
 
 public class PostJournalEntryCommand {
 
     @TargetAggregateIdentifier
     private JournalEntryId journalEntryId;
+    private LedgerId ledgerId;
 
-    public PostJournalEntryCommand(JournalEntryId journalEntryId) {
+    public PostJournalEntryCommand(JournalEntryId journalEntryId,
+	    LedgerId ledgerId) {
 	this.journalEntryId = journalEntryId;
+	this.ledgerId = ledgerId;
     }
 
     public JournalEntryId getJournalEntryId() {
         return journalEntryId;
     }
+
+    public LedgerId getLedgerId() {
+	return ledgerId;
+    }
 }
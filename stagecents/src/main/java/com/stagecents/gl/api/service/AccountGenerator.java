@@ -25,22 +25,65 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.SortedSet;
+import java.util.Spliterator;
 import java.util.TreeSet;
-import java.util.Vector;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import com.stagecents.common.IdentifierFactory;
 import com.stagecents.gl.domain.AccountCode;
 import com.stagecents.gl.domain.AccountCodeComparator;
+import com.stagecents.gl.domain.AccountCodeIndex;
 import com.stagecents.gl.domain.AccountType;
 import com.stagecents.gl.domain.Segment;
 import com.stagecents.gl.domain.SegmentValue;
 import com.stagecents.gl.domain.Structure;
 
+/**
+ * Generates the account codes of a structure's chart of accounts, i.e. the
+ * cartesian product of all account segment values. Codes are not materialized
+ * up front. Each combination is addressed by an index from 0 to
+ * <code>size() - 1</code> and decoded on demand by mixed radix arithmetic, in
+ * which the last segment varies fastest. Codes may therefore be streamed, in
+ * parallel if need be, or written to an <code>AccountCodeSink</code> in
+ * bounded chunks.
+ * <p>
+ * Each code is encoded by its combination index within the structure's
+ * <code>AccountCodeIndex</code>, from which its value and name are formatted
+ * on demand. Account code identifiers are derived from the structure
+ * identifier and the code value, so that the same combination always yields
+ * the same code.
+ *
+ * @author Blair Caple
+ */
 public class AccountGenerator {
     Structure structure;
 
+    // Segment values indexed by segment and by position within the segment.
+    private final SegmentValue[][] values;
+    private final boolean[] naturalAccount;
+    private final long size;
+    private final AccountCodeIndex accountCodeIndex;
+
     public AccountGenerator(Structure structure) {
 	this.structure = structure;
+
+	int n = structure.getSegments().size();
+	values = new SegmentValue[n][];
+	naturalAccount = new boolean[n];
+	long product = (n == 0) ? 0 : 1;
+	int i = 0;
+	Iterator<Segment> iter = structure.getSegments().iterator();
+	while (iter.hasNext()) {
+	    Segment segment = iter.next();
+	    values[i] = segment.getSegmentValues().toArray(
+		    new SegmentValue[segment.getSegmentValues().size()]);
+	    naturalAccount[i] = segment.isNaturalAccountSegment();
+	    product *= values[i].length;
+	    i++;
+	}
+	size = product;
+	accountCodeIndex = structure.getAccountCodeIndex();
     }
 
     /**
@@ -49,77 +92,160 @@ public class AccountGenerator {
      * 
      * @return A sorted set of AccountCode objects representing the cartesian
      *         product of all account codes.
-     * @see stackoverflow.com/questions/9591561/java-cartesian-product-of-
-     *      a-list-of-lists
      */
     public SortedSet<AccountCode> generate() {
-	int n = structure.getSegments().size();
-	int solutions = getNumCombinations();
-
 	SortedSet<AccountCode> res = new TreeSet<AccountCode>(
 		new AccountCodeComparator());
-	for (int i = 0; i < solutions; i++) {
-	    String accountCodeId = IdentifierFactory.getInstance()
-		    .generateIdentifier();
-	    StringBuilder sb = new StringBuilder();
-	    AccountType accountType = null;
-	    List<String> segmentValues = new ArrayList<String>(n);
-
-	    int j = 1;
-	    Iterator<Segment> iter = structure.getSegments().iterator();
-	    while (iter.hasNext()) {
-		Segment segment = iter.next();
-
-		// Convert set to list so we can access elements by index
-		Vector<SegmentValue> vector = segment
-			.getSegmentValuesAsVector();
-
-		// The modulo result is interpreted by the vector as an
-		// integer, and therefore is rounded down in cases where
-		// the result otherwise would be a floating point number.
-		SegmentValue sv = vector.get((i / j) % vector.size());
-
-		sb.append(sv.getDescription());
-		if (iter.hasNext()) {
-		    sb.append(".");
-		}
-		if (segment.isNaturalAccountSegment()) {
-		    accountType = sv.getAccountType();
-		}
-
-		// TODO Implement creation of account codes from a segment value
-		// that represents a range of values.
-		segmentValues.add(sv.getValue());
-
-		j = (j * vector.size());
-	    }
-
-	    String description = sb.toString();
-	    String value = concatenateValues(segmentValues);
-	    res.add(new AccountCode(accountCodeId, structure, accountType,
-		    description, value, segmentValues));
+	for (long i = 0; i < size; i++) {
+	    res.add(getAccountCode(i));
 	}
 	return res;
     }
-    
+
+    /**
+     * Writes every account code to the given sink in chunks of at most the
+     * given size. No more than one chunk of codes is held in memory at a time.
+     * 
+     * @param sink The sink to which to write the account codes.
+     * @param chunkSize The maximum number of account codes in a chunk.
+     * @return The number of account codes written.
+     */
+    public long generate(AccountCodeSink sink, int chunkSize) {
+	if (chunkSize < 1) {
+	    throw new IllegalArgumentException("invalid chunk size");
+	}
+	List<AccountCode> chunk = new ArrayList<AccountCode>(
+		(int) Math.min(chunkSize, size));
+	for (long i = 0; i < size; i++) {
+	    chunk.add(getAccountCode(i));
+	    if (chunk.size() == chunkSize) {
+		sink.write(chunk);
+		chunk.clear();
+	    }
+	}
+	if (!chunk.isEmpty()) {
+	    sink.write(chunk);
+	}
+	return size;
+    }
+
+    /**
+     * Returns the number of account code combinations.
+     * 
+     * @return The number of account code combinations.
+     */
+    public long size() {
+	return size;
+    }
+
     public int getNumCombinations() {
-	int n = 1;
-	Iterator<Segment> iter = structure.getSegments().iterator();
-	while (iter.hasNext()) {
-	    n *= iter.next().getSegmentValues().size();
+	if (size > Integer.MAX_VALUE) {
+	    throw new IllegalStateException("too many combinations");
+	}
+	return (int) size;
+    }
+
+    /**
+     * Returns the account code at the given index of the cartesian product.
+     * 
+     * @param index The index of the combination, from 0 to
+     *            <code>size() - 1</code>.
+     * @return The account code.
+     */
+    public AccountCode getAccountCode(long index) {
+	if (index < 0 || index >= size) {
+	    throw new IndexOutOfBoundsException("invalid combination index");
+	}
+	// Only the natural account value is decoded here. The code's value and
+	// name are formatted from the account code index on demand.
+	AccountType accountType = null;
+	long remainder = index;
+	for (int i = values.length - 1; i >= 0; i--) {
+	    int radix = values[i].length;
+	    if (naturalAccount[i]) {
+		accountType = values[i][(int) (remainder % radix)]
+			.getAccountType();
+	    }
+	    remainder /= radix;
 	}
-	return n;
+
+	// TODO Implement creation of account codes from a segment value that
+	// represents a range of values.
+	return new AccountCode(structure, accountCodeIndex, index, accountType);
     }
-    
-    private String concatenateValues(List<String> values) {
-	StringBuilder sb = new StringBuilder();
-	Iterator<String> iter = values.iterator();
-	while(iter.hasNext()) {
-	    sb.append(iter.next());
-	    if(iter.hasNext()) {
-		sb.append(".");
+
+    /**
+     * Returns a spliterator over all account codes in index order, which
+     * splits by index range.
+     * 
+     * @return A spliterator over all account codes.
+     */
+    public Spliterator<AccountCode> spliterator() {
+	return new AccountCodeSpliterator(this, 0, size);
+    }
+
+    /**
+     * Returns a stream of all account codes in index order.
+     * 
+     * @param parallel True to return a parallel stream.
+     * @return A stream of all account codes.
+     */
+    public Stream<AccountCode> stream(boolean parallel) {
+	return StreamSupport.stream(spliterator(), parallel);
+    }
+
+    /**
+     * Represents a spliterator over a range of combination indexes.
+     */
+    static class AccountCodeSpliterator implements Spliterator<AccountCode> {
+
+	private final AccountGenerator generator;
+	private long index;
+	private final long fence;
+
+	AccountCodeSpliterator(AccountGenerator generator, long origin,
+		long fence) {
+	    this.generator = generator;
+	    this.index = origin;
+	    this.fence = fence;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super AccountCode> action) {
+	    if (index < fence) {
+		action.accept(generator.getAccountCode(index++));
+		return true;
+	    }
+	    return false;
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super AccountCode> action) {
+	    while (index < fence) {
+		action.accept(generator.getAccountCode(index++));
+	    }
+	}
+
+	@Override
+	public Spliterator<AccountCode> trySplit() {
+	    long mid = (index + fence) >>> 1;
+	    if (mid <= index) {
+		return null;
 	    }
+	    Spliterator<AccountCode> prefix = new AccountCodeSpliterator(
+		    generator, index, mid);
+	    index = mid;
+	    return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+	    return fence - index;
+	}
+
+	@Override
+	public int characteristics() {
+	    return ORDERED | SIZED | SUBSIZED | DISTINCT | NONNULL | IMMUTABLE;
 	}
-	return sb.toString();
     }
 }
@@ -21,6 +21,9 @@
  */
 package com.stagecents.gl.api.service;
 
+import java.util.Arrays;
+import java.util.Comparator;
+
 import javax.annotation.Resource;
 
 import org.axonframework.commandhandling.annotation.CommandHandler;
@@ -29,26 +32,27 @@ import org.joda.time.LocalDate;
 import org.springframework.stereotype.Component;
 
 import com.stagecents.common.ValidationException;
+import com.stagecents.common.infrastructure.UniquenessIndex;
 import com.stagecents.gl.api.command.CreateCalendarCommand;
 import com.stagecents.gl.api.command.PeriodDTO;
 import com.stagecents.gl.domain.Calendar;
 import com.stagecents.gl.domain.CalendarId;
-import com.stagecents.gl.query.repository.CalendarRepository;
+import com.stagecents.gl.query.UniqueNameListener;
 
 @Component
 public class CalendarCommandHandler implements CalendarService {
 
     private Repository<Calendar> repository;
-    private CalendarRepository calendarRepository;
+    private UniquenessIndex uniquenessIndex;
 
     @Resource(name = "calendarJpaRepository")
     public void setRepository(Repository<Calendar> repository) {
 	this.repository = repository;
     }
 
-    @Resource(name = "calendarQueryRepository")
-    public void setCalendarRepository(CalendarRepository calendarRepository) {
-	this.calendarRepository = calendarRepository;
+    @Resource(name = "uniquenessIndex")
+    public void setUniquenessIndex(UniquenessIndex uniquenessIndex) {
+	this.uniquenessIndex = uniquenessIndex;
     }
 
     @CommandHandler
@@ -57,49 +61,61 @@ public class CalendarCommandHandler implements CalendarService {
 	checkUniqueName(command.getCalendarId(), command.getCalendatDTO()
 		.getName());
 
-	// Period validation
+	// Period validation. The checks of dates run over a copy of the
+	// periods sorted by start date, as the calendar's period index holds
+	// them, so that validation takes O(n log n) time.
 	PeriodDTO[] a = new PeriodDTO[command.getCalendatDTO().getPeriods()
 		.size()];
 	PeriodDTO[] periods = command.getCalendatDTO().getPeriods().toArray(a);
-	LocalDate yearStartDate = getYearStartDate(periods);
-	for (int i = 0; i < periods.length; i++) {
-	    // 1. Verify that the period number is unique within the calendar.
-	    checkUniquePeriodNumber(periods, i);
+	PeriodDTO[] sorted = periods.clone();
+	Arrays.sort(sorted, new StartDateComparator());
 
-	    // 2. Period number range check.
-	    checkPeriodNumRange(periods[i]);
+	// 1. Verify that the period numbers are unique within the calendar.
+	checkUniquePeriodNumbers(periods);
 
-	    // 3. If this is not an adjusting period, then verify that this
-	    // period does not overlap with any other periods.
-	    if (!(periods[i].isAdjustmentPeriod())
-		    && overlappingPeriod(periods, i)) {
-		throw new ValidationException("period date overlap");
-	    }
+	// 2. Period number and date range checks.
+	for (int i = 0; i < periods.length; i++) {
+	    checkPeriodNumRange(periods[i]);
+	    checkPeriodDates(periods[i]);
+	}
 
-	    // 4. Check for gaps
-	    checkCalendarGap(periods);
+	// 3. Verify that the periods that are not adjusting periods neither
+	// overlap nor leave gaps.
+	checkOverlapsAndGaps(sorted);
 
-	    // 5. Set year start date
-	    command.getCalendatDTO().getPeriods().get(i)
-		    .setYearStartDate(yearStartDate);
+	// 4. Set year start date
+	if (sorted.length > 0) {
+	    LocalDate yearStartDate = sorted[0].getStartDate();
+	    for (int i = 0; i < periods.length; i++) {
+		periods[i].setYearStartDate(yearStartDate);
+	    }
 	}
 
 	Calendar calendar = new Calendar(command.getCalendatDTO());
 	repository.add(calendar);
     }
 
+    /**
+     * Reserves the given name for the calendar, or raises a
+     * ValidationException if another calendar has the name. The name is
+     * released if the command fails.
+     */
     private void checkUniqueName(CalendarId calendarId, String name) {
-	boolean isUnique = calendarRepository.checkUnique(calendarId, name);
+	boolean isUnique = uniquenessIndex.reserve(
+		UniqueNameListener.CALENDAR_NAME, null, name, calendarId);
 	if (!isUnique) {
 	    throw new ValidationException("duplicate calendar name");
 	}
     }
 
-    private void checkUniquePeriodNumber(PeriodDTO[] periods, int index) {
-	PeriodDTO period = periods[index];
+    private void checkUniquePeriodNumbers(PeriodDTO[] periods) {
+	int[] numbers = new int[periods.length];
 	for (int i = 0; i < periods.length; i++) {
-	    if ((i != index)
-		    && (periods[i].getPeriodNum() == period.getPeriodNum())) {
+	    numbers[i] = periods[i].getPeriodNum();
+	}
+	Arrays.sort(numbers);
+	for (int i = 1; i < numbers.length; i++) {
+	    if (numbers[i] == numbers[i - 1]) {
 		throw new ValidationException("duplicate period number");
 	    }
 	}
@@ -113,54 +129,40 @@ public class CalendarCommandHandler implements CalendarService {
 	}
     }
 
+    private void checkPeriodDates(PeriodDTO period) {
+	if (period.getEndDate().isBefore(period.getStartDate())) {
+	    throw new ValidationException("period ends before it starts");
+	}
+    }
+
     /**
-     * Returns true if the given period start and end dates overlap with some
-     * other period that is not an adjustment period.
+     * Verifies that each period that is not an adjustment period starts on
+     * the day after the previous one ends.
      * 
-     * @param periods The array of periods that make up the calendar.
-     * @param index The index number of the given period within the array.
-     * @return True if the given period start and end dates overlap with some
-     *         other period that is not an adjustment period.
+     * @param sorted The periods of the calendar sorted by start date.
      */
-    private boolean overlappingPeriod(PeriodDTO[] periods, int index) {
-	LocalDate startDate = periods[index].getStartDate();
-	LocalDate endDate = periods[index].getEndDate();
-	for (int i = 0; i < periods.length; i++) {
-	    if (i != index && !(periods[i].isAdjustmentPeriod())) {
-		if (startDate.isBefore(periods[i].getStartDate())
-			&& endDate.isAfter(periods[i].getEndDate())) {
-		    return true;
-		}
+    private void checkOverlapsAndGaps(PeriodDTO[] sorted) {
+	LocalDate end = null;
+	for (int i = 0; i < sorted.length; i++) {
+	    if (sorted[i].isAdjustmentPeriod()) {
+		continue;
 	    }
-	}
-	return false;
-    }
-
-    private LocalDate getYearStartDate(PeriodDTO[] periods) {
-	LocalDate result = new LocalDate(Long.MAX_VALUE);
-	for (int i = 0; i < periods.length; i++) {
-	    LocalDate startDate = periods[i].getStartDate();
-	    if (startDate.isBefore(result)) {
-		result = startDate;
+	    LocalDate start = sorted[i].getStartDate();
+	    if (end != null && !start.isAfter(end)) {
+		throw new ValidationException("period date overlap");
+	    }
+	    if (end != null && !end.plusDays(1).isEqual(start)) {
+		throw new ValidationException("gap found in calendar periods");
 	    }
+	    end = sorted[i].getEndDate();
 	}
-	return result;
     }
 
-    private void checkCalendarGap(PeriodDTO[] periods) {
-	boolean gapExists = false;
-	LocalDate end = periods[0].getEndDate();
-	for (int i = 1; i < periods.length; i++) {
-	    LocalDate start = periods[i].getStartDate();
-	    if (!(end.plusDays(1).isEqual(start))
-		    && !(periods[i].isAdjustmentPeriod())) {
-		gapExists = true;
-		break;
-	    }
-	    end = periods[i].getEndDate();
-	}
-	if (gapExists) {
-	    throw new ValidationException("gap found in calendar periods");
+    private static class StartDateComparator implements Comparator<PeriodDTO> {
+
+	@Override
+	public int compare(PeriodDTO o1, PeriodDTO o2) {
+	    return o1.getStartDate().compareTo(o2.getStartDate());
 	}
     }
 }
@@ -21,14 +21,25 @@
  */
 package com.stagecents.gl.api.service;
 
+import java.util.Iterator;
+import java.util.List;
+
 import javax.annotation.Resource;
 
+import org.axonframework.commandhandling.annotation.CommandHandler;
 import org.axonframework.repository.Repository;
 import org.springframework.stereotype.Component;
 
 import com.stagecents.common.ValidationException;
 import com.stagecents.gl.api.command.CreateJournalEntryCommand;
+import com.stagecents.gl.api.command.PostJournalBatchCommand;
+import com.stagecents.gl.api.command.PostJournalEntryCommand;
+import com.stagecents.gl.domain.AccountBalance;
+import com.stagecents.gl.domain.JournalBatch;
 import com.stagecents.gl.domain.JournalEntry;
+import com.stagecents.gl.domain.JournalEntryId;
+import com.stagecents.gl.domain.LedgerId;
+import com.stagecents.gl.query.repository.AccountBalanceRepository;
 import com.stagecents.gl.query.repository.JournalRepository;
 
 @Component
@@ -36,6 +47,7 @@ public class JournalCommandHandler implements JournalService {
 
     private Repository<JournalEntry> repository;
     private JournalRepository journalRepository;
+    private AccountBalanceRepository accountBalanceRepository;
 
     @Resource(name = "journalJpaRepository")
     public void setRepository(Repository<JournalEntry> repository) {
@@ -47,7 +59,14 @@ public class JournalCommandHandler implements JournalService {
 	this.journalRepository = journalRepository;
     }
 
+    @Resource(name = "accountBalanceQueryRepository")
+    public void setAccountBalanceRepository(
+	    AccountBalanceRepository accountBalanceRepository) {
+	this.accountBalanceRepository = accountBalanceRepository;
+    }
+
     @Override
+    @CommandHandler
     public void createJournalEntry(CreateJournalEntryCommand command) {
 	// 1 Make sure the journal has at least two lined
 	int numLines = command.getJournalHeaderDTO().getLines().size();
@@ -60,4 +79,51 @@ public class JournalCommandHandler implements JournalService {
 	repository.add(journalEntry);
     }
 
+    /**
+     * Posts the given journal entry as a batch of one, so that its account
+     * balances are loaded and saved in the same way as those of a batch.
+     */
+    @Override
+    @CommandHandler
+    public void postJournalEntry(PostJournalEntryCommand command) {
+	JournalBatch batch = new JournalBatch();
+	addJournalEntry(batch, command.getLedgerId(),
+		command.getJournalEntryId());
+	post(batch);
+    }
+
+    /**
+     * Posts the given journal entries in the current unit of work. Every
+     * entry is validated before any account balance is updated, and each
+     * affected balance is updated and saved once for the whole batch.
+     * Balances not yet held by a ledger are loaded from the account balance
+     * repository. Every entry must belong to the command's ledger, by which
+     * posting commands are routed.
+     */
+    @Override
+    @CommandHandler
+    public void postJournalBatch(PostJournalBatchCommand command) {
+	JournalBatch batch = new JournalBatch();
+	Iterator<JournalEntryId> iter = command.getJournalEntryIds()
+		.iterator();
+	while (iter.hasNext()) {
+	    addJournalEntry(batch, command.getLedgerId(), iter.next());
+	}
+	post(batch);
+    }
+
+    private void addJournalEntry(JournalBatch batch, LedgerId ledgerId,
+	    JournalEntryId id) {
+	JournalEntry entry = repository.load(id);
+	if (!entry.getLedger().getIdentifier().equals(ledgerId)) {
+	    throw new ValidationException("journal entry is not in ledger");
+	}
+	entry.getLedger().setAccountBalanceRepository(accountBalanceRepository);
+	batch.add(entry);
+    }
+
+    private void post(JournalBatch batch) {
+	List<AccountBalance> balances = batch.post();
+	accountBalanceRepository.saveAll(balances);
+    }
 }
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.gl.api.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents the outcome of a journal import: the number of lines read, the
+ * number of journal entries created and rejected, and the rows in error. Only
+ * the first <code>MAX_ERRORS</code> errors are kept, but all are counted. If
+ * the submission of entries stopped on an exception, the result keeps it.
+ *
+ * @author Blair Caple
+ */
+public class JournalImportResult {
+
+    public static final int MAX_ERRORS = 1000;
+
+    private long lineCount;
+    private long entryCount;
+    private long rejectedEntryCount;
+    private long errorCount;
+    private final List<ImportError> errors = new ArrayList<ImportError>();
+    private Throwable failure;
+
+    synchronized void setLineCount(long lineCount) {
+	this.lineCount = lineCount;
+    }
+
+    synchronized void addEntry() {
+	entryCount++;
+    }
+
+    synchronized void addRejectedEntry() {
+	rejectedEntryCount++;
+    }
+
+    synchronized void addError(long lineNumber, String key, String message) {
+	errorCount++;
+	if (errors.size() < MAX_ERRORS) {
+	    errors.add(new ImportError(lineNumber, key, message));
+	}
+    }
+
+    synchronized void setFailure(Throwable failure) {
+	this.failure = failure;
+    }
+
+    public synchronized long getLineCount() {
+	return lineCount;
+    }
+
+    public synchronized long getEntryCount() {
+	return entryCount;
+    }
+
+    public synchronized long getRejectedEntryCount() {
+	return rejectedEntryCount;
+    }
+
+    public synchronized long getErrorCount() {
+	return errorCount;
+    }
+
+    public synchronized List<ImportError> getErrors() {
+	return Collections.unmodifiableList(new ArrayList<ImportError>(errors));
+    }
+
+    /**
+     * Returns the exception that stopped the submission of entries, or null.
+     */
+    public synchronized Throwable getFailure() {
+	return failure;
+    }
+
+    /**
+     * Represents a row in error, or the first row of a rejected journal entry.
+     */
+    public static class ImportError {
+	private final long lineNumber;
+	private final String key;
+	private final String message;
+
+	ImportError(long lineNumber, String key, String message) {
+	    this.lineNumber = lineNumber;
+	    this.key = key;
+	    this.message = message;
+	}
+
+	public long getLineNumber() {
+	    return lineNumber;
+	}
+
+	public String getKey() {
+	    return key;
+	}
+
+	public String getMessage() {
+	    return message;
+	}
+
+	@Override
+	public String toString() {
+	    return "line " + lineNumber + ": " + message;
+	}
+    }
+}
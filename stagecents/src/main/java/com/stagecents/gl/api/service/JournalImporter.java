@@ -0,0 +1,615 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.gl.api.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.axonframework.commandhandling.CommandBus;
+import org.axonframework.commandhandling.GenericCommandMessage;
+import org.axonframework.commandhandling.callbacks.FutureCallback;
+import org.joda.time.LocalDate;
+
+import com.stagecents.common.FixedPoint;
+import com.stagecents.gl.api.command.CreateJournalEntryCommand;
+import com.stagecents.gl.api.command.JournalHeaderDTO;
+import com.stagecents.gl.api.command.JournalLineDTO;
+import com.stagecents.gl.domain.AccountCode;
+import com.stagecents.gl.domain.AccountCodeIndex;
+import com.stagecents.gl.domain.JournalEntry;
+import com.stagecents.gl.domain.JournalEntryCategory;
+import com.stagecents.gl.domain.JournalEntryId;
+import com.stagecents.gl.domain.Ledger;
+import com.stagecents.gl.domain.Period;
+import com.stagecents.gl.domain.Structure;
+
+/**
+ * Imports journal entries from a flat file of journal lines, such as those
+ * produced by payroll and box office systems. Each line of the file holds one
+ * journal line as comma-separated fields:
+ *
+ * <pre>
+ * key,accountCode,debit,credit[,description]
+ * </pre>
+ *
+ * where the key identifies the journal entry the line belongs to and the
+ * amounts are decimal numbers in the ledger's currency, e.g. 1234.50, or
+ * empty for zero. The description runs to the end of the line and may contain
+ * commas. Blank lines and lines beginning with '#' are skipped. The lines of
+ * an entry must be contiguous. A key is reported as not contiguous if it
+ * reappears within the entries whose keys are still held, see below.
+ * <p>
+ * The file is read through a channel into a fixed buffer and parsed in place:
+ * keys, account codes and amounts are matched and converted without creating
+ * strings, and account codes are resolved against the structure's
+ * <code>AccountCodeIndex</code>. If the chart of accounts is not held by the
+ * structure, e.g. because it was streamed to a sink, each code is created
+ * from its combination index. Entries are handed in batches through a
+ * bounded queue to a submitting thread, which dispatches a
+ * <code>CreateJournalEntryCommand</code> for each entry of a batch on the
+ * command bus, so that each is handled in its own unit of work, and then waits
+ * for their results. Reading blocks while the queue is full, so that at most
+ * <code>(queueCapacity + 2) * batchSize</code> entries, and the keys of as
+ * many of the most recent entries, are held in memory whatever the size of
+ * the file.
+ * <p>
+ * A row in error is reported in the result, and the entry it belongs to is
+ * rejected as a whole, since it would not balance without the row. Entries
+ * that do not balance, or whose command fails, are rejected in the same way.
+ * The import carries on with the next entry in every case. Amounts are
+ * carried in minor units of the ledger's currency, so they are imported
+ * exactly whatever their size.
+ * <p>
+ * If the submitting thread fails, the exception is kept in the result, and
+ * every entry it has not submitted is rejected.
+ *
+ * @author Blair Caple
+ */
+public class JournalImporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int FIELDS = 5;
+
+    private final CommandBus commandBus;
+    private final AccountCodeIndex index;
+    private final AccountGenerator generator;
+    private final Ledger ledger;
+    private final Period period;
+    private final JournalEntryCategory category;
+    private final LocalDate effectiveDate;
+    private final int scale;
+    private int batchSize = 100;
+    private int queueCapacity = 4;
+
+    public JournalImporter(CommandBus commandBus, Structure structure,
+	    Ledger ledger, Period period, JournalEntryCategory category,
+	    LocalDate effectiveDate) {
+	this.commandBus = commandBus;
+	this.index = structure.getAccountCodeIndex();
+	this.generator = new AccountGenerator(structure);
+	this.ledger = ledger;
+	this.period = period;
+	this.category = category;
+	this.effectiveDate = effectiveDate;
+	this.scale = FixedPoint.getScale(ledger.getCurrency());
+    }
+
+    public void setBatchSize(int batchSize) {
+	if (batchSize < 1) {
+	    throw new IllegalArgumentException("invalid batch size");
+	}
+	this.batchSize = batchSize;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+	if (queueCapacity < 1) {
+	    throw new IllegalArgumentException("invalid queue capacity");
+	}
+	this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Imports the journal entries of the given file and returns the outcome.
+     * The method returns when every entry read has been submitted.
+     *
+     * @param file The file to import.
+     * @return The import result.
+     * @throws IOException If the file cannot be read, or if the import is
+     *             interrupted.
+     */
+    public JournalImportResult importFile(Path file) throws IOException {
+	JournalImportResult result = new JournalImportResult();
+	BlockingQueue<List<PendingEntry>> queue =
+		new ArrayBlockingQueue<List<PendingEntry>>(queueCapacity);
+	Submitter task = new Submitter(queue, result);
+	Thread submitter = new Thread(task, "journal-import");
+	submitter.start();
+	Reader reader = new Reader(queue, submitter, result);
+	FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+	try {
+	    reader.read(channel);
+	} finally {
+	    channel.close();
+	    reader.finish();
+	}
+	if (task.failure != null) {
+	    result.setFailure(task.failure);
+	    reader.rejectQueued();
+	}
+	return result;
+    }
+
+    /**
+     * Represents a journal entry awaiting submission, with the number of its
+     * first line.
+     */
+    private static class PendingEntry {
+	final long lineNumber;
+	final CreateJournalEntryCommand command;
+
+	PendingEntry(long lineNumber, CreateJournalEntryCommand command) {
+	    this.lineNumber = lineNumber;
+	    this.command = command;
+	}
+    }
+
+    /**
+     * Dispatches the commands of each batch taken from the queue, and records
+     * their results, until an empty batch marks the end of the import.
+     */
+    private class Submitter implements Runnable {
+	private final BlockingQueue<List<PendingEntry>> queue;
+	private final JournalImportResult result;
+	// The exception that stopped this submitter, if any
+	volatile Throwable failure;
+
+	Submitter(BlockingQueue<List<PendingEntry>> queue,
+		JournalImportResult result) {
+	    this.queue = queue;
+	    this.result = result;
+	}
+
+	public void run() {
+	    try {
+		List<PendingEntry> batch = queue.take();
+		while (!batch.isEmpty()) {
+		    submit(batch);
+		    batch = queue.take();
+		}
+	    } catch (InterruptedException e) {
+		failure = e;
+		Thread.currentThread().interrupt();
+	    } catch (Throwable e) {
+		failure = e;
+	    }
+	}
+
+	/**
+	 * Dispatches the commands of the given batch and waits for their
+	 * results. If a command cannot be dispatched, the commands already
+	 * dispatched are waited for and the rest of the batch is rejected.
+	 */
+	private void submit(List<PendingEntry> batch)
+		throws InterruptedException {
+	    List<FutureCallback<Object>> futures =
+		    new ArrayList<FutureCallback<Object>>(batch.size());
+	    RuntimeException dispatchFailure = null;
+	    Iterator<PendingEntry> iter = batch.iterator();
+	    while (iter.hasNext()) {
+		FutureCallback<Object> future = new FutureCallback<Object>();
+		try {
+		    commandBus.dispatch(GenericCommandMessage
+			    .asCommandMessage(iter.next().command), future);
+		} catch (RuntimeException e) {
+		    dispatchFailure = e;
+		    break;
+		}
+		futures.add(future);
+	    }
+	    for (int i = 0; i < futures.size(); i++) {
+		try {
+		    futures.get(i).get();
+		    result.addEntry();
+		} catch (ExecutionException e) {
+		    PendingEntry entry = batch.get(i);
+		    result.addRejectedEntry();
+		    result.addError(entry.lineNumber, entry.command
+			    .getJournalHeaderDTO().getName(), e.getCause()
+			    .getMessage());
+		}
+	    }
+	    if (dispatchFailure != null) {
+		reject(result, batch.subList(futures.size(), batch.size()));
+		throw dispatchFailure;
+	    }
+	}
+    }
+
+    /**
+     * Rejects the given entries, which were not submitted.
+     */
+    private static void reject(JournalImportResult result,
+	    List<PendingEntry> entries) {
+	for (int i = 0; i < entries.size(); i++) {
+	    PendingEntry entry = entries.get(i);
+	    result.addRejectedEntry();
+	    result.addError(entry.lineNumber, entry.command
+		    .getJournalHeaderDTO().getName(),
+		    "journal entry not submitted");
+	}
+    }
+
+    /**
+     * Parses the lines of a file into journal entries. A reader holds the
+     * state of one import.
+     */
+    private class Reader {
+	private final BlockingQueue<List<PendingEntry>> queue;
+	private final Thread submitter;
+	private final JournalImportResult result;
+
+	// The current line and the bounds of its fields.
+	private byte[] line = new byte[256];
+	private int length;
+	private long lineNumber;
+	private final int[] starts = new int[FIELDS];
+	private final int[] ends = new int[FIELDS];
+	private final ByteSequence code = new ByteSequence();
+
+	// The current entry.
+	private byte[] key = new byte[32];
+	private int keyLength = -1;
+	private String keyString;
+	private long firstLine;
+	private boolean valid;
+	private long debits;
+	private long credits;
+	private List<JournalLineDTO> lines;
+
+	// The keys of the most recent entries, eldest first.
+	private final Set<String> keys;
+	private List<PendingEntry> batch = new ArrayList<PendingEntry>();
+
+	Reader(BlockingQueue<List<PendingEntry>> queue, Thread submitter,
+		JournalImportResult result) {
+	    this.queue = queue;
+	    this.submitter = submitter;
+	    this.result = result;
+	    final int capacity = (queueCapacity + 2) * batchSize;
+	    Map<String, Boolean> recent = new LinkedHashMap<String, Boolean>() {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(
+			Map.Entry<String, Boolean> eldest) {
+		    return size() > capacity;
+		}
+	    };
+	    keys = Collections.newSetFromMap(recent);
+	}
+
+	void read(FileChannel channel) throws IOException {
+	    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	    byte[] bytes = buffer.array();
+	    while (channel.read(buffer) != -1) {
+		int n = buffer.position();
+		for (int i = 0; i < n; i++) {
+		    byte b = bytes[i];
+		    if (b == '\n') {
+			parseLine();
+			length = 0;
+		    } else {
+			append(b);
+		    }
+		}
+		buffer.clear();
+	    }
+	    if (length > 0) {
+		parseLine();
+	    }
+	    closeEntry();
+	    result.setLineCount(lineNumber);
+	}
+
+	/**
+	 * Hands the last batch and the end marker to the submitter, unless it
+	 * has stopped, and waits for it to finish.
+	 */
+	void finish() throws IOException {
+	    if (!batch.isEmpty()) {
+		put(batch);
+	    }
+	    put(new ArrayList<PendingEntry>());
+	    try {
+		submitter.join();
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+		throw new InterruptedIOException("journal import interrupted");
+	    }
+	}
+
+	private void append(byte b) {
+	    if (length == line.length) {
+		line = Arrays.copyOf(line, length * 2);
+	    }
+	    line[length++] = b;
+	}
+
+	private void parseLine() throws IOException {
+	    lineNumber++;
+	    int end = length;
+	    if (end > 0 && line[end - 1] == '\r') {
+		end--;
+	    }
+	    if (end == 0 || line[0] == '#') {
+		return;
+	    }
+
+	    // Split the line. The last field takes the rest of the line.
+	    int fields = 0;
+	    int start = 0;
+	    for (int i = 0; i < end && fields < FIELDS - 1; i++) {
+		if (line[i] == ',') {
+		    starts[fields] = start;
+		    ends[fields++] = i;
+		    start = i + 1;
+		}
+	    }
+	    starts[fields] = start;
+	    ends[fields++] = end;
+	    if (starts[0] == ends[0]) {
+		result.addError(lineNumber, null, "missing journal key");
+		return;
+	    }
+	    if (!isCurrentKey()) {
+		openEntry();
+	    }
+	    if (fields < FIELDS - 1) {
+		error("expected at least " + (FIELDS - 1) + " fields");
+		return;
+	    }
+
+	    code.set(line, starts[1], ends[1]);
+	    AccountCode accountCode = index.getAccountCode(code);
+	    if (accountCode == null) {
+		long combination = index.indexOf(code);
+		if (combination < 0) {
+		    error("invalid account code");
+		    return;
+		}
+		// The chart of accounts is not held by the structure.
+		accountCode = generator.getAccountCode(combination);
+	    }
+	    long debit = parseAmount(line, starts[2], ends[2], scale);
+	    long credit = parseAmount(line, starts[3], ends[3], scale);
+	    if (debit < 0 || credit < 0) {
+		error("invalid amount");
+		return;
+	    }
+	    String description = null;
+	    if (fields == FIELDS && starts[4] < ends[4]) {
+		description = new String(line, starts[4], ends[4] - starts[4],
+			StandardCharsets.UTF_8);
+	    }
+	    if (valid) {
+		try {
+		    debits = FixedPoint.add(debits, debit);
+		    credits = FixedPoint.add(credits, credit);
+		} catch (ArithmeticException e) {
+		    error("journal entry total too large");
+		    return;
+		}
+		lines.add(new JournalLineDTO(keyString + "-" + lineNumber,
+			null, accountCode, debit, credit, description));
+	    }
+	}
+
+	private boolean isCurrentKey() {
+	    int len = ends[0] - starts[0];
+	    if (len != keyLength) {
+		return false;
+	    }
+	    for (int i = 0; i < len; i++) {
+		if (key[i] != line[starts[0] + i]) {
+		    return false;
+		}
+	    }
+	    return true;
+	}
+
+	private void openEntry() throws IOException {
+	    closeEntry();
+	    keyLength = ends[0] - starts[0];
+	    if (keyLength > key.length) {
+		key = new byte[keyLength];
+	    }
+	    System.arraycopy(line, starts[0], key, 0, keyLength);
+	    keyString = new String(key, 0, keyLength, StandardCharsets.UTF_8);
+	    firstLine = lineNumber;
+	    valid = true;
+	    debits = 0;
+	    credits = 0;
+	    lines = new ArrayList<JournalLineDTO>();
+	    if (!keys.add(keyString)) {
+		error("lines of journal entry are not contiguous");
+	    }
+	}
+
+	private void closeEntry() throws IOException {
+	    if (lines == null) {
+		return;
+	    }
+	    if (!valid) {
+		result.addRejectedEntry();
+	    } else if (debits != credits) {
+		result.addRejectedEntry();
+		result.addError(firstLine, keyString,
+			"journal entry does not balance");
+	    } else {
+		JournalHeaderDTO header = new JournalHeaderDTO(
+			new JournalEntryId(), ledger, category, period,
+			keyString, ledger.getCurrency(),
+			JournalEntry.Status.UNPOSTED, effectiveDate, null,
+			null, debits, 0, 0, lines);
+		batch.add(new PendingEntry(firstLine,
+			new CreateJournalEntryCommand(header.getJournalId(),
+				header)));
+		if (batch.size() == batchSize) {
+		    put(batch);
+		    batch = new ArrayList<PendingEntry>(batchSize);
+		}
+	    }
+	    lines = null;
+	}
+
+	/**
+	 * Reports the current row in error and rejects the current entry, if
+	 * any.
+	 */
+	private void error(String message) {
+	    result.addError(lineNumber, keyString, message);
+	    valid = false;
+	}
+
+	/**
+	 * Rejects the entries left in the queue by a submitter that stopped.
+	 */
+	void rejectQueued() {
+	    List<List<PendingEntry>> left = new ArrayList<List<PendingEntry>>();
+	    queue.drainTo(left);
+	    for (int i = 0; i < left.size(); i++) {
+		reject(result, left.get(i));
+	    }
+	}
+
+	/**
+	 * Hands the given entries to the submitter, or rejects them if the
+	 * submitter has stopped.
+	 */
+	private void put(List<PendingEntry> entries) throws IOException {
+	    try {
+		while (!queue.offer(entries, 100, TimeUnit.MILLISECONDS)) {
+		    if (!submitter.isAlive()) {
+			reject(result, entries);
+			return;
+		    }
+		}
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+		throw new InterruptedIOException("journal import interrupted");
+	    }
+	}
+    }
+
+    /**
+     * Returns the amount in the given region of the given line in minor units
+     * of the given scale, or -1 if it is not a non-negative decimal number of
+     * at most <code>scale</code> decimal places, or does not fit in a
+     * <code>long</code>. An empty region is zero, but a decimal point with no
+     * digits is not an amount.
+     */
+    static long parseAmount(byte[] line, int start, int end, int scale) {
+	long value = 0;
+	int decimals = -1;
+	boolean digits = false;
+	for (int i = start; i < end; i++) {
+	    byte b = line[i];
+	    if (b == '.' && decimals < 0) {
+		decimals = 0;
+	    } else if (b >= '0' && b <= '9') {
+		if (decimals >= 0 && ++decimals > scale) {
+		    return -1;
+		}
+		if (value > (Long.MAX_VALUE - 9) / 10) {
+		    return -1;
+		}
+		value = value * 10 + (b - '0');
+		digits = true;
+	    } else {
+		return -1;
+	    }
+	}
+	if (!digits && decimals >= 0) {
+	    return -1;
+	}
+	try {
+	    return FixedPoint.rescale(value, Math.max(decimals, 0), scale,
+		    RoundingMode.UNNECESSARY);
+	} catch (ArithmeticException e) {
+	    return -1;
+	}
+    }
+
+    /**
+     * Represents a region of a byte array as a sequence of single byte
+     * characters, through which a field is looked up without copying it.
+     */
+    private static class ByteSequence implements CharSequence {
+	private byte[] bytes;
+	private int start;
+	private int end;
+
+	void set(byte[] bytes, int start, int end) {
+	    this.bytes = bytes;
+	    this.start = start;
+	    this.end = end;
+	}
+
+	public int length() {
+	    return end - start;
+	}
+
+	public char charAt(int index) {
+	    return (char) (bytes[start + index] & 0xFF);
+	}
+
+	public CharSequence subSequence(int from, int to) {
+	    ByteSequence result = new ByteSequence();
+	    result.set(bytes, start + from, start + to);
+	    return result;
+	}
+
+	@Override
+	public String toString() {
+	    return new String(bytes, start, end - start,
+		    StandardCharsets.ISO_8859_1);
+	}
+    }
+}
@@ -22,8 +22,14 @@
 package com.stagecents.gl.api.service;
 
 import com.stagecents.gl.api.command.CreateJournalEntryCommand;
+import com.stagecents.gl.api.command.PostJournalBatchCommand;
+import com.stagecents.gl.api.command.PostJournalEntryCommand;
 
 public interface JournalService {
 
     void createJournalEntry(CreateJournalEntryCommand command);
+
+    void postJournalEntry(PostJournalEntryCommand command);
+
+    void postJournalBatch(PostJournalBatchCommand command);
 }
@@ -28,25 +28,26 @@ import org.axonframework.repository.Repository;
 import org.springframework.stereotype.Component;
 
 import com.stagecents.common.ValidationException;
+import com.stagecents.common.infrastructure.UniquenessIndex;
 import com.stagecents.gl.api.command.CreateLedgerCommand;
 import com.stagecents.gl.domain.Ledger;
 import com.stagecents.gl.domain.LedgerId;
-import com.stagecents.gl.query.repository.LedgerRepository;
+import com.stagecents.gl.query.UniqueNameListener;
 
 @Component
 public class LedgerCommandHandler implements LedgerService {
 
     private Repository<Ledger> repository;
-    private LedgerRepository ledgerRepository;
+    private UniquenessIndex uniquenessIndex;
 
     @Resource(name = "ledgerJpaRepository")
     public void setRepository(Repository<Ledger> repository) {
 	this.repository = repository;
     }
 
-    @Resource(name = "ledgerQueryRepository")
-    public void setLedgerRepository(LedgerRepository ledgerRepository) {
-	this.ledgerRepository = ledgerRepository;
+    @Resource(name = "uniquenessIndex")
+    public void setUniquenessIndex(UniquenessIndex uniquenessIndex) {
+	this.uniquenessIndex = uniquenessIndex;
     }
 
     @CommandHandler
@@ -62,14 +63,16 @@ public class LedgerCommandHandler implements LedgerService {
     }
 
     private void checkUniqueName(LedgerId ledgerId, String name) {
-	boolean isUnique = ledgerRepository.checkUniqueName(name, ledgerId);
+	boolean isUnique = uniquenessIndex.reserve(
+		UniqueNameListener.LEDGER_NAME, null, name, ledgerId);
 	if (!isUnique) {
 	    throw new ValidationException("duplicate name");
 	}
     }
 
     private void checkUniqueShortName(LedgerId ledgerId, String shortName) {
-	boolean isUnique = ledgerRepository.checkUniqueShortName(shortName,
+	boolean isUnique = uniquenessIndex.reserve(
+		UniqueNameListener.LEDGER_SHORT_NAME, null, shortName,
 		ledgerId);
 	if (!isUnique) {
 	    throw new ValidationException("duplicate short name");
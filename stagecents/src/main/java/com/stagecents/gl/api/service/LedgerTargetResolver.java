@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.gl.api.service;
+
+import org.axonframework.commandhandling.CommandMessage;
+import org.axonframework.commandhandling.CommandTargetResolver;
+import org.axonframework.commandhandling.VersionedAggregateIdentifier;
+import org.axonframework.commandhandling.annotation.AnnotationCommandTargetResolver;
+
+import com.stagecents.gl.api.command.PostJournalBatchCommand;
+import com.stagecents.gl.api.command.PostJournalEntryCommand;
+
+/**
+ * Resolves the commands that post journal entries to the ledger they post to,
+ * and every other command to the aggregate it targets. Given to a
+ * <code>RoutingCommandBus</code>, it routes a batch and the single posts of
+ * any of its entries to the same lane, so that they are handled one after the
+ * other and an entry cannot be posted twice.
+ *
+ * @author Blair Caple
+ */
+public class LedgerTargetResolver implements CommandTargetResolver {
+
+    private final CommandTargetResolver delegate =
+	    new AnnotationCommandTargetResolver();
+
+    @Override
+    public VersionedAggregateIdentifier resolveTarget(
+	    CommandMessage<?> command) {
+	Object payload = command.getPayload();
+	if (payload instanceof PostJournalEntryCommand) {
+	    return new VersionedAggregateIdentifier(
+		    ((PostJournalEntryCommand) payload).getLedgerId(), null);
+	}
+	if (payload instanceof PostJournalBatchCommand) {
+	    return new VersionedAggregateIdentifier(
+		    ((PostJournalBatchCommand) payload).getLedgerId(), null);
+	}
+	return delegate.resolveTarget(command);
+    }
+}
@@ -30,6 +30,7 @@ import org.axonframework.repository.Repository;
 import org.springframework.stereotype.Component;
 
 import com.stagecents.common.ValidationException;
+import com.stagecents.common.infrastructure.UniquenessIndex;
 import com.stagecents.gl.api.command.CreateStructureCommand;
 import com.stagecents.gl.api.command.DeleteSegmentValueCommand;
 import com.stagecents.gl.api.command.FrozenStructureException;
@@ -38,22 +39,22 @@ import com.stagecents.gl.domain.Segment;
 import com.stagecents.gl.domain.SegmentValue;
 import com.stagecents.gl.domain.Structure;
 import com.stagecents.gl.domain.StructureId;
-import com.stagecents.gl.query.repository.StructureRepository;
+import com.stagecents.gl.query.UniqueNameListener;
 
 @Component
 public class StructureCommandHandler implements StructureService {
 
     private Repository<Structure> repository;
-    private StructureRepository structureRepository;
+    private UniquenessIndex uniquenessIndex;
 
     @Resource(name = "structureJpaRepository")
     public void setRepository(Repository<Structure> repository) {
 	this.repository = repository;
     }
 
-    @Resource(name = "structureQueryRepository")
-    public void setStructureRepository(StructureRepository structureRepository) {
-	this.structureRepository = structureRepository;
+    @Resource(name = "uniquenessIndex")
+    public void setUniquenessIndex(UniquenessIndex uniquenessIndex) {
+	this.uniquenessIndex = uniquenessIndex;
     }
 
     @CommandHandler
@@ -101,9 +102,14 @@ public class StructureCommandHandler implements StructureService {
 	}
     }
 
+    /**
+     * Reserves the given name for the structure, or raises a
+     * ValidationException if another structure has the name. The name is
+     * released if the command fails.
+     */
     private void checkUniqueName(StructureId structureId, String name) {
-	boolean isUnique = structureRepository.checkDuplicateStructure(
-		structureId, name);
+	boolean isUnique = uniquenessIndex.reserve(
+		UniqueNameListener.STRUCTURE_NAME, null, name, structureId);
 	if (!isUnique) {
 	    throw new ValidationException("structure name already exists");
 	}
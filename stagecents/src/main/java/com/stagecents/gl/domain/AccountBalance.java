@@ -26,6 +26,8 @@ import java.util.Currency;
 
 import org.axonframework.eventsourcing.annotation.AbstractAnnotatedEntity;
 
+import com.stagecents.common.FixedPoint;
+
 public class AccountBalance extends AbstractAnnotatedEntity {
 
     public static class Id implements Serializable {
@@ -72,10 +74,13 @@ public class AccountBalance extends AbstractAnnotatedEntity {
     private Period period;
     private int periodYear;
     private int periodNum;
-    private float periodNetDebit;
-    private float periodNetCredit;
-    private float beginningBalanceDebit;
-    private float beginningBalanceCredit;
+
+    // Amounts are held in minor units of the currency, e.g. cents.
+    private int scale;
+    private long periodNetDebit;
+    private long periodNetCredit;
+    private long beginningBalanceDebit;
+    private long beginningBalanceCredit;
 
     AccountBalance() {
     }
@@ -91,26 +96,123 @@ public class AccountBalance extends AbstractAnnotatedEntity {
 	this.period = period;
 	this.periodYear = periodYear;
 	this.periodNum = periodNum;
-	this.periodNetDebit = periodNetDebit;
-	this.periodNetCredit = periodNetCredit;
-	this.beginningBalanceDebit = beginningBalanceDebit;
-	this.beginningBalanceCredit = beginningBalanceCredit;
+	this.scale = FixedPoint.getScale(currency);
+	this.periodNetDebit = FixedPoint.valueOf(periodNetDebit, scale);
+	this.periodNetCredit = FixedPoint.valueOf(periodNetCredit, scale);
+	this.beginningBalanceDebit = FixedPoint.valueOf(beginningBalanceDebit,
+		scale);
+	this.beginningBalanceCredit = FixedPoint.valueOf(
+		beginningBalanceCredit, scale);
 
 	// Set identifier
 	this.id.ledgerId = ledger.getIdentifier();
 	this.id.accountCodeId = accountCode.getAccountCodeId();
 	this.id.periodId = period.getPeriodId();
-
-	// Ensure referential integrity
-	accountCode.getAccountBalances().put(id, this);
     }
 
     public Id getId() {
 	return id;
     }
 
-    void updateBalances(float debit, float credit) {
-	periodNetDebit += debit;
-	periodNetCredit += credit;
+    public AccountCode getAccountCode() {
+	return accountCode;
+    }
+
+    public Period getPeriod() {
+	return period;
+    }
+
+    public float getPeriodNetDebit() {
+	return FixedPoint.toFloat(periodNetDebit, scale);
+    }
+
+    public float getPeriodNetCredit() {
+	return FixedPoint.toFloat(periodNetCredit, scale);
+    }
+
+    /**
+     * Returns the number of digits after the decimal point of the minor units
+     * in which this balance is held.
+     *
+     * @return The scale of this balance.
+     */
+    public int getScale() {
+	return scale;
+    }
+
+    /**
+     * Adds the given debit and credit, in minor units, to this balance. The
+     * caller must hold the ledger's lock for this balance. If either amount
+     * overflows, the balance is left unchanged.
+     */
+    void updateBalances(long debit, long credit) {
+	long netDebit = FixedPoint.add(periodNetDebit, debit);
+	long netCredit = FixedPoint.add(periodNetCredit, credit);
+	periodNetDebit = netDebit;
+	periodNetCredit = netCredit;
+    }
+
+    /**
+     * Returns a copy of this balance. If the balance is held by a ledger, the
+     * caller must hold the ledger's lock for this balance.
+     *
+     * @return A copy of this balance.
+     */
+    public Snapshot snapshot() {
+	return new Snapshot(accountCode, period, scale, periodNetDebit,
+		periodNetCredit, beginningBalanceDebit, beginningBalanceCredit);
+    }
+
+    /**
+     * Represents a consistent copy of an account balance for reporting.
+     */
+    public static class Snapshot {
+	private final AccountCode accountCode;
+	private final Period period;
+	private final int scale;
+	private final long periodNetDebit;
+	private final long periodNetCredit;
+	private final long beginningBalanceDebit;
+	private final long beginningBalanceCredit;
+
+	Snapshot(AccountCode accountCode, Period period, int scale,
+		long periodNetDebit, long periodNetCredit,
+		long beginningBalanceDebit, long beginningBalanceCredit) {
+	    this.accountCode = accountCode;
+	    this.period = period;
+	    this.scale = scale;
+	    this.periodNetDebit = periodNetDebit;
+	    this.periodNetCredit = periodNetCredit;
+	    this.beginningBalanceDebit = beginningBalanceDebit;
+	    this.beginningBalanceCredit = beginningBalanceCredit;
+	}
+
+	public AccountCode getAccountCode() {
+	    return accountCode;
+	}
+
+	public Period getPeriod() {
+	    return period;
+	}
+
+	public int getScale() {
+	    return scale;
+	}
+
+	public long getPeriodNetDebit() {
+	    return periodNetDebit;
+	}
+
+	public long getPeriodNetCredit() {
+	    return periodNetCredit;
+	}
+
+	public long getBeginningBalanceDebit() {
+	    return beginningBalanceDebit;
+	}
+
+	public long getBeginningBalanceCredit() {
+	    return beginningBalanceCredit;
+	}
     }
 }
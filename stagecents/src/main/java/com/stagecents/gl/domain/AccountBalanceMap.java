@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.gl.domain;
+
+import java.util.Arrays;
+
+/**
+ * Represents a sparse map of account balances keyed by a packed primitive key
+ * of account index and period index. Keys are held in an open addressing table
+ * with linear probing, so that a lookup neither allocates a key object nor
+ * hashes any strings.
+ *
+ * @author Blair Caple
+ */
+class AccountBalanceMap {
+
+    private static final long EMPTY = -1L;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys;
+    private AccountBalance[] values;
+    private int size;
+
+    AccountBalanceMap() {
+	keys = new long[INITIAL_CAPACITY];
+	values = new AccountBalance[INITIAL_CAPACITY];
+	Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Returns the key of the given account index and period index.
+     *
+     * @param accountIndex The account index.
+     * @param periodIndex The period index.
+     * @return The packed key.
+     */
+    static long key(int accountIndex, int periodIndex) {
+	if (accountIndex < 0 || periodIndex < 0) {
+	    throw new IllegalArgumentException("invalid balance index");
+	}
+	return ((long) accountIndex << 32) | periodIndex;
+    }
+
+    int size() {
+	return size;
+    }
+
+    AccountBalance get(long key) {
+	int mask = keys.length - 1;
+	int i = hash(key) & mask;
+	while (keys[i] != EMPTY) {
+	    if (keys[i] == key) {
+		return values[i];
+	    }
+	    i = (i + 1) & mask;
+	}
+	return null;
+    }
+
+    void put(long key, AccountBalance value) {
+	if ((size + 1) * 2 > keys.length) {
+	    resize(keys.length * 2);
+	}
+	if (insert(keys, values, key, value)) {
+	    size++;
+	}
+    }
+
+    /**
+     * Returns the balances in this map, in no particular order.
+     *
+     * @return An array of account balances.
+     */
+    AccountBalance[] values() {
+	AccountBalance[] result = new AccountBalance[size];
+	int n = 0;
+	for (int i = 0; i < keys.length; i++) {
+	    if (keys[i] != EMPTY) {
+		result[n++] = values[i];
+	    }
+	}
+	return result;
+    }
+
+    private void resize(int capacity) {
+	long[] newKeys = new long[capacity];
+	AccountBalance[] newValues = new AccountBalance[capacity];
+	Arrays.fill(newKeys, EMPTY);
+	for (int i = 0; i < keys.length; i++) {
+	    if (keys[i] != EMPTY) {
+		insert(newKeys, newValues, keys[i], values[i]);
+	    }
+	}
+	keys = newKeys;
+	values = newValues;
+    }
+
+    /**
+     * Inserts or replaces the given entry and returns true if it was new.
+     */
+    private static boolean insert(long[] keys, AccountBalance[] values,
+	    long key, AccountBalance value) {
+	int mask = keys.length - 1;
+	int i = hash(key) & mask;
+	while (keys[i] != EMPTY) {
+	    if (keys[i] == key) {
+		values[i] = value;
+		return false;
+	    }
+	    i = (i + 1) & mask;
+	}
+	keys[i] = key;
+	values[i] = value;
+	return true;
+    }
+
+    private static int hash(long key) {
+	long h = key * 0x9E3779B97F4A7C15L;
+	return (int) (h ^ (h >>> 32));
+    }
+}
@@ -21,14 +21,31 @@
  */
 package com.stagecents.gl.domain;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 import org.axonframework.eventsourcing.annotation.AbstractAnnotatedEntity;
 
+import com.stagecents.common.IdentifierFactory;
+
+/**
+ * Represents a combination of one value of every segment of a structure.
+ * <p>
+ * An account code of a generated chart of accounts is encoded as its
+ * combination index within the structure's <code>AccountCodeIndex</code>, and
+ * its value, name and identifier are formatted from the index on demand, so
+ * that a code takes a few dozen bytes rather than several hundred. Only the
+ * identifier is kept once formatted, since it is the key under which balances
+ * are posted. Encoded codes of the same index compare and hash by their
+ * combination index without formatting any strings.
+ * <p>
+ * An account code created from a value, e.g. one that is loaded from the
+ * database, holds its strings as given. It equals an encoded code of the same
+ * structure with the same segment values, and a code of the same structure
+ * that holds the same value but for its delimiters.
+ *
+ * @author Blair Caple
+ */
 public class AccountCode extends AbstractAnnotatedEntity {
 
     private String accountCodeId;
@@ -38,8 +55,11 @@ public class AccountCode extends AbstractAnnotatedEntity {
     private AccountType accountType;
     private String value;
     private String name;
-    private transient List<String> segmentValues = new ArrayList<String>();
-    private Map<AccountBalance.Id, AccountBalance> accountBalances = new HashMap<AccountBalance.Id, AccountBalance>();
+
+    // The index that encodes this code and its combination index, or null
+    // and -1 if the code holds its value.
+    private transient AccountCodeIndex index;
+    private transient long combination = -1;
 
     AccountCode() {
     }
@@ -51,7 +71,6 @@ public class AccountCode extends AbstractAnnotatedEntity {
 	this.structure = structure;
 	this.accountType = accountType;
 	this.name = name;
-	this.segmentValues = segmentValues;
 
 	if (value == null) {
 	    value = concatenateSegmentValues(segmentValues);
@@ -59,20 +78,101 @@ public class AccountCode extends AbstractAnnotatedEntity {
 	this.value = value;
     }
 
+    /**
+     * Creates an account code encoded as the given combination index of the
+     * given account code index of the structure.
+     *
+     * @param structure The structure.
+     * @param index The account code index of the structure.
+     * @param combination The combination index of the code.
+     * @param accountType The account type of the code's natural account
+     *            value.
+     */
+    public AccountCode(Structure structure, AccountCodeIndex index,
+	    long combination, AccountType accountType) {
+	if (combination < 0 || combination >= index.size()) {
+	    throw new IndexOutOfBoundsException("invalid combination index");
+	}
+	this.structure = structure;
+	this.index = index;
+	this.combination = combination;
+	this.accountType = accountType;
+    }
+
+    /**
+     * Returns the identifier of this account code. The identifier of an
+     * encoded code is derived from the structure identifier and the code
+     * value when first requested.
+     */
     public String getAccountCodeId() {
+	if (accountCodeId == null && index != null) {
+	    accountCodeId = IdentifierFactory.getInstance().generateIdentifier(
+		    structure.getIdentifier() + ":" + getValue());
+	}
 	return accountCodeId;
     }
 
     public String getValue() {
-	return value;
+	return (index != null) ? index.formatValue(combination) : value;
+    }
+
+    public String getName() {
+	return (index != null) ? index.formatName(combination) : name;
+    }
+
+    public AccountType getAccountType() {
+	return accountType;
     }
 
-    public Map<AccountBalance.Id, AccountBalance> getAccountBalances() {
-	return accountBalances;
+    /**
+     * Formats the identifier, value and name of an encoded code into the
+     * fields that are persisted, which are otherwise left null. The code
+     * remains encoded, so the getters still read the index.
+     */
+    public void materialize() {
+	if (index == null) {
+	    return;
+	}
+	accountCodeId = getAccountCodeId();
+	value = index.formatValue(combination);
+	name = index.formatName(combination);
+    }
+
+    AccountCodeIndex getIndex() {
+	return index;
     }
-    
-    void addAccountBalance(AccountBalance accountBalance) {
-	accountBalances.put(accountBalance.getId(), accountBalance);
+
+    /**
+     * Returns the combination index of this code within the given index, or
+     * -1 if the code is not a valid combination of the index.
+     *
+     * @param other The account code index.
+     * @return The combination index, or -1.
+     */
+    public long getCombination(AccountCodeIndex other) {
+	if (other == index) {
+	    return combination;
+	}
+	return other.indexOf(getValue());
+    }
+
+    /**
+     * Resolves this code to the ordinal of its value within each segment of
+     * the given index. An encoded code of the same index is decoded without
+     * formatting its value.
+     *
+     * @param other The account code index.
+     * @param ordinals An array of at least <code>getSegmentCount()</code>
+     *            elements to receive the ordinals.
+     * @return The combination index of the code, or -1 if the code is not a
+     *         valid combination of the index.
+     */
+    public long resolve(AccountCodeIndex other, int[] ordinals) {
+	if (other == index) {
+	    other.decode(combination, ordinals);
+	    return combination;
+	}
+	return other.resolve(getValue(), ordinals);
     }
 
     private String concatenateSegmentValues(List<String> segmentValues) {
@@ -87,45 +187,31 @@ public class AccountCode extends AbstractAnnotatedEntity {
 	return sb.toString();
     }
 
+    /**
+     * Returns true if the given code consists of a defined value of every
+     * segment of the given structure.
+     * 
+     * @param code The code to validate, with or without delimiters.
+     * @param structure The structure.
+     * @return True if the code is valid.
+     * @see AccountCodeIndex
+     */
     public static boolean validateCodeCombination(String code,
 	    Structure structure) {
-	if (structure.getSegments().isEmpty()) {
-	    return false;
-	}
-	// Reformat any delimiters
-	code = code.replaceAll("-", "");
-
-	// Loop through each segment
-	int pos = 0;
-	Iterator<Segment> iter = structure.getSegments().iterator();
-	while (iter.hasNext()) {
-	    Segment s = iter.next();
-	    int len = s.getLength();
-	    String subject = code.substring(pos, pos + len);
-
-	    // Loop through the values for each segment. Return false if the
-	    // code segment does not match any values in the segment.
-	    boolean isMatch = false;
-	    Iterator<SegmentValue> it = s.getSegmentValues().iterator();
-	    while (it.hasNext()) {
-		SegmentValue sv = it.next();
-		if (sv.getValue().equals(subject)) {
-		    isMatch = true;
-		    break;
-		}
-	    }
-	    if (!isMatch) {
-		return false;
-	    }
-	    pos += len;
-	}
-	return true;
+	return structure.getAccountCodeIndex().isValid(code);
     }
 
+    /**
+     * Returns the hash code of the characters of the segment values of this
+     * code, so that an encoded code and a code that holds its value hash
+     * alike.
+     */
     @Override
     public int hashCode() {
-	return accountCodeId.hashCode() + accountType.hashCode()
-		+ value.hashCode();
+	if (index != null) {
+	    return index.hashCode(combination);
+	}
+	return (value == null) ? 0 : AccountCodeIndex.hashCode(value);
     }
 
     @Override
@@ -135,11 +221,33 @@ public class AccountCode extends AbstractAnnotatedEntity {
 	}
 	if (obj != null && obj instanceof AccountCode) {
 	    AccountCode that = (AccountCode) obj;
-	    return accountCodeId.equals(that.accountCodeId)
-		    && accountType.equals(that.accountType)
-		    && value.equals(that.value);
-
+	    StructureId structureId = getStructureId();
+	    StructureId thatStructureId = that.getStructureId();
+	    if ((structureId == null) ? thatStructureId != null
+		    : !structureId.equals(thatStructureId)) {
+		return false;
+	    }
+	    // Codes are compared by the characters of their segment values, as
+	    // they are hashed.
+	    if (index != null && that.index != null) {
+		return that.getCombination(index) == combination;
+	    }
+	    if (index != null) {
+		return that.value != null
+			&& index.equals(combination, that.value);
+	    }
+	    if (that.index != null) {
+		return value != null
+			&& that.index.equals(that.combination, value);
+	    }
+	    return (value == null) ? that.value == null
+		    : (that.value != null && AccountCodeIndex.equals(value,
+			    that.value));
 	}
 	return false;
     }
+
+    private StructureId getStructureId() {
+	return (structure == null) ? null : structure.getIdentifier();
+    }
 }
@@ -23,9 +23,20 @@ package com.stagecents.gl.domain;
 
 import java.util.Comparator;
 
+/**
+ * Orders account codes by value. Encoded codes of the same account code index
+ * are ordered by combination index, which orders them as their values do.
+ *
+ * @author Blair Caple
+ */
 public class AccountCodeComparator implements Comparator<AccountCode> {
 
     public int compare(AccountCode o1, AccountCode o2) {
+	AccountCodeIndex index = o1.getIndex();
+	if (index != null && index == o2.getIndex()) {
+	    return Long.compare(o1.getCombination(index),
+		    o2.getCombination(index));
+	}
 	return o1.getValue().compareTo(o2.getValue());
     }
 
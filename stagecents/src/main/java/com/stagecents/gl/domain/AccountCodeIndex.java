@@ -0,0 +1,412 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.gl.domain;
+
+import java.util.Iterator;
+
+/**
+ * Represents the compiled segment values of a structure, against which account
+ * code strings are validated and resolved without allocation. A code consists
+ * of one value per segment, in segment order, optionally separated by a single
+ * '-' or '.' delimiter, e.g. "01-200-5000", "01.200.5000" or "012005000".
+ * <p>
+ * A code resolves to the ordinal of its value within each segment, i.e. its
+ * position in the segment's sorted values, and to its combination index, in
+ * which the last segment varies fastest. The combination index is the index
+ * under which <code>AccountGenerator</code> produces the same code. Segment
+ * values that represent a range of values are not matched.
+ * <p>
+ * An index is immutable, and a structure builds a new one whenever its
+ * segment values or chart of accounts change.
+ *
+ * @author Blair Caple
+ */
+public class AccountCodeIndex {
+
+    private final int[] lengths;
+    private final SegmentValue[][] segmentValues;
+
+    // Value characters by segment and ordinal, sorted within each segment,
+    // and the ordinal of the first single value of each segment.
+    private final char[][][] values;
+    private final int[] firstValue;
+    private final long size;
+
+    // The number of combinations of the segments after each segment, by
+    // which a combination index is decoded into ordinals.
+    private final long[] strides;
+
+    // Account codes of the chart of accounts by combination index, or null if
+    // the chart is not held by the structure.
+    private final AccountCode[] accountCodes;
+
+    AccountCodeIndex(Structure structure) {
+	int n = structure.getSegments().size();
+	lengths = new int[n];
+	segmentValues = new SegmentValue[n][];
+	values = new char[n][][];
+	firstValue = new int[n];
+	long product = (n == 0) ? 0 : 1;
+	int i = 0;
+	Iterator<Segment> iter = structure.getSegments().iterator();
+	while (iter.hasNext()) {
+	    Segment segment = iter.next();
+	    lengths[i] = segment.getLength();
+	    segmentValues[i] = segment.getSegmentValues().toArray(
+		    new SegmentValue[segment.getSegmentValues().size()]);
+	    values[i] = new char[segmentValues[i].length][];
+	    firstValue[i] = segmentValues[i].length;
+	    for (int j = segmentValues[i].length - 1; j >= 0; j--) {
+		String value = segmentValues[i][j].getValue();
+		if (value != null) {
+		    values[i][j] = value.toCharArray();
+		    firstValue[i] = j;
+		}
+	    }
+	    product *= segmentValues[i].length;
+	    i++;
+	}
+	size = product;
+	strides = new long[n];
+	long stride = 1;
+	for (int j = n - 1; j >= 0; j--) {
+	    strides[j] = stride;
+	    stride *= segmentValues[j].length;
+	}
+	accountCodes = indexChartOfAccounts(structure);
+    }
+
+    private AccountCode[] indexChartOfAccounts(Structure structure) {
+	if (structure.getChartOfAccounts().isEmpty()
+		|| size > Integer.MAX_VALUE) {
+	    return null;
+	}
+	AccountCode[] result = new AccountCode[(int) size];
+	Iterator<AccountCode> iter = structure.getChartOfAccounts().iterator();
+	while (iter.hasNext()) {
+	    AccountCode accountCode = iter.next();
+	    long index = accountCode.getCombination(this);
+	    if (index >= 0) {
+		result[(int) index] = accountCode;
+	    }
+	}
+	return result;
+    }
+
+    public int getSegmentCount() {
+	return lengths.length;
+    }
+
+    /**
+     * Returns the number of account code combinations.
+     *
+     * @return The number of combinations.
+     */
+    public long size() {
+	return size;
+    }
+
+    /**
+     * Returns true if the given code consists of a defined value of every
+     * segment.
+     *
+     * @param code The code to validate.
+     * @return True if the code is valid.
+     */
+    public boolean isValid(CharSequence code) {
+	return parse(code, null) >= 0;
+    }
+
+    /**
+     * Returns the combination index of the given code, or -1 if the code is
+     * not valid.
+     *
+     * @param code The code to look up.
+     * @return The combination index, or -1.
+     */
+    public long indexOf(CharSequence code) {
+	return parse(code, null);
+    }
+
+    /**
+     * Resolves the given code to the ordinal of its value within each segment.
+     *
+     * @param code The code to resolve.
+     * @param ordinals An array of at least <code>getSegmentCount()</code>
+     *            elements to receive the ordinals.
+     * @return The combination index of the code, or -1 if the code is not
+     *         valid, in which case the content of the array is undefined.
+     */
+    public long resolve(CharSequence code, int[] ordinals) {
+	if (ordinals.length < lengths.length) {
+	    throw new IllegalArgumentException("ordinal array too short");
+	}
+	return parse(code, ordinals);
+    }
+
+    /**
+     * Returns the account code of the chart of accounts with the given code,
+     * or null if the code is not valid or the chart of accounts is not held by
+     * the structure.
+     *
+     * @param code The code to look up.
+     * @return The account code, or null.
+     */
+    public AccountCode getAccountCode(CharSequence code) {
+	if (accountCodes == null) {
+	    return null;
+	}
+	long index = parse(code, null);
+	return (index < 0) ? null : accountCodes[(int) index];
+    }
+
+    /**
+     * Returns the value of the given segment with the given ordinal.
+     *
+     * @param segment The position of the segment in the structure.
+     * @param ordinal The ordinal of the value within the segment.
+     * @return The segment value.
+     */
+    public SegmentValue getSegmentValue(int segment, int ordinal) {
+	return segmentValues[segment][ordinal];
+    }
+
+    /**
+     * Decodes the given combination index into the ordinal of its value
+     * within each segment.
+     *
+     * @param combination The combination index.
+     * @param ordinals An array of at least <code>getSegmentCount()</code>
+     *            elements to receive the ordinals.
+     */
+    public void decode(long combination, int[] ordinals) {
+	checkCombination(combination);
+	if (ordinals.length < lengths.length) {
+	    throw new IllegalArgumentException("ordinal array too short");
+	}
+	for (int i = 0; i < lengths.length; i++) {
+	    ordinals[i] = ordinal(combination, i);
+	}
+    }
+
+    /**
+     * Returns the code of the given combination, with its segment values
+     * separated by '.'.
+     */
+    String formatValue(long combination) {
+	checkCombination(combination);
+	StringBuilder sb = new StringBuilder();
+	for (int i = 0; i < lengths.length; i++) {
+	    if (i > 0) {
+		sb.append('.');
+	    }
+	    sb.append(segmentValues[i][ordinal(combination, i)].getValue());
+	}
+	return sb.toString();
+    }
+
+    /**
+     * Returns the name of the given combination, i.e. the descriptions of its
+     * segment values separated by '.'.
+     */
+    String formatName(long combination) {
+	checkCombination(combination);
+	StringBuilder sb = new StringBuilder();
+	for (int i = 0; i < lengths.length; i++) {
+	    if (i > 0) {
+		sb.append('.');
+	    }
+	    sb.append(segmentValues[i][ordinal(combination, i)]
+		    .getDescription());
+	}
+	return sb.toString();
+    }
+
+    /**
+     * Returns the hash code of the characters of the given combination's
+     * segment values, computed as <code>hashCode(CharSequence)</code> computes
+     * it for the code.
+     */
+    int hashCode(long combination) {
+	checkCombination(combination);
+	int h = 0;
+	for (int i = 0; i < lengths.length; i++) {
+	    char[] value = values[i][ordinal(combination, i)];
+	    if (value != null) {
+		for (int j = 0; j < value.length; j++) {
+		    h = 31 * h + value[j];
+		}
+	    }
+	}
+	return h;
+    }
+
+    /**
+     * Returns the hash code of the characters of the given code other than
+     * delimiters.
+     */
+    static int hashCode(CharSequence code) {
+	int h = 0;
+	int n = code.length();
+	for (int i = 0; i < n; i++) {
+	    char c = code.charAt(i);
+	    if (!isDelimiter(c)) {
+		h = 31 * h + c;
+	    }
+	}
+	return h;
+    }
+
+    /**
+     * Returns true if the given code has the characters of the given
+     * combination's segment values other than delimiters, as
+     * <code>equals(CharSequence, CharSequence)</code> compares codes.
+     */
+    boolean equals(long combination, CharSequence code) {
+	checkCombination(combination);
+	int j = 0;
+	int m = code.length();
+	for (int i = 0; i < lengths.length; i++) {
+	    char[] value = values[i][ordinal(combination, i)];
+	    if (value == null) {
+		continue;
+	    }
+	    for (int k = 0; k < value.length; k++) {
+		while (j < m && isDelimiter(code.charAt(j))) {
+		    j++;
+		}
+		if (j == m || code.charAt(j++) != value[k]) {
+		    return false;
+		}
+	    }
+	}
+	while (j < m && isDelimiter(code.charAt(j))) {
+	    j++;
+	}
+	return j == m;
+    }
+
+    /**
+     * Returns true if the given codes have the same characters other than
+     * delimiters, so that codes that hash alike under
+     * <code>hashCode(CharSequence)</code> are compared alike.
+     */
+    static boolean equals(CharSequence code, CharSequence other) {
+	int n = code.length();
+	int m = other.length();
+	int i = 0;
+	int j = 0;
+	while (true) {
+	    while (i < n && isDelimiter(code.charAt(i))) {
+		i++;
+	    }
+	    while (j < m && isDelimiter(other.charAt(j))) {
+		j++;
+	    }
+	    if (i == n || j == m) {
+		return i == n && j == m;
+	    }
+	    if (code.charAt(i++) != other.charAt(j++)) {
+		return false;
+	    }
+	}
+    }
+
+    private int ordinal(long combination, int segment) {
+	long ordinal = (combination / strides[segment]) % values[segment].length;
+	return (int) ordinal;
+    }
+
+    private void checkCombination(long combination) {
+	if (combination < 0 || combination >= size) {
+	    throw new IndexOutOfBoundsException("invalid combination index");
+	}
+    }
+
+    private long parse(CharSequence code, int[] ordinals) {
+	int n = lengths.length;
+	if (code == null || n == 0) {
+	    return -1;
+	}
+	int pos = 0;
+	int end = code.length();
+	long index = 0;
+	for (int i = 0; i < n; i++) {
+	    if (i > 0 && pos < end && isDelimiter(code.charAt(pos))) {
+		pos++;
+	    }
+	    int len = lengths[i];
+	    if (pos + len > end) {
+		return -1;
+	    }
+	    int ordinal = find(i, code, pos, len);
+	    if (ordinal < 0) {
+		return -1;
+	    }
+	    if (ordinals != null) {
+		ordinals[i] = ordinal;
+	    }
+	    index = index * values[i].length + ordinal;
+	    pos += len;
+	}
+	return (pos == end) ? index : -1;
+    }
+
+    private static boolean isDelimiter(char c) {
+	return c == '-' || c == '.';
+    }
+
+    /**
+     * Returns the ordinal of the value of the given segment that equals the
+     * given region of the code, or -1 if there is none.
+     */
+    private int find(int segment, CharSequence code, int offset, int len) {
+	char[][] v = values[segment];
+	int low = firstValue[segment];
+	int high = v.length - 1;
+	while (low <= high) {
+	    int mid = (low + high) >>> 1;
+	    int cmp = compare(v[mid], code, offset, len);
+	    if (cmp < 0) {
+		low = mid + 1;
+	    } else if (cmp > 0) {
+		high = mid - 1;
+	    } else {
+		return mid;
+	    }
+	}
+	return -1;
+    }
+
+    private static int compare(char[] value, CharSequence code, int offset,
+	    int len) {
+	int n = Math.min(value.length, len);
+	for (int i = 0; i < n; i++) {
+	    char c1 = value[i];
+	    char c2 = code.charAt(offset + i);
+	    if (c1 != c2) {
+		return c1 - c2;
+	    }
+	}
+	return value.length - len;
+    }
+}
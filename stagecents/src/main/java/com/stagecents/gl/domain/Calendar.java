@@ -29,6 +29,7 @@ import java.util.TreeSet;
 import org.axonframework.eventhandling.annotation.EventHandler;
 import org.axonframework.eventsourcing.annotation.AbstractAnnotatedAggregateRoot;
 import org.axonframework.eventsourcing.annotation.AggregateIdentifier;
+import org.joda.time.LocalDate;
 
 import com.stagecents.gl.api.command.CalendarCreatedEvent;
 import com.stagecents.gl.api.command.CalendarDTO;
@@ -51,6 +52,9 @@ public class Calendar extends AbstractAnnotatedAggregateRoot<CalendarId> {
     private SortedSet<Period> periods = new TreeSet<Period>(
 	    new PeriodComparator());
 
+    // Built on first use from the periods.
+    private transient volatile PeriodIndex periodIndex;
+
     Calendar() {
     }
 
@@ -65,6 +69,36 @@ public class Calendar extends AbstractAnnotatedAggregateRoot<CalendarId> {
     public void addPeriod(Period period) {
 	period.setPeriodSet(this);
 	periods.add(period);
+	periodIndex = null;
+    }
+
+    /**
+     * Returns the regular period that contains the given date, e.g. the
+     * period to which a journal entry or cost dated on that day is posted.
+     *
+     * @param date The date to resolve.
+     * @return The period, or null if the date is outside the calendar.
+     */
+    public Period periodFor(LocalDate date) {
+	return periodFor(date, false);
+    }
+
+    /**
+     * Returns the regular or adjustment period that contains the given date.
+     * If several periods of the kind contain the date, the one that starts
+     * last is returned.
+     *
+     * @param date The date to resolve.
+     * @param adjustmentPeriod True to look up an adjustment period.
+     * @return The period, or null if there is none.
+     */
+    public Period periodFor(LocalDate date, boolean adjustmentPeriod) {
+	PeriodIndex index = periodIndex;
+	if (index == null) {
+	    index = new PeriodIndex(periods);
+	    periodIndex = index;
+	}
+	return index.periodFor(date, adjustmentPeriod);
     }
 
     @EventHandler
@@ -0,0 +1,152 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.gl.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.stagecents.common.FixedPoint;
+
+/**
+ * Represents a batch of journal entries to be posted together. Every entry is
+ * validated as it is added, and the debits and credits of its lines are summed
+ * in memory, in minor units, per account balance. Posting the batch then
+ * updates each affected account balance once, however many lines were posted
+ * to it, and marks every entry as posted. If any entry fails validation, no
+ * balance is updated.
+ * <p>
+ * A batch is not thread safe and may be posted only once.
+ *
+ * @author Blair Caple
+ */
+public class JournalBatch {
+
+    private final List<JournalEntry> entries = new ArrayList<JournalEntry>();
+    private final Set<JournalEntryId> entryIds = new HashSet<JournalEntryId>();
+    private final Map<AccountBalance.Id, Delta> deltas =
+	    new LinkedHashMap<AccountBalance.Id, Delta>();
+    private boolean posted;
+
+    /**
+     * Validates the given journal entry and adds its lines to this batch.
+     *
+     * @param entry The journal entry to post.
+     * @throws IllegalArgumentException If the entry is already posted, is
+     *             already in this batch or is out of balance.
+     * @throws ArithmeticException If the summed amounts of an account balance
+     *             overflow.
+     */
+    public void add(JournalEntry entry) {
+	if (posted) {
+	    throw new IllegalStateException("batch is already posted");
+	}
+	if (entryIds.contains(entry.getIdentifier())) {
+	    throw new IllegalArgumentException("entry is already in batch");
+	}
+	entry.checkPostable();
+
+	Ledger ledger = entry.getLedger();
+	Period period = entry.getPeriod();
+	Iterator<JournalEntryLine> iter = entry.getJournalEntryLines()
+		.iterator();
+	while (iter.hasNext()) {
+	    JournalEntryLine line = iter.next();
+	    AccountCode accountCode = line.getAccountCode();
+	    AccountBalance.Id key = new AccountBalance.Id(
+		    ledger.getIdentifier(), accountCode.getAccountCodeId(),
+		    period.getPeriodId());
+	    Delta delta = deltas.get(key);
+	    if (delta == null) {
+		delta = new Delta(ledger, accountCode, period);
+		deltas.put(key, delta);
+	    }
+	    delta.debit = FixedPoint.add(delta.debit, line.getDebit());
+	    delta.credit = FixedPoint.add(delta.credit, line.getCredit());
+	}
+	entries.add(entry);
+	entryIds.add(entry.getIdentifier());
+    }
+
+    public List<JournalEntry> getEntries() {
+	return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Returns the number of account balances affected by this batch.
+     *
+     * @return The number of account balances.
+     */
+    public int getAccountBalanceCount() {
+	return deltas.size();
+    }
+
+    /**
+     * Applies the summed debits and credits to the account balances of this
+     * batch and marks every entry as posted.
+     *
+     * @return The updated account balances, in order of first use.
+     */
+    public List<AccountBalance> post() {
+	if (posted) {
+	    throw new IllegalStateException("batch is already posted");
+	}
+	posted = true;
+
+	List<AccountBalance> result = new ArrayList<AccountBalance>(
+		deltas.size());
+	Iterator<Delta> iter = deltas.values().iterator();
+	while (iter.hasNext()) {
+	    Delta delta = iter.next();
+	    result.add(delta.ledger.post(delta.accountCode, delta.period,
+		    delta.debit, delta.credit));
+	}
+
+	Iterator<JournalEntry> it = entries.iterator();
+	while (it.hasNext()) {
+	    it.next().postInBatch();
+	}
+	return result;
+    }
+
+    /**
+     * Represents the summed debits and credits of one account balance.
+     */
+    private static class Delta {
+	final Ledger ledger;
+	final AccountCode accountCode;
+	final Period period;
+	long debit;
+	long credit;
+
+	Delta(Ledger ledger, AccountCode accountCode, Period period) {
+	    this.ledger = ledger;
+	    this.accountCode = accountCode;
+	    this.period = period;
+	}
+    }
+}
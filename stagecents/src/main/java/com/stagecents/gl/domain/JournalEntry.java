@@ -29,18 +29,20 @@ import java.util.Set;
 import org.axonframework.commandhandling.annotation.CommandHandler;
 import org.axonframework.eventhandling.annotation.EventHandler;
 import org.axonframework.eventsourcing.annotation.AbstractAnnotatedAggregateRoot;
+import org.axonframework.eventsourcing.annotation.AggregateIdentifier;
 import org.joda.time.LocalDate;
 
+import com.stagecents.common.FixedPoint;
 import com.stagecents.gl.api.command.DeleteJournalEntryCommand;
 import com.stagecents.gl.api.command.JournalEntryCreatedEvent;
 import com.stagecents.gl.api.command.JournalEntryDeletedEvent;
 import com.stagecents.gl.api.command.JournalEntryPostedEvent;
 import com.stagecents.gl.api.command.JournalHeaderDTO;
 import com.stagecents.gl.api.command.JournalLineDTO;
-import com.stagecents.gl.api.command.PostJournalEntryCommand;
 
 public class JournalEntry extends AbstractAnnotatedAggregateRoot<JournalEntryId> {
 
+    @AggregateIdentifier
     private JournalEntryId journalId;
     private int version;
 
@@ -53,9 +55,10 @@ public class JournalEntry extends AbstractAnnotatedAggregateRoot<JournalEntryId>
     private LocalDate effectiveDate;
     private LocalDate postedDate;
     private String description;
-    private float controlTotal;
-    private float runningTotalDebit;
-    private float runningTotalCredit;
+    // Totals are held in minor units of the currency.
+    private long controlTotal;
+    private long runningTotalDebit;
+    private long runningTotalCredit;
     private Set<JournalEntryLine> journalEntryLines = new HashSet<JournalEntryLine>();
 
     public enum Status {
@@ -151,19 +154,8 @@ public class JournalEntry extends AbstractAnnotatedAggregateRoot<JournalEntryId>
 
     @EventHandler
     public void handlePost(JournalEntryPostedEvent event) {
-	// Update the account balances
-	Iterator<JournalEntryLine> iter = journalEntryLines.iterator();
-	while (iter.hasNext()) {
-	    JournalEntryLine line = iter.next();
-	    AccountCode accountCode = line.getAccountCode();
-	    AccountBalance.Id key = new AccountBalance.Id(
-		    ledger.getIdentifier(), accountCode.getAccountCodeId(),
-		    period.getPeriodId());
-	    AccountBalance balance = accountCode.getAccountBalances().get(key);
-	    balance.updateBalances(line.getDebit(), line.getCredit());
-	}
-
-	// Set status
+	// The account balances are updated by the batch that posts the entry,
+	// and are never updated on replay.
 	status = Status.POSTED;
     }
 
@@ -176,23 +168,38 @@ public class JournalEntry extends AbstractAnnotatedAggregateRoot<JournalEntryId>
 	apply(new JournalEntryDeletedEvent(journalId));
     }
 
-    @CommandHandler
-    public void post(PostJournalEntryCommand command) {
+    /**
+     * Checks that this entry may be posted, and records its totals.
+     */
+    void checkPostable() {
 	if (status.equals(Status.POSTED)) {
 	    throw new IllegalArgumentException("entry is already posted");
 	}
 	checkTotals();
+    }
+
+    /**
+     * Marks this entry as posted by a <code>JournalBatch</code>, which has
+     * already validated it and updated its account balances.
+     */
+    void postInBatch() {
 	apply(new JournalEntryPostedEvent(journalId));
     }
 
+    /**
+     * Sums the lines of this entry in minor units, so that the totals do not
+     * depend on the order in which the lines are added.
+     */
     private void checkTotals() {
-	float runningTotalDebit = 0;
-	float runningTotalCredit = 0;
+	long runningTotalDebit = 0;
+	long runningTotalCredit = 0;
 	Iterator<JournalEntryLine> iter = journalEntryLines.iterator();
 	while (iter.hasNext()) {
 	    JournalEntryLine line = iter.next();
-	    runningTotalDebit += line.getDebit();
-	    runningTotalCredit += line.getCredit();
+	    runningTotalDebit = FixedPoint.add(runningTotalDebit,
+		    line.getDebit());
+	    runningTotalCredit = FixedPoint.add(runningTotalCredit,
+		    line.getCredit());
 	}
 
 	if (runningTotalDebit != runningTotalCredit) {
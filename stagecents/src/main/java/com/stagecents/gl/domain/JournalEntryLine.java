@@ -36,15 +36,16 @@ public class JournalEntryLine extends AbstractAnnotatedEntity {
     private Period period;
     private LocalDate effectiveDate;
     private JournalEntry.Status status;
-    private float debit;
-    private float credit;
+    // Amounts are held in minor units of the currency, e.g. cents.
+    private long debit;
+    private long credit;
     private String description;
 
     JournalEntryLine() {
     }
 
     public JournalEntryLine(String journalLineId, JournalEntry journalHeader,
-	    int sequence, AccountCode accountCode, float debit, float credit,
+	    int sequence, AccountCode accountCode, long debit, long credit,
 	    String description) {
 	this.journalLineId = journalLineId;
 	this.journalHeader = journalHeader;
@@ -68,11 +69,11 @@ public class JournalEntryLine extends AbstractAnnotatedEntity {
         return accountCode;
     }
 
-    public float getDebit() {
+    public long getDebit() {
         return debit;
     }
 
-    public float getCredit() {
+    public long getCredit() {
         return credit;
     }
 }
@@ -21,18 +21,45 @@
  */
 package com.stagecents.gl.domain;
 
+import java.util.ArrayList;
 import java.util.Currency;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.axonframework.eventhandling.annotation.EventHandler;
 import org.axonframework.eventsourcing.annotation.AbstractAnnotatedAggregateRoot;
 import org.axonframework.eventsourcing.annotation.AggregateIdentifier;
 
+import com.stagecents.common.infrastructure.BaseRepository;
 import com.stagecents.gl.api.command.LedgerCreatedEvent;
 import com.stagecents.gl.api.command.LedgerDTO;
 
+/**
+ * Represents a ledger. Account balances are sparse: a balance exists only for
+ * the account code and period combinations that have been posted to, so that
+ * creating a ledger takes constant time regardless of the size of the chart of
+ * accounts and the calendar.
+ * <p>
+ * Balances are accumulated in minor units of the ledger's currency under a
+ * fixed set of striped locks, so that journal entries posting to the same
+ * ledger may be posted on several threads without lost updates.
+ * <p>
+ * The ledger holds only the balances posted or read since it was loaded. On a
+ * miss it looks the balance up by its <code>AccountBalance.Id</code> in the
+ * account balance repository, and creates a zero balance only if none is
+ * stored, so that a reloaded ledger adds to the stored amounts instead of
+ * overwriting them. The repository must be set before posting to a ledger
+ * whose balances have been saved.
+ * 
+ * @author Blair Caple
+ */
 public class Ledger extends AbstractAnnotatedAggregateRoot<LedgerId> {
 
+    private static final int LOCK_STRIPES = 32;
+
     @AggregateIdentifier
     private LedgerId ledgerId;
     private int version;
@@ -46,6 +73,20 @@ public class Ledger extends AbstractAnnotatedAggregateRoot<LedgerId> {
     private AccountCode netIncomeAccountCode;
     private StructureId structureId;
 
+    // Account balances are created on first posting. Accounts are indexed in
+    // order of first posting; periods by period number.
+    private Map<String, Integer> accountIndexes =
+	    new HashMap<String, Integer>();
+    private AccountBalanceMap accountBalances = new AccountBalanceMap();
+
+    // Balance amounts are guarded by lock stripes. The map of balances is
+    // guarded by its own monitor.
+    private transient volatile Lock[] locks;
+
+    // Looks up the balances saved before this ledger was loaded
+    private transient BaseRepository<AccountBalance, AccountBalance.Id>
+	    accountBalanceRepository;
+
     Ledger() {
     }
 
@@ -71,28 +112,194 @@ public class Ledger extends AbstractAnnotatedAggregateRoot<LedgerId> {
 		.getRetainedEarningsAccountCode();
 	netIncomeAccountCode = event.getLedgerDTO().getNetIncomeAccountCode();
 	structureId = event.getLedgerDTO().getStructure().getIdentifier();
+    }
+
+    public Currency getCurrency() {
+	return currency;
+    }
 
-	// Create AccountBalance entities
-	Structure structure = event.getLedgerDTO().getStructure();
-	Calendar calendar = event.getLedgerDTO().getCalendar();
-	createAccountBalances(structure, calendar);
+    /**
+     * Sets the repository from which balances that are not yet held by this
+     * ledger are loaded.
+     *
+     * @param accountBalanceRepository The account balance repository.
+     */
+    public void setAccountBalanceRepository(
+	    BaseRepository<AccountBalance, AccountBalance.Id>
+		accountBalanceRepository) {
+	synchronized (accountBalances) {
+	    this.accountBalanceRepository = accountBalanceRepository;
+	}
     }
 
-    private void createAccountBalances(Structure structure, Calendar calendar) {
-	Iterator<AccountCode> iter1 = structure.getChartOfAccounts().iterator();
-	while (iter1.hasNext()) {
-	    AccountCode accountCode = iter1.next();
+    /**
+     * Returns the balance of the given account code in the given period, or
+     * null if nothing has been posted to it. The amounts of the returned
+     * balance may be changing concurrently; use
+     * <code>getAccountBalanceSnapshot()</code> for a consistent read.
+     *
+     * @param accountCode The account code.
+     * @param period The accounting period.
+     * @return The account balance, or null.
+     */
+    public AccountBalance getAccountBalance(AccountCode accountCode,
+	    Period period) {
+	return loadAccountBalance(accountCode, period, false);
+    }
 
-	    Iterator<Period> iter2 = calendar.getPeriods().iterator();
-	    while (iter2.hasNext()) {
-		Period period = iter2.next();
+    /**
+     * Returns a consistent copy of the balance of the given account code in
+     * the given period, or null if nothing has been posted to it.
+     *
+     * @param accountCode The account code.
+     * @param period The accounting period.
+     * @return A copy of the account balance, or null.
+     */
+    public AccountBalance.Snapshot getAccountBalanceSnapshot(
+	    AccountCode accountCode, Period period) {
+	AccountBalance balance = getAccountBalance(accountCode, period);
+	if (balance == null) {
+	    return null;
+	}
+	Lock lock = getLock(balance);
+	lock.lock();
+	try {
+	    return balance.snapshot();
+	} finally {
+	    lock.unlock();
+	}
+    }
 
-		AccountBalance accountBalance = new AccountBalance(this,
-			accountCode, currency, period, period.getPeriodYear(),
-			period.getPeriodNum(), 0, 0, 0, 0);
-		accountCode.addAccountBalance(accountBalance);
+    /**
+     * Returns a copy of every account balance held by this ledger as of a
+     * single point in time. Postings are held off while the copy is taken.
+     *
+     * @return A list of account balance copies, in no particular order.
+     */
+    public List<AccountBalance.Snapshot> getAccountBalanceSnapshots() {
+	Lock[] locks = getLocks();
+	for (int i = 0; i < locks.length; i++) {
+	    locks[i].lock();
+	}
+	try {
+	    AccountBalance[] balances;
+	    synchronized (accountBalances) {
+		balances = accountBalances.values();
+	    }
+	    List<AccountBalance.Snapshot> result =
+		    new ArrayList<AccountBalance.Snapshot>(balances.length);
+	    for (int i = 0; i < balances.length; i++) {
+		result.add(balances[i].snapshot());
+	    }
+	    return result;
+	} finally {
+	    for (int i = locks.length - 1; i >= 0; i--) {
+		locks[i].unlock();
 	    }
 	}
+    }
 
+    /**
+     * Returns the number of account balances held by this ledger, i.e. the
+     * number of account code and period combinations posted to or read since
+     * it was loaded.
+     *
+     * @return The number of account balances.
+     */
+    public int getAccountBalanceCount() {
+	synchronized (accountBalances) {
+	    return accountBalances.size();
+	}
+    }
+
+    /**
+     * Adds the given debit and credit to the balance of the given account code
+     * in the given period, loading or creating the balance on first use.
+     * Postings to different balances may run concurrently.
+     *
+     * @param accountCode The account code.
+     * @param period The accounting period.
+     * @param debit The debit, in minor units of the ledger's currency.
+     * @param credit The credit, in minor units of the ledger's currency.
+     * @return The updated account balance.
+     */
+    AccountBalance post(AccountCode accountCode, Period period, long debit,
+	    long credit) {
+	AccountBalance balance = loadAccountBalance(accountCode, period, true);
+	Lock lock = getLock(balance);
+	lock.lock();
+	try {
+	    balance.updateBalances(debit, credit);
+	} finally {
+	    lock.unlock();
+	}
+	return balance;
+    }
+
+    /**
+     * Returns the balance of the given account code in the given period,
+     * loading it from the repository if it is not yet held and, if requested,
+     * creating it if it is not stored either.
+     */
+    private AccountBalance loadAccountBalance(AccountCode accountCode,
+	    Period period, boolean create) {
+	synchronized (accountBalances) {
+	    Integer accountIndex = accountIndexes.get(accountCode
+		    .getAccountCodeId());
+	    AccountBalance balance = null;
+	    if (accountIndex != null) {
+		balance = accountBalances.get(AccountBalanceMap.key(
+			accountIndex, period.getPeriodNum()));
+		if (balance != null) {
+		    return balance;
+		}
+	    }
+	    if (accountBalanceRepository != null) {
+		balance = accountBalanceRepository.findById(
+			new AccountBalance.Id(ledgerId, accountCode
+				.getAccountCodeId(), period.getPeriodId()),
+			false);
+	    }
+	    if (balance == null) {
+		if (!create) {
+		    return null;
+		}
+		balance = new AccountBalance(this, accountCode, currency,
+			period, period.getPeriodYear(), period.getPeriodNum(),
+			0, 0, 0, 0);
+	    }
+	    if (accountIndex == null) {
+		accountIndex = accountIndexes.size();
+		accountIndexes.put(accountCode.getAccountCodeId(),
+			accountIndex);
+	    }
+	    accountBalances.put(AccountBalanceMap.key(accountIndex,
+		    period.getPeriodNum()), balance);
+	    return balance;
+	}
+    }
+
+    private Lock getLock(AccountBalance balance) {
+	Lock[] locks = getLocks();
+	int h = System.identityHashCode(balance);
+	h ^= h >>> 16;
+	return locks[h & (locks.length - 1)];
+    }
+
+    private Lock[] getLocks() {
+	Lock[] result = locks;
+	if (result == null) {
+	    synchronized (accountBalances) {
+		result = locks;
+		if (result == null) {
+		    result = new Lock[LOCK_STRIPES];
+		    for (int i = 0; i < result.length; i++) {
+			result[i] = new ReentrantLock();
+		    }
+		    locks = result;
+		}
+	    }
+	}
+	return result;
     }
 }
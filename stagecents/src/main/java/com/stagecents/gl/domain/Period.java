@@ -77,6 +77,26 @@ public class Period extends AbstractAnnotatedEntity {
 	return periodNum;
     }
 
+    public String getName() {
+	return name;
+    }
+
+    public LocalDate getStartDate() {
+	return startDate;
+    }
+
+    public LocalDate getEndDate() {
+	return endDate;
+    }
+
+    public LocalDate getYearStartDate() {
+	return yearStartDate;
+    }
+
+    public boolean isAdjustmentPeriod() {
+	return adjustmentPeriod;
+    }
+
     public void setPeriodSet(Calendar calendar) {
 	this.calendar = calendar;
     }
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.gl.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+
+import com.stagecents.common.Utils;
+
+/**
+ * Represents the periods of a calendar sorted by start date, against which a
+ * date is resolved to its period by binary search. Regular and adjustment
+ * periods are held apart, since an adjustment period shares its dates with a
+ * regular period. Dates are compared as primitive epoch days, and the running
+ * maximum end date of the sorted periods lets a lookup find the containing
+ * period even if periods overlap.
+ *
+ * @author Blair Caple
+ */
+class PeriodIndex {
+
+    private final Dates regular;
+    private final Dates adjustment;
+
+    PeriodIndex(Collection<Period> periods) {
+	List<Period> r = new ArrayList<Period>();
+	List<Period> a = new ArrayList<Period>();
+	Iterator<Period> iter = periods.iterator();
+	while (iter.hasNext()) {
+	    Period period = iter.next();
+	    if (period.isAdjustmentPeriod()) {
+		a.add(period);
+	    } else {
+		r.add(period);
+	    }
+	}
+	regular = new Dates(r);
+	adjustment = new Dates(a);
+    }
+
+    /**
+     * Returns the regular or adjustment period that contains the given date,
+     * or null if there is none. If several periods contain the date, the one
+     * that starts last is returned.
+     */
+    Period periodFor(LocalDate date, boolean adjustmentPeriod) {
+	return (adjustmentPeriod ? adjustment : regular).find(Utils
+		.toEpochDay(date));
+    }
+
+    /**
+     * Represents periods sorted by start date, with their start and end epoch
+     * days and the running maximum of their end epoch days.
+     */
+    private static class Dates {
+	final Period[] periods;
+	final long[] starts;
+	final long[] maxEnds;
+
+	Dates(List<Period> list) {
+	    Collections.sort(list, new StartDateComparator());
+	    int n = list.size();
+	    periods = list.toArray(new Period[n]);
+	    starts = new long[n];
+	    maxEnds = new long[n];
+	    for (int i = 0; i < n; i++) {
+		starts[i] = Utils.toEpochDay(periods[i].getStartDate());
+		long end = Utils.toEpochDay(periods[i].getEndDate());
+		maxEnds[i] = (i > 0) ? Math.max(maxEnds[i - 1], end) : end;
+	    }
+	}
+
+	Period find(long key) {
+	    // Find the last period that starts on or before the key.
+	    int low = 0;
+	    int high = starts.length - 1;
+	    while (low <= high) {
+		int mid = (low + high) >>> 1;
+		if (starts[mid] <= key) {
+		    low = mid + 1;
+		} else {
+		    high = mid - 1;
+		}
+	    }
+	    // Step back while an earlier period may still contain the key.
+	    for (int i = high; i >= 0 && maxEnds[i] >= key; i--) {
+		if (Utils.toEpochDay(periods[i].getEndDate()) >= key) {
+		    return periods[i];
+		}
+	    }
+	    return null;
+	}
+    }
+
+    private static class StartDateComparator implements Comparator<Period> {
+
+	@Override
+	public int compare(Period o1, Period o2) {
+	    return o1.getStartDate().compareTo(o2.getStartDate());
+	}
+    }
+}
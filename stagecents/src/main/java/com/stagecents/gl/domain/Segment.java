@@ -86,6 +86,10 @@ public class Segment extends AbstractAnnotatedEntity {
 	return sequence;
     }
 
+    public boolean isEnabled() {
+	return enabled;
+    }
+
     public int getLength() {
 	return length;
     }
@@ -133,7 +137,28 @@ public class Segment extends AbstractAnnotatedEntity {
 	public int compare(SegmentValue o1, SegmentValue o2) {
 	    int s1 = o1.getSequence();
 	    int s2 = o2.getSequence();
-	    return (s1 < s2) ? -1 : ((s1 == s2) ? 0 : 1);
+	    if (s1 != s2) {
+		return (s1 < s2) ? -1 : 1;
+	    }
+	    // Values of a segment share its sequence, so order them by value
+	    // and then by identifier.
+	    int result = compareValues(o1.getValue(), o2.getValue());
+	    if (result == 0) {
+		result = compareValues(o1.getMinimumValue(),
+			o2.getMinimumValue());
+	    }
+	    if (result == 0) {
+		result = compareValues(o1.getSegmentValueId(),
+			o2.getSegmentValueId());
+	    }
+	    return result;
+	}
+
+	private int compareValues(String v1, String v2) {
+	    if (v1 == null) {
+		return (v2 == null) ? 0 : -1;
+	    }
+	    return (v2 == null) ? 1 : v1.compareTo(v2);
 	}
 
     }
@@ -62,7 +62,9 @@ public class SegmentValue extends AbstractAnnotatedEntity {
 
     public void setSegment(Segment segment) {
 	this.segment = segment;
-	sequence = segment.getSequence();
+	if (segment != null) {
+	    sequence = segment.getSequence();
+	}
     }
 
     public int getSequence() {
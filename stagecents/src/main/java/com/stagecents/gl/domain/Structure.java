@@ -23,6 +23,7 @@ package com.stagecents.gl.domain;
 
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -31,6 +32,7 @@ import org.axonframework.eventhandling.annotation.EventHandler;
 import org.axonframework.eventsourcing.annotation.AbstractAnnotatedAggregateRoot;
 import org.axonframework.eventsourcing.annotation.AggregateIdentifier;
 
+import com.stagecents.common.infrastructure.SnapshotSource;
 import com.stagecents.gl.api.command.ChartOfAccountsGeneratedEvent;
 import com.stagecents.gl.api.command.CreateSegmentValueCommand;
 import com.stagecents.gl.api.command.DisableStructureCommand;
@@ -41,6 +43,7 @@ import com.stagecents.gl.api.command.GenerateChartOfAccountsCommand;
 import com.stagecents.gl.api.command.SegmentDTO;
 import com.stagecents.gl.api.command.SegmentValueCreatedEvent;
 import com.stagecents.gl.api.command.SegmentValueDTO;
+import com.stagecents.gl.api.command.SegmentValueDeletedEvent;
 import com.stagecents.gl.api.command.StructureCreatedEvent;
 import com.stagecents.gl.api.command.StructureDTO;
 import com.stagecents.gl.api.command.StructureDisabledEvent;
@@ -48,6 +51,7 @@ import com.stagecents.gl.api.command.StructureEnabledEvent;
 import com.stagecents.gl.api.command.StructureFrozenEvent;
 import com.stagecents.gl.api.command.StructureUnfrozenEvent;
 import com.stagecents.gl.api.command.UnfreezeStructureCommand;
+import com.stagecents.gl.api.service.AccountCodeSink;
 import com.stagecents.gl.api.service.AccountGenerator;
 
 /**
@@ -56,7 +60,11 @@ import com.stagecents.gl.api.service.AccountGenerator;
  * 
  * @author Blair Caple
  */
-public class Structure extends AbstractAnnotatedAggregateRoot<StructureId> {
+public class Structure extends AbstractAnnotatedAggregateRoot<StructureId>
+	implements SnapshotSource {
+
+    // Number of account codes written to a sink at a time.
+    private static final int CHUNK_SIZE = 1000;
 
     @AggregateIdentifier
     private StructureId structureId;
@@ -70,6 +78,12 @@ public class Structure extends AbstractAnnotatedAggregateRoot<StructureId> {
     private SortedSet<AccountCode> chartOfAccounts = new TreeSet<AccountCode>(
 	    new AccountCodeComparator());
 
+    // Size of a chart of accounts written to a sink.
+    private long streamedAccountCodes;
+
+    // Compiled account code index, rebuilt when segment values change.
+    private transient volatile AccountCodeIndex accountCodeIndex;
+
     Structure() {
     }
 
@@ -82,6 +96,10 @@ public class Structure extends AbstractAnnotatedAggregateRoot<StructureId> {
 	return structureId;
     }
 
+    public String getName() {
+	return name;
+    }
+
     public boolean isEnabled() {
 	return enabled;
     }
@@ -98,12 +116,46 @@ public class Structure extends AbstractAnnotatedAggregateRoot<StructureId> {
         return chartOfAccounts;
     }
 
+    /**
+     * Returns the number of account codes in the chart of accounts, whether
+     * held by this structure or written to a sink.
+     *
+     * @return The number of account codes.
+     */
+    public long getChartOfAccountsSize() {
+	return chartOfAccounts.isEmpty() ? streamedAccountCodes
+		: chartOfAccounts.size();
+    }
+
+    /**
+     * Returns the compiled index of this structure's account codes.
+     *
+     * @return The account code index.
+     */
+    public AccountCodeIndex getAccountCodeIndex() {
+	AccountCodeIndex result = accountCodeIndex;
+	if (result == null) {
+	    result = new AccountCodeIndex(this);
+	    accountCodeIndex = result;
+	}
+	return result;
+    }
+
+    /**
+     * Returns the number of account codes written to a sink, or 0 if the
+     * chart of accounts is held by this structure.
+     */
+    long getStreamedAccountCodes() {
+	return streamedAccountCodes;
+    }
+
     public void addSegment(Segment segment) {
 	if (frozen) {
 	    throw new FrozenStructureException();
 	}
 	segment.setStructure(this);
 	segments.add(segment);
+	accountCodeIndex = null;
     }
 
     @EventHandler
@@ -125,6 +177,52 @@ public class Structure extends AbstractAnnotatedAggregateRoot<StructureId> {
 	}
     }
 
+    /**
+     * Returns a compact snapshot of this structure's segments and segment
+     * values, from which it is restored without replaying its events.
+     */
+    public Object createSnapshot() {
+	return new StructureSnapshot(this);
+    }
+
+    @EventHandler
+    public void handleSnapshot(StructureSnapshot snapshot) {
+	snapshot.restore(this);
+    }
+
+    /**
+     * Restores this structure from a snapshot. The chart of accounts is made
+     * of the codes at the given combination indexes of the restored segment
+     * values, skipping negative indexes, and of the given codes.
+     */
+    void restore(StructureId structureId, String name, boolean enabled,
+	    boolean frozen, List<Segment> segments, long[] combinations,
+	    List<AccountCode> accountCodes, long streamedAccountCodes) {
+	this.structureId = structureId;
+	this.name = name;
+	this.enabled = enabled;
+	this.frozen = false;
+	this.segments.clear();
+	this.chartOfAccounts.clear();
+	Iterator<Segment> iter = segments.iterator();
+	while (iter.hasNext()) {
+	    addSegment(iter.next());
+	}
+	if (combinations.length > 0) {
+	    AccountGenerator generator = new AccountGenerator(this);
+	    for (int i = 0; i < combinations.length; i++) {
+		if (combinations[i] >= 0) {
+		    chartOfAccounts.add(generator
+			    .getAccountCode(combinations[i]));
+		}
+	    }
+	}
+	chartOfAccounts.addAll(accountCodes);
+	this.streamedAccountCodes = streamedAccountCodes;
+	this.frozen = frozen;
+	accountCodeIndex = null;
+    }
+
     @EventHandler
     public void handleDisableStructure(StructureDisabledEvent event) {
 	enabled = false;
@@ -199,11 +297,49 @@ public class Structure extends AbstractAnnotatedAggregateRoot<StructureId> {
 		    sv.getValue(), sv.getDescription(), sv.getMinimumValue(),
 		    sv.getMaximumValue(), sv.getAccountType());
 	    segment.getSegmentValues().add(segmentValue);
+	    accountCodeIndex = null;
+	}
+    }
+
+    @EventHandler
+    public void handleDeleteSegmentValue(SegmentValueDeletedEvent event) {
+	Iterator<Segment> iter = segments.iterator();
+	while (iter.hasNext()) {
+	    Segment segment = iter.next();
+	    if (segment.getSegmentId().equals(event.getSegmentId())) {
+		Iterator<SegmentValue> it = segment.getSegmentValues()
+			.iterator();
+		while (it.hasNext()) {
+		    if (it.next().getSegmentValueId().equals(
+			    event.getSegmentValueId())) {
+			it.remove();
+			break;
+		    }
+		}
+		break;
+	    }
 	}
+	accountCodeIndex = null;
     }
 
     @EventHandler
-    public void handleGenerateChartOfAccounts() {
+    public void handleGenerateChartOfAccounts(
+	    ChartOfAccountsGeneratedEvent event) {
+	if (event.isStreamed()) {
+	    // The account codes were written to a sink when the command was
+	    // handled and are not held by the structure.
+	    streamedAccountCodes = event.getSize();
+	    return;
+	}
+	AccountGenerator generator = new AccountGenerator(this);
+	checkChartOfAccounts(generator);
+
+	SortedSet<AccountCode> coa = generator.generate();
+	chartOfAccounts.addAll(coa);
+	accountCodeIndex = null;
+    }
+
+    private void checkChartOfAccounts(AccountGenerator generator) {
 	if (segments.isEmpty()) {
 	    throw new IllegalArgumentException(
 		    "Cannot generate COA with no defined segments");
@@ -221,14 +357,10 @@ public class Structure extends AbstractAnnotatedAggregateRoot<StructureId> {
 		    "cannot generate COA with no defined values");
 	}
 
-	AccountGenerator generator = new AccountGenerator(this);
-	if (chartOfAccounts.size() == generator.getNumCombinations()) {
+	if (getChartOfAccountsSize() == generator.size()) {
 	    throw new IllegalArgumentException(
 		    "chart of accounts already exists");
 	}
-
-	SortedSet<AccountCode> coa = generator.generate();
-	chartOfAccounts.addAll(coa);
     }
 
     @CommandHandler
@@ -257,9 +389,24 @@ public class Structure extends AbstractAnnotatedAggregateRoot<StructureId> {
 		command.getSegmentValueDTO()));
     }
 
+    /**
+     * Generates the chart of accounts of this structure. If the command
+     * carries a sink, the account codes are written to it in bounded chunks
+     * and are not held by the structure.
+     */
     @CommandHandler
     public void generateChartOfAccounts(GenerateChartOfAccountsCommand command) {
-	apply(new ChartOfAccountsGeneratedEvent(structureId));
+	AccountGenerator generator = new AccountGenerator(this);
+	checkChartOfAccounts(generator);
+
+	AccountCodeSink sink = command.getSink();
+	if (sink == null) {
+	    apply(new ChartOfAccountsGeneratedEvent(structureId,
+		    generator.size(), false));
+	    return;
+	}
+	long size = generator.generate(sink, CHUNK_SIZE);
+	apply(new ChartOfAccountsGeneratedEvent(structureId, size, true));
     }
 
     private static class SegmentComparator implements Comparator<Segment> {
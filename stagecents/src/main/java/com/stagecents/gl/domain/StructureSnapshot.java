@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.gl.domain;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Represents the state of a structure as a compact binary encoding of its
+ * segment and segment value tree and of its held chart of accounts. The chart
+ * is encoded as the combination index of each held code within the current
+ * segment values, so that exactly the codes generated before any later values
+ * were added are restored. A code whose segment value has since been deleted
+ * is encoded in full.
+ *
+ * @author Blair Caple
+ */
+public final class StructureSnapshot {
+
+    private static final int FORMAT = 2;
+
+    private byte[] data;
+
+    StructureSnapshot() {
+    }
+
+    StructureSnapshot(Structure structure) {
+	ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	DataOutputStream out = new DataOutputStream(bytes);
+	try {
+	    out.writeInt(FORMAT);
+	    out.writeUTF(structure.getIdentifier().getIdentifier());
+	    writeString(out, structure.getName());
+	    out.writeBoolean(structure.isEnabled());
+	    out.writeBoolean(structure.isFrozen());
+	    out.writeLong(structure.getStreamedAccountCodes());
+
+	    out.writeInt(structure.getSegments().size());
+	    Iterator<Segment> iter = structure.getSegments().iterator();
+	    while (iter.hasNext()) {
+		writeSegment(out, iter.next());
+	    }
+	    writeChartOfAccounts(out, structure);
+	    out.flush();
+	} catch (IOException e) {
+	    throw new IllegalStateException("cannot encode structure", e);
+	}
+	data = bytes.toByteArray();
+    }
+
+    /**
+     * Returns the size of the encoded state in bytes.
+     *
+     * @return The size of the snapshot.
+     */
+    public int size() {
+	return data.length;
+    }
+
+    private static void writeSegment(DataOutputStream out, Segment segment)
+	    throws IOException {
+	writeString(out, segment.getSegmentId());
+	writeString(out, segment.getName());
+	out.writeInt(segment.getSequence());
+	out.writeBoolean(segment.isEnabled());
+	out.writeInt(segment.getLength());
+	out.writeBoolean(segment.isNaturalAccountSegment());
+	out.writeBoolean(segment.isCostCenterSegment());
+
+	out.writeInt(segment.getSegmentValues().size());
+	Iterator<SegmentValue> iter = segment.getSegmentValues().iterator();
+	while (iter.hasNext()) {
+	    SegmentValue value = iter.next();
+	    writeString(out, value.getSegmentValueId());
+	    writeString(out, value.getValue());
+	    writeString(out, value.getDescription());
+	    writeString(out, value.getMinimumValue());
+	    writeString(out, value.getMaximumValue());
+	    AccountType type = value.getAccountType();
+	    out.writeByte((type == null) ? -1 : type.ordinal());
+	}
+    }
+
+    private static void writeChartOfAccounts(DataOutputStream out,
+	    Structure structure) throws IOException {
+	AccountCodeIndex index = structure.getAccountCodeIndex();
+	out.writeInt(structure.getChartOfAccounts().size());
+	Iterator<AccountCode> iter = structure.getChartOfAccounts().iterator();
+	while (iter.hasNext()) {
+	    AccountCode accountCode = iter.next();
+	    long combination = accountCode.getCombination(index);
+	    out.writeLong(combination);
+	    if (combination < 0) {
+		writeString(out, accountCode.getAccountCodeId());
+		writeString(out, accountCode.getValue());
+		writeString(out, accountCode.getName());
+		AccountType type = accountCode.getAccountType();
+		out.writeByte((type == null) ? -1 : type.ordinal());
+	    }
+	}
+    }
+
+    /**
+     * Restores the state of the given empty structure from this snapshot.
+     */
+    void restore(Structure structure) {
+	DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+		data));
+	try {
+	    if (in.readInt() != FORMAT) {
+		throw new IllegalStateException("unknown snapshot format");
+	    }
+	    StructureId structureId = new StructureId(in.readUTF());
+	    String name = readString(in);
+	    boolean enabled = in.readBoolean();
+	    boolean frozen = in.readBoolean();
+	    long streamedAccountCodes = in.readLong();
+
+	    int n = in.readInt();
+	    List<Segment> segments = new ArrayList<Segment>(n);
+	    for (int i = 0; i < n; i++) {
+		segments.add(readSegment(in, structure));
+	    }
+
+	    AccountType[] types = AccountType.values();
+	    n = in.readInt();
+	    long[] combinations = new long[n];
+	    List<AccountCode> accountCodes = new ArrayList<AccountCode>();
+	    for (int i = 0; i < n; i++) {
+		combinations[i] = in.readLong();
+		if (combinations[i] < 0) {
+		    String accountCodeId = readString(in);
+		    String value = readString(in);
+		    String codeName = readString(in);
+		    int type = in.readByte();
+		    accountCodes.add(new AccountCode(accountCodeId, structure,
+			    (type < 0) ? null : types[type], codeName, value,
+			    null));
+		}
+	    }
+	    structure.restore(structureId, name, enabled, frozen, segments,
+		    combinations, accountCodes, streamedAccountCodes);
+	} catch (IOException e) {
+	    throw new IllegalStateException("cannot decode structure", e);
+	}
+    }
+
+    private static Segment readSegment(DataInputStream in, Structure structure)
+	    throws IOException {
+	Segment segment = new Segment(readString(in), readString(in),
+		structure, in.readInt(), in.readBoolean(), in.readInt(),
+		in.readBoolean(), in.readBoolean());
+	AccountType[] types = AccountType.values();
+	int n = in.readInt();
+	for (int i = 0; i < n; i++) {
+	    String segmentValueId = readString(in);
+	    String value = readString(in);
+	    String description = readString(in);
+	    String minimumValue = readString(in);
+	    String maximumValue = readString(in);
+	    int type = in.readByte();
+	    segment.getSegmentValues().add(
+		    new SegmentValue(segmentValueId, segment, segment
+			    .getSequence(), value, description, minimumValue,
+			    maximumValue, (type < 0) ? null : types[type]));
+	}
+	return segment;
+    }
+
+    private static void writeString(DataOutputStream out, String s)
+	    throws IOException {
+	out.writeBoolean(s != null);
+	if (s != null) {
+	    out.writeUTF(s);
+	}
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+	return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,453 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.gl.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.axonframework.eventhandling.annotation.EventHandler;
+import org.axonframework.eventhandling.replay.ReplayAware;
+
+import com.stagecents.common.FixedPoint;
+import com.stagecents.gl.api.command.JournalEntryPostedEvent;
+import com.stagecents.gl.domain.AccountBalance;
+import com.stagecents.gl.domain.AccountCode;
+import com.stagecents.gl.domain.AccountCodeIndex;
+import com.stagecents.gl.domain.AccountType;
+import com.stagecents.gl.domain.Calendar;
+import com.stagecents.gl.domain.JournalEntry;
+import com.stagecents.gl.domain.JournalEntryLine;
+import com.stagecents.gl.domain.Ledger;
+import com.stagecents.gl.domain.Period;
+import com.stagecents.gl.domain.Segment;
+import com.stagecents.gl.domain.Structure;
+import com.stagecents.gl.query.repository.AccountBalanceRepository;
+import com.stagecents.gl.query.repository.JournalRepository;
+
+/**
+ * Represents the cached aggregates of a ledger's balances, by account code, by
+ * value of every segment of the structure, by natural account type and in
+ * total, for every period of the calendar. Balances over a range of periods,
+ * i.e. period-to-date, year-to-date or any other range, are summed from the
+ * per-period aggregates on request, so that a trial balance costs one pass
+ * over the accounts posted to and a segment rollup one pass over the values of
+ * the segment.
+ * <p>
+ * A rollup is loaded from the ledger's balances stored in the account balance
+ * repository, since a ledger holds only the balances posted or read since it
+ * was loaded. It is then maintained incrementally from
+ * <code>JournalEntryPostedEvent</code>s, or by calling <code>post()</code> for
+ * each journal entry posted. Amounts are in minor units of the ledger's
+ * currency. When the structure's account code index changes, e.g. because
+ * segment values were added, the segment aggregates are rebuilt from the
+ * account code aggregates. A rollup is thread safe.
+ * <p>
+ * When the events are replayed, the stored balances already reflect every
+ * entry replayed. The aggregates are therefore cleared before a replay and
+ * rebuilt from the replayed events alone, and are loaded again from the stored
+ * balances if the replay fails.
+ *
+ * @author Blair Caple
+ */
+public class BalanceRollup implements ReplayAware {
+
+    private final Ledger ledger;
+    private final Structure structure;
+    private final int scale;
+    private AccountCodeIndex index;
+    private int segmentCount;
+    private JournalRepository journalRepository;
+    private final AccountBalanceRepository accountBalanceRepository;
+
+    // Position of each period of the calendar, and the position of the first
+    // period of its year.
+    private final Period[] periods;
+    private final Map<String, Integer> periodPositions =
+	    new HashMap<String, Integer>();
+    private final int[] yearStart;
+
+    // Aggregates indexed by [ordinal * periods + position] for each segment,
+    // by [type * periods + position] for account types, and by position for
+    // the ledger total. Debits and credits are interleaved.
+    private long[][] segmentTotals;
+    private final long[] typeTotals;
+    private final long[] ledgerTotals;
+    private final Map<String, AccountTotals> accountTotals =
+	    new LinkedHashMap<String, AccountTotals>();
+    private int[] ordinals;
+
+    public BalanceRollup(Ledger ledger, Structure structure,
+	    Calendar calendar,
+	    AccountBalanceRepository accountBalanceRepository) {
+	this.ledger = ledger;
+	this.structure = structure;
+	this.scale = FixedPoint.getScale(ledger.getCurrency());
+	this.accountBalanceRepository = accountBalanceRepository;
+
+	int n = calendar.getPeriods().size();
+	periods = calendar.getPeriods().toArray(new Period[n]);
+	yearStart = new int[n];
+	for (int i = 0; i < n; i++) {
+	    periodPositions.put(periods[i].getPeriodId(), i);
+	    boolean sameYear = i > 0
+		    && periods[i].getPeriodYear() == periods[i - 1]
+			    .getPeriodYear();
+	    yearStart[i] = sameYear ? yearStart[i - 1] : i;
+	}
+
+	typeTotals = new long[AccountType.values().length * n * 2];
+	ledgerTotals = new long[n * 2];
+
+	createSegmentTotals();
+	load();
+    }
+
+    public void setJournalRepository(JournalRepository journalRepository) {
+	this.journalRepository = journalRepository;
+    }
+
+    /**
+     * Allocates empty segment aggregates for the current account code index
+     * of the structure.
+     */
+    private void createSegmentTotals() {
+	index = structure.getAccountCodeIndex();
+	segmentCount = index.getSegmentCount();
+	segmentTotals = new long[segmentCount][];
+	ordinals = new int[segmentCount];
+	int n = periods.length;
+	Iterator<Segment> iter = structure.getSegments().iterator();
+	for (int i = 0; iter.hasNext(); i++) {
+	    int values = iter.next().getSegmentValues().size();
+	    segmentTotals[i] = new long[values * n * 2];
+	}
+    }
+
+    /**
+     * Rebuilds the segment aggregates from the account code aggregates if the
+     * structure's account code index has changed since they were built. The
+     * ordinals of the old index no longer match the segment values, and codes
+     * with new values could not be resolved against it.
+     */
+    private void checkIndex() {
+	if (structure.getAccountCodeIndex() == index) {
+	    return;
+	}
+	createSegmentTotals();
+	int n = periods.length;
+	Iterator<AccountTotals> iter = accountTotals.values().iterator();
+	while (iter.hasNext()) {
+	    AccountTotals account = iter.next();
+	    if (account.accountCode.resolve(index, ordinals) < 0) {
+		continue;
+	    }
+	    for (int p = 0; p < n; p++) {
+		addSegmentTotals(p * 2, account.totals[p * 2],
+			account.totals[p * 2 + 1]);
+	    }
+	}
+    }
+
+    private void addSegmentTotals(int offset, long debit, long credit) {
+	int n = periods.length;
+	for (int s = 0; s < segmentCount; s++) {
+	    int i = (ordinals[s] * n) * 2 + offset;
+	    segmentTotals[s][i] = FixedPoint.add(segmentTotals[s][i], debit);
+	    segmentTotals[s][i + 1] = FixedPoint.add(segmentTotals[s][i + 1],
+		    credit);
+	}
+    }
+
+    private void load() {
+	Iterator<AccountBalance> iter = accountBalanceRepository.findByLedger(
+		ledger.getIdentifier()).iterator();
+	while (iter.hasNext()) {
+	    AccountBalance.Snapshot balance = iter.next().snapshot();
+	    Integer position = periodPositions.get(balance.getPeriod()
+		    .getPeriodId());
+	    if (position != null) {
+		add(balance.getAccountCode(), position,
+			balance.getPeriodNetDebit(),
+			balance.getPeriodNetCredit());
+	    }
+	}
+    }
+
+    /**
+     * Empties every aggregate.
+     */
+    private void clear() {
+	Arrays.fill(ledgerTotals, 0);
+	Arrays.fill(typeTotals, 0);
+	accountTotals.clear();
+	createSegmentTotals();
+    }
+
+    public synchronized void beforeReplay() {
+	clear();
+    }
+
+    public void afterReplay() {
+    }
+
+    public synchronized void onReplayFailed(Throwable cause) {
+	clear();
+	load();
+    }
+
+    /**
+     * Updates the aggregates with the lines of the posted journal entry,
+     * which is loaded from the journal repository.
+     */
+    @EventHandler
+    public void handlePost(JournalEntryPostedEvent event) {
+	if (journalRepository == null) {
+	    throw new IllegalStateException("missing journal repository");
+	}
+	post(journalRepository.findById(event.getJournalEntryId(), false));
+    }
+
+    /**
+     * Updates the aggregates with the lines of the given posted journal
+     * entry. Entries of other ledgers and periods outside the calendar are
+     * ignored.
+     *
+     * @param entry The posted journal entry.
+     */
+    public synchronized void post(JournalEntry entry) {
+	if (!entry.getLedger().getIdentifier().equals(ledger.getIdentifier())) {
+	    return;
+	}
+	Integer position = periodPositions.get(entry.getPeriod().getPeriodId());
+	if (position == null) {
+	    return;
+	}
+	checkIndex();
+	Iterator<JournalEntryLine> iter = entry.getJournalEntryLines()
+		.iterator();
+	while (iter.hasNext()) {
+	    JournalEntryLine line = iter.next();
+	    add(line.getAccountCode(), position, line.getDebit(),
+		    line.getCredit());
+	}
+    }
+
+    private synchronized void add(AccountCode accountCode, int position,
+	    long debit, long credit) {
+	int n = periods.length;
+	int offset = position * 2;
+
+	// The ledger total is added to first, as it is the first to overflow.
+	ledgerTotals[offset] = FixedPoint.add(ledgerTotals[offset], debit);
+	ledgerTotals[offset + 1] = FixedPoint.add(ledgerTotals[offset + 1],
+		credit);
+
+	AccountTotals account = accountTotals.get(accountCode
+		.getAccountCodeId());
+	if (account == null) {
+	    account = new AccountTotals(accountCode, n);
+	    accountTotals.put(accountCode.getAccountCodeId(), account);
+	}
+	account.totals[offset] = FixedPoint.add(account.totals[offset], debit);
+	account.totals[offset + 1] = FixedPoint.add(account.totals[offset + 1],
+		credit);
+
+	if (accountCode.getAccountType() != null) {
+	    int i = (accountCode.getAccountType().ordinal() * n) * 2 + offset;
+	    typeTotals[i] = FixedPoint.add(typeTotals[i], debit);
+	    typeTotals[i + 1] = FixedPoint.add(typeTotals[i + 1], credit);
+	}
+
+	if (accountCode.resolve(index, ordinals) >= 0) {
+	    addSegmentTotals(offset, debit, credit);
+	}
+    }
+
+    /**
+     * Returns the balance of every account code posted to over the given
+     * range of periods, in order of first posting.
+     *
+     * @param from The first period of the range.
+     * @param to The last period of the range.
+     * @return A list of balances, each with its account code.
+     */
+    public synchronized List<Total> getTrialBalance(Period from, Period to) {
+	int first = getPosition(from);
+	int last = getPosition(to);
+	List<Total> result = new ArrayList<Total>(accountTotals.size());
+	Iterator<AccountTotals> iter = accountTotals.values().iterator();
+	while (iter.hasNext()) {
+	    AccountTotals account = iter.next();
+	    result.add(sum(account.accountCode, null, account.totals, 0,
+		    first, last));
+	}
+	return result;
+    }
+
+    /**
+     * Returns the balance of every value of the given segment over the given
+     * range of periods, in the order of the segment's values.
+     *
+     * @param segment The position of the segment in the structure.
+     * @param from The first period of the range.
+     * @param to The last period of the range.
+     * @return A list of balances, each with its segment value.
+     */
+    public synchronized List<Total> getSegmentRollup(int segment, Period from,
+	    Period to) {
+	checkIndex();
+	int first = getPosition(from);
+	int last = getPosition(to);
+	int n = periods.length;
+	int values = segmentTotals[segment].length / (n * 2);
+	List<Total> result = new ArrayList<Total>(values);
+	for (int v = 0; v < values; v++) {
+	    result.add(sum(null, index.getSegmentValue(segment, v).getValue(),
+		    segmentTotals[segment], v * n, first, last));
+	}
+	return result;
+    }
+
+    /**
+     * Returns the balance of the given natural account type over the given
+     * range of periods.
+     *
+     * @param type The account type.
+     * @param from The first period of the range.
+     * @param to The last period of the range.
+     * @return The balance.
+     */
+    public synchronized Total getAccountTypeTotal(AccountType type,
+	    Period from, Period to) {
+	return sum(null, type.getMeaning(), typeTotals, type.ordinal()
+		* periods.length, getPosition(from), getPosition(to));
+    }
+
+    /**
+     * Returns the balance of the ledger over the given range of periods.
+     *
+     * @param from The first period of the range.
+     * @param to The last period of the range.
+     * @return The balance.
+     */
+    public synchronized Total getLedgerTotal(Period from, Period to) {
+	return sum(null, null, ledgerTotals, 0, getPosition(from),
+		getPosition(to));
+    }
+
+    /**
+     * Returns the first period of the year of the given period, from which a
+     * year-to-date balance is summed.
+     *
+     * @param period The period.
+     * @return The first period of the year.
+     */
+    public Period getYearStart(Period period) {
+	return periods[yearStart[getPosition(period)]];
+    }
+
+    private int getPosition(Period period) {
+	Integer position = periodPositions.get(period.getPeriodId());
+	if (position == null) {
+	    throw new IllegalArgumentException("period not in calendar");
+	}
+	return position;
+    }
+
+    private Total sum(AccountCode accountCode, String key, long[] totals,
+	    int row, int first, int last) {
+	if (last < first) {
+	    throw new IllegalArgumentException("invalid period range");
+	}
+	long debit = 0;
+	long credit = 0;
+	for (int p = first; p <= last; p++) {
+	    int i = (row + p) * 2;
+	    debit = FixedPoint.add(debit, totals[i]);
+	    credit = FixedPoint.add(credit, totals[i + 1]);
+	}
+	return new Total(accountCode, key, scale, debit, credit);
+    }
+
+    /**
+     * Represents the per-period aggregates of one account code.
+     */
+    private static class AccountTotals {
+	final AccountCode accountCode;
+	final long[] totals;
+
+	AccountTotals(AccountCode accountCode, int periods) {
+	    this.accountCode = accountCode;
+	    this.totals = new long[periods * 2];
+	}
+    }
+
+    /**
+     * Represents a debit and credit balance, in minor units, of an account
+     * code or of a segment value, account type or ledger.
+     */
+    public static class Total {
+	private final AccountCode accountCode;
+	private final String key;
+	private final int scale;
+	private final long debit;
+	private final long credit;
+
+	Total(AccountCode accountCode, String key, int scale, long debit,
+		long credit) {
+	    this.accountCode = accountCode;
+	    this.key = key;
+	    this.scale = scale;
+	    this.debit = debit;
+	    this.credit = credit;
+	}
+
+	public AccountCode getAccountCode() {
+	    return accountCode;
+	}
+
+	public String getKey() {
+	    return key;
+	}
+
+	public int getScale() {
+	    return scale;
+	}
+
+	public long getDebit() {
+	    return debit;
+	}
+
+	public long getCredit() {
+	    return credit;
+	}
+
+	public long getNet() {
+	    return debit - credit;
+	}
+    }
+}
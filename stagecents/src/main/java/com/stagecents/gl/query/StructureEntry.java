@@ -28,6 +28,7 @@ public class StructureEntry {
 
     private String identifier;
     private String name;
+    private boolean enabled;
     private boolean frozen;
     private List<SegmentEntry> segments = new ArrayList<SegmentEntry>();
 
@@ -47,6 +48,14 @@ public class StructureEntry {
 	this.name = name;
     }
 
+    public boolean isEnabled() {
+	return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+	this.enabled = enabled;
+    }
+
     public boolean isFrozen() {
 	return frozen;
     }
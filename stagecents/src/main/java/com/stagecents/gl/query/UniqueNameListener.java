@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.gl.query;
+
+import org.axonframework.eventhandling.annotation.EventHandler;
+import org.axonframework.eventhandling.replay.ReplayAware;
+
+import com.stagecents.common.infrastructure.UniquenessIndex;
+import com.stagecents.gl.api.command.CalendarCreatedEvent;
+import com.stagecents.gl.api.command.LedgerCreatedEvent;
+import com.stagecents.gl.api.command.StructureCreatedEvent;
+
+/**
+ * Registers the names of structures, calendars and ledgers in the uniqueness
+ * index from their creation events.
+ *
+ * @author Blair Caple
+ */
+public class UniqueNameListener implements ReplayAware {
+
+    public static final String STRUCTURE_NAME = "Structure.name";
+    public static final String CALENDAR_NAME = "Calendar.name";
+    public static final String LEDGER_NAME = "Ledger.name";
+    public static final String LEDGER_SHORT_NAME = "Ledger.shortName";
+
+    private UniquenessIndex uniquenessIndex;
+
+    public void setUniquenessIndex(UniquenessIndex uniquenessIndex) {
+	this.uniquenessIndex = uniquenessIndex;
+    }
+
+    @EventHandler
+    public void handle(StructureCreatedEvent event) {
+	uniquenessIndex.register(STRUCTURE_NAME, null, event.getStructureDTO()
+		.getName(), event.getStructureId());
+    }
+
+    @EventHandler
+    public void handle(CalendarCreatedEvent event) {
+	uniquenessIndex.register(CALENDAR_NAME, null, event.getCalendatDTO()
+		.getName(), event.getCalendarId());
+    }
+
+    @EventHandler
+    public void handle(LedgerCreatedEvent event) {
+	uniquenessIndex.register(LEDGER_NAME, null, event.getLedgerDTO()
+		.getName(), event.getLedgerId());
+	uniquenessIndex.register(LEDGER_SHORT_NAME, null, event
+		.getLedgerDTO().getShortName(), event.getLedgerId());
+    }
+
+    public void beforeReplay() {
+	uniquenessIndex.clear(STRUCTURE_NAME);
+	uniquenessIndex.clear(CALENDAR_NAME);
+	uniquenessIndex.clear(LEDGER_NAME);
+	uniquenessIndex.clear(LEDGER_SHORT_NAME);
+    }
+
+    public void afterReplay() {
+    }
+
+    public void onReplayFailed(Throwable cause) {
+    }
+}
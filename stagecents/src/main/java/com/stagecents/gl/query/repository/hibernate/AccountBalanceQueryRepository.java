@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.gl.query.repository.hibernate;
+
+import java.util.List;
+
+import org.hibernate.Query;
+import org.hibernate.Session;
+
+import com.stagecents.common.hibernate.BaseJpaRepository;
+import com.stagecents.gl.domain.AccountBalance;
+import com.stagecents.gl.domain.LedgerId;
+import com.stagecents.gl.query.repository.AccountBalanceRepository;
+
+/**
+ * Persists account balances in the current session. Balances are flushed and
+ * then evicted in batches whose size should match the
+ * <code>hibernate.jdbc.batch_size</code> setting, so that each flush is sent to
+ * the database as one JDBC batch per statement type.
+ *
+ * @author Blair Caple
+ */
+public class AccountBalanceQueryRepository extends
+	BaseJpaRepository<AccountBalance, AccountBalance.Id> implements
+	AccountBalanceRepository {
+
+    private static final int BATCH_SIZE = 50;
+
+    public void saveAll(List<AccountBalance> accountBalances) {
+	Session session = getSession();
+	int n = accountBalances.size();
+	for (int from = 0; from < n; from += BATCH_SIZE) {
+	    int to = Math.min(from + BATCH_SIZE, n);
+	    for (int i = from; i < to; i++) {
+		session.saveOrUpdate(accountBalances.get(i));
+	    }
+	    session.flush();
+	    for (int i = from; i < to; i++) {
+		session.evict(accountBalances.get(i));
+	    }
+	}
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<AccountBalance> findByLedger(LedgerId ledgerId) {
+	String hql = "from AccountBalance ab where ab.id.ledgerId = :ledgerId";
+	Query q = getSession().createQuery(hql);
+	q.setString("ledgerId", ledgerId.getIdentifier());
+	return q.list();
+    }
+}
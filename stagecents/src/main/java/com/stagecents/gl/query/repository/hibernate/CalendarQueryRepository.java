@@ -32,10 +32,11 @@ public class CalendarQueryRepository extends
 	BaseJpaRepository<Calendar, CalendarId> implements CalendarRepository {
 
     public boolean checkUnique(CalendarId calendarId, String name) {
-	String hql = "from Calendar c where c.name = :name and c.calendarId != :calendarId";
+	String hql = "select count(*) from Calendar c where c.name = :name "
+		+ "and c.calendarId != :calendarId";
 	Query q = getSession().createQuery(hql);
 	q.setString("calendarId", calendarId.getIdentifier());
 	q.setString("name", name);
-	return q.list().isEmpty();
+	return ((Long) q.uniqueResult()) == 0;
     }
 }
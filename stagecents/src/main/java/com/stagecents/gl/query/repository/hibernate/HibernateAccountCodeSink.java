@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.gl.query.repository.hibernate;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.stagecents.gl.api.service.AccountCodeSink;
+import com.stagecents.gl.domain.AccountCode;
+
+/**
+ * Persists generated account codes in the current session. Encoded codes are
+ * materialized first, since their identifier, value and name are otherwise
+ * only formatted by their getters. Each chunk is flushed and then evicted
+ * from the session, so that the session never holds more than one chunk of
+ * account codes.
+ *
+ * @author Blair Caple
+ */
+public class HibernateAccountCodeSink implements AccountCodeSink {
+
+    private SessionFactory sessionFactory;
+
+    @Autowired(required = true)
+    public void setSessionFactory(SessionFactory sessionFactory) {
+	this.sessionFactory = sessionFactory;
+    }
+
+    public void write(List<AccountCode> accountCodes) {
+	Session session = sessionFactory.getCurrentSession();
+	Iterator<AccountCode> iter = accountCodes.iterator();
+	while (iter.hasNext()) {
+	    AccountCode accountCode = iter.next();
+	    accountCode.materialize();
+	    session.saveOrUpdate(accountCode);
+	}
+	session.flush();
+
+	iter = accountCodes.iterator();
+	while (iter.hasNext()) {
+	    session.evict(iter.next());
+	}
+    }
+}
@@ -33,20 +33,22 @@ public class LedgerQueryRepository extends BaseJpaRepository<Ledger, LedgerId>
 
     @Override
     public boolean checkUniqueName(String name, LedgerId ledgerId) {
-	String hql = "from Ledger sob where sob.name = :name and sob.ledgerId != :ledgerId";
+	String hql = "select count(*) from Ledger sob where sob.name = :name "
+		+ "and sob.ledgerId != :ledgerId";
 	Query q = getSession().createQuery(hql);
 	q.setString("name", name);
 	q.setString("ledgerId", ledgerId.getIdentifier());
-	return q.list().isEmpty();
+	return ((Long) q.uniqueResult()) == 0;
     }
 
     @Override
     public boolean checkUniqueShortName(String shortName, LedgerId ledgerId) {
-	String hql = "from Ledger osb where sob.shortName = :shortName "
+	String hql = "select count(*) from Ledger sob "
+		+ "where sob.shortName = :shortName "
 		+ "and sob.ledgerId != :ledgerId";
 	Query q = getSession().createQuery(hql);
 	q.setString("shortName", shortName);
 	q.setString("ledgerId", ledgerId.getIdentifier());
-	return q.list().isEmpty();
+	return ((Long) q.uniqueResult()) == 0;
     }
 }
@@ -33,10 +33,11 @@ public class StructureQueryRepository extends
 	StructureRepository {
 
     public boolean checkDuplicateStructure(StructureId structureId, String name) {
-	String hql = "from Structure s where name = :name and s.structureId != :structureId";
+	String hql = "select count(*) from Structure s where s.name = :name "
+		+ "and s.structureId != :structureId";
 	Query q = getSession().createQuery(hql);
 	q.setString("structureId", structureId.getIdentifier());
 	q.setString("name", name);
-	return q.list().isEmpty();
+	return ((Long) q.uniqueResult()) == 0;
     }
 }
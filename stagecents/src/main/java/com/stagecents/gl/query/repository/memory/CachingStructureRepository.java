@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.gl.query.repository.memory;
+
+import com.stagecents.common.infrastructure.CachingRepository;
+import com.stagecents.common.infrastructure.ReferenceCache;
+import com.stagecents.gl.domain.Structure;
+import com.stagecents.gl.domain.StructureId;
+import com.stagecents.gl.query.repository.StructureRepository;
+
+/**
+ * Reads structures through a cache in front of the structure repository.
+ *
+ * @author Blair Caple
+ */
+public class CachingStructureRepository extends
+	CachingRepository<Structure, StructureId> implements
+	StructureRepository {
+
+    private final StructureRepository delegate;
+
+    public CachingStructureRepository(StructureRepository delegate,
+	    ReferenceCache<StructureId, Structure> cache) {
+	super(delegate, cache, StructureId.class);
+	this.delegate = delegate;
+    }
+
+    public boolean checkDuplicateStructure(StructureId structureId,
+	    String name) {
+	return delegate.checkDuplicateStructure(structureId, name);
+    }
+}
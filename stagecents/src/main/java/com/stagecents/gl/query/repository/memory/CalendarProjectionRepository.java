@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.gl.query.repository.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import org.axonframework.eventhandling.annotation.EventHandler;
+import org.axonframework.eventhandling.replay.ReplayAware;
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+
+import com.stagecents.gl.api.command.CalendarCreatedEvent;
+import com.stagecents.gl.api.command.CalendarDTO;
+import com.stagecents.gl.api.command.PeriodDTO;
+import com.stagecents.gl.domain.Calendar;
+import com.stagecents.gl.domain.CalendarId;
+import com.stagecents.gl.query.CalendarEntry;
+import com.stagecents.gl.query.PeriodEntry;
+import com.stagecents.gl.query.repository.CalendarRepository;
+
+/**
+ * Maintains an in-memory read model of calendars and their periods from the
+ * calendar events, in front of the calendar repository. Lookups of
+ * <code>CalendarEntry</code>s read the model without locking or a database
+ * round trip. Loading and checking <code>Calendar</code> aggregates is
+ * delegated to the wrapped repository.
+ * <p>
+ * The model is rebuilt by replaying the event store at startup. The periods
+ * of an entry are in start date order, and entries must not be modified by
+ * readers.
+ *
+ * @author Blair Caple
+ */
+public class CalendarProjectionRepository implements CalendarRepository,
+	ReplayAware {
+
+    private CalendarRepository delegate;
+    private final EntryIndex<CalendarEntry> index =
+	    new EntryIndex<CalendarEntry>(new Comparator<CalendarEntry>() {
+		public int compare(CalendarEntry o1, CalendarEntry o2) {
+		    return StructureProjectionRepository.compareNames(
+			    o1.getName(), o2.getName());
+		}
+	    });
+
+    public void setDelegate(CalendarRepository delegate) {
+	this.delegate = delegate;
+    }
+
+    /**
+     * Returns the entry of the calendar with the given identifier, or null
+     * if there is none.
+     */
+    public CalendarEntry findEntry(CalendarId calendarId) {
+	return index.get(calendarId.getIdentifier());
+    }
+
+    /**
+     * Returns the entry of the calendar with the given name, or null if there
+     * is none.
+     */
+    public CalendarEntry findEntryByName(String name) {
+	return index.getByName(name);
+    }
+
+    /**
+     * Returns the entries of all calendars in name order.
+     */
+    public List<CalendarEntry> findEntries() {
+	return index.getAll();
+    }
+
+    public Calendar findById(CalendarId identifier, boolean lock) {
+	return delegate.findById(identifier, lock);
+    }
+
+    public List<Calendar> findAll() {
+	return delegate.findAll();
+    }
+
+    public List<Calendar> findByExample(Calendar exampleInstance,
+	    String... excludeProperty) {
+	return delegate.findByExample(exampleInstance, excludeProperty);
+    }
+
+    public boolean checkUnique(CalendarId calendarId, String name) {
+	return delegate.checkUnique(calendarId, name);
+    }
+
+    @EventHandler
+    public synchronized void handle(CalendarCreatedEvent event) {
+	CalendarDTO dto = event.getCalendatDTO();
+	List<PeriodEntry> periods = new ArrayList<PeriodEntry>();
+	CalendarEntry entry = new CalendarEntry(event.getCalendarId(),
+		dto.getName(), dto.getDescription(), periods);
+
+	Iterator<PeriodDTO> iter = dto.getPeriods().iterator();
+	while (iter.hasNext()) {
+	    PeriodDTO p = iter.next();
+	    periods.add(new PeriodEntry(p.getPeriodId(), entry, p.getName(),
+		    p.getDescription(), toDateTime(p.getStartDate()),
+		    toDateTime(p.getEndDate()),
+		    toDateTime(p.getYearStartDate()), p.getPeriodType(),
+		    p.getPeriodYear(), p.getPeriodNum(),
+		    p.isAdjustmentPeriod()));
+	}
+	Collections.sort(periods, new Comparator<PeriodEntry>() {
+	    public int compare(PeriodEntry o1, PeriodEntry o2) {
+		DateTime d1 = o1.getStartDate();
+		DateTime d2 = o2.getStartDate();
+		if (d1 == null) {
+		    return (d2 == null) ? 0 : -1;
+		}
+		return (d2 == null) ? 1 : d1.compareTo(d2);
+	    }
+	});
+	index.put(event.getCalendarId().getIdentifier(), dto.getName(), entry);
+    }
+
+    public synchronized void beforeReplay() {
+	index.clear();
+	index.setLoading(true);
+    }
+
+    public synchronized void afterReplay() {
+	index.setLoading(false);
+    }
+
+    public synchronized void onReplayFailed(Throwable cause) {
+	index.setLoading(false);
+    }
+
+    private static DateTime toDateTime(LocalDate date) {
+	return (date == null) ? null : date.toDateTimeAtStartOfDay();
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.gl.query.repository.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Represents the entries of a read model by identifier and by name, and a
+ * list of all entries in name order. Entries are published whole, so that a
+ * reader never sees an entry that is being changed, and reads do not lock.
+ * Writes must be serialized by the caller. While loading, the list is not
+ * rebuilt until <code>setLoading(false)</code> is called.
+ *
+ * @author Blair Caple
+ */
+class EntryIndex<E> {
+
+    private final ConcurrentMap<String, E> entriesById =
+	    new ConcurrentHashMap<String, E>();
+    private final ConcurrentMap<String, E> entriesByName =
+	    new ConcurrentHashMap<String, E>();
+    private final Map<String, String> names = new HashMap<String, String>();
+    private final Comparator<E> order;
+    private volatile List<E> entries = Collections.emptyList();
+    private boolean loading;
+
+    EntryIndex(Comparator<E> order) {
+	this.order = order;
+    }
+
+    E get(String identifier) {
+	return (identifier == null) ? null : entriesById.get(identifier);
+    }
+
+    E getByName(String name) {
+	return (name == null) ? null : entriesByName.get(name);
+    }
+
+    List<E> getAll() {
+	return entries;
+    }
+
+    /**
+     * Publishes the given entry in place of the previous entry with the same
+     * identifier.
+     */
+    void put(String identifier, String name, E entry) {
+	String previousName = names.put(identifier, name);
+	if (previousName != null && !previousName.equals(name)) {
+	    entriesByName.remove(previousName);
+	}
+	if (name != null) {
+	    entriesByName.put(name, entry);
+	}
+	entriesById.put(identifier, entry);
+	if (!loading) {
+	    rebuild();
+	}
+    }
+
+    void clear() {
+	entriesById.clear();
+	entriesByName.clear();
+	names.clear();
+	entries = Collections.emptyList();
+    }
+
+    void setLoading(boolean loading) {
+	this.loading = loading;
+	if (!loading) {
+	    rebuild();
+	}
+    }
+
+    private void rebuild() {
+	List<E> result = new ArrayList<E>(entriesById.values());
+	Collections.sort(result, order);
+	entries = Collections.unmodifiableList(result);
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.gl.query.repository.memory;
+
+import java.util.Comparator;
+import java.util.List;
+
+import org.axonframework.eventhandling.annotation.EventHandler;
+import org.axonframework.eventhandling.replay.ReplayAware;
+
+import com.stagecents.gl.api.command.LedgerCreatedEvent;
+import com.stagecents.gl.api.command.LedgerDTO;
+import com.stagecents.gl.domain.Ledger;
+import com.stagecents.gl.domain.LedgerId;
+import com.stagecents.gl.query.LedgerEntry;
+import com.stagecents.gl.query.repository.LedgerRepository;
+
+/**
+ * Maintains an in-memory read model of ledgers from the ledger events, in
+ * front of the ledger repository. Lookups of <code>LedgerEntry</code>s read
+ * the model without locking or a database round trip. Loading and checking
+ * <code>Ledger</code> aggregates is delegated to the wrapped repository.
+ * <p>
+ * The model is rebuilt by replaying the event store at startup.
+ *
+ * @author Blair Caple
+ */
+public class LedgerProjectionRepository implements LedgerRepository,
+	ReplayAware {
+
+    private LedgerRepository delegate;
+    private final EntryIndex<LedgerEntry> index =
+	    new EntryIndex<LedgerEntry>(new Comparator<LedgerEntry>() {
+		public int compare(LedgerEntry o1, LedgerEntry o2) {
+		    return StructureProjectionRepository.compareNames(
+			    o1.getName(), o2.getName());
+		}
+	    });
+
+    public void setDelegate(LedgerRepository delegate) {
+	this.delegate = delegate;
+    }
+
+    /**
+     * Returns the entry of the ledger with the given identifier, or null if
+     * there is none.
+     */
+    public LedgerEntry findEntry(LedgerId ledgerId) {
+	return index.get(ledgerId.getIdentifier());
+    }
+
+    /**
+     * Returns the entry of the ledger with the given name, or null if there
+     * is none.
+     */
+    public LedgerEntry findEntryByName(String name) {
+	return index.getByName(name);
+    }
+
+    /**
+     * Returns the entries of all ledgers in name order.
+     */
+    public List<LedgerEntry> findEntries() {
+	return index.getAll();
+    }
+
+    public Ledger findById(LedgerId identifier, boolean lock) {
+	return delegate.findById(identifier, lock);
+    }
+
+    public List<Ledger> findAll() {
+	return delegate.findAll();
+    }
+
+    public List<Ledger> findByExample(Ledger exampleInstance,
+	    String... excludeProperty) {
+	return delegate.findByExample(exampleInstance, excludeProperty);
+    }
+
+    public boolean checkUniqueName(String name, LedgerId ledgerId) {
+	return delegate.checkUniqueName(name, ledgerId);
+    }
+
+    public boolean checkUniqueShortName(String shortName, LedgerId ledgerId) {
+	return delegate.checkUniqueShortName(shortName, ledgerId);
+    }
+
+    @EventHandler
+    public synchronized void handle(LedgerCreatedEvent event) {
+	LedgerDTO dto = event.getLedgerDTO();
+	String calendarId = (dto.getCalendar() == null) ? null : dto
+		.getCalendar().getIdentifier().getIdentifier();
+	String structureId = (dto.getStructure() == null) ? null : dto
+		.getStructure().getIdentifier().getIdentifier();
+	LedgerEntry entry = new LedgerEntry(event.getLedgerId()
+		.getIdentifier(), dto.getName(), dto.getShortName(),
+		dto.getDescription(), dto.getCurrency(), calendarId,
+		structureId);
+	index.put(entry.getIdentifier(), entry.getName(), entry);
+    }
+
+    public synchronized void beforeReplay() {
+	index.clear();
+	index.setLoading(true);
+    }
+
+    public synchronized void afterReplay() {
+	index.setLoading(false);
+    }
+
+    public synchronized void onReplayFailed(Throwable cause) {
+	index.setLoading(false);
+    }
+}
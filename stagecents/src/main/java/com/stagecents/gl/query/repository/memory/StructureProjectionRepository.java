@@ -0,0 +1,336 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.gl.query.repository.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.axonframework.eventhandling.annotation.EventHandler;
+import org.axonframework.eventhandling.replay.ReplayAware;
+
+import com.stagecents.gl.api.command.SegmentDTO;
+import com.stagecents.gl.api.command.SegmentValueCreatedEvent;
+import com.stagecents.gl.api.command.SegmentValueDTO;
+import com.stagecents.gl.api.command.SegmentValueDeletedEvent;
+import com.stagecents.gl.api.command.StructureCreatedEvent;
+import com.stagecents.gl.api.command.StructureDTO;
+import com.stagecents.gl.api.command.StructureDisabledEvent;
+import com.stagecents.gl.api.command.StructureEnabledEvent;
+import com.stagecents.gl.api.command.StructureFrozenEvent;
+import com.stagecents.gl.api.command.StructureUnfrozenEvent;
+import com.stagecents.gl.domain.Structure;
+import com.stagecents.gl.domain.StructureId;
+import com.stagecents.gl.query.SegmentEntry;
+import com.stagecents.gl.query.SegmentValueEntry;
+import com.stagecents.gl.query.StructureEntry;
+import com.stagecents.gl.query.repository.StructureRepository;
+
+/**
+ * Maintains an in-memory read model of structures, their segments and segment
+ * values from the structure events, in front of the structure repository.
+ * Lookups of <code>StructureEntry</code>s read the model without locking or a
+ * database round trip. Loading and checking <code>Structure</code> aggregates
+ * is delegated to the wrapped repository.
+ * <p>
+ * The model is rebuilt by replaying the event store at startup, see
+ * <code>ProjectionReplayer</code>. Structure entries are replaced rather than
+ * changed when an event is applied, and must not be modified by readers. A
+ * segment value event replaces only the list of values of its segment, which
+ * keeps its other values. While replaying, values are added to and removed
+ * from the lists in place, and the lists are published when the replay ends.
+ *
+ * @author Blair Caple
+ */
+public class StructureProjectionRepository implements StructureRepository,
+	ReplayAware {
+
+    private StructureRepository delegate;
+    private final EntryIndex<StructureEntry> index =
+	    new EntryIndex<StructureEntry>(new Comparator<StructureEntry>() {
+		public int compare(StructureEntry o1, StructureEntry o2) {
+		    return compareNames(o1.getName(), o2.getName());
+		}
+	    });
+    private boolean loading;
+    private final Map<SegmentEntry, List<SegmentValueEntry>> loadingValues =
+	    new IdentityHashMap<SegmentEntry, List<SegmentValueEntry>>();
+
+    public void setDelegate(StructureRepository delegate) {
+	this.delegate = delegate;
+    }
+
+    /**
+     * Returns the entry of the structure with the given identifier, or null
+     * if there is none.
+     */
+    public StructureEntry findEntry(StructureId structureId) {
+	return index.get(structureId.getIdentifier());
+    }
+
+    /**
+     * Returns the entry of the structure with the given name, or null if
+     * there is none.
+     */
+    public StructureEntry findEntryByName(String name) {
+	return index.getByName(name);
+    }
+
+    /**
+     * Returns the entries of all structures in name order.
+     */
+    public List<StructureEntry> findEntries() {
+	return index.getAll();
+    }
+
+    public Structure findById(StructureId identifier, boolean lock) {
+	return delegate.findById(identifier, lock);
+    }
+
+    public List<Structure> findAll() {
+	return delegate.findAll();
+    }
+
+    public List<Structure> findByExample(Structure exampleInstance,
+	    String... excludeProperty) {
+	return delegate.findByExample(exampleInstance, excludeProperty);
+    }
+
+    public boolean checkDuplicateStructure(StructureId structureId,
+	    String name) {
+	return delegate.checkDuplicateStructure(structureId, name);
+    }
+
+    @EventHandler
+    public synchronized void handle(StructureCreatedEvent event) {
+	StructureDTO dto = event.getStructureDTO();
+	StructureEntry entry = new StructureEntry();
+	entry.setIdentifier(event.getStructureId().getIdentifier());
+	entry.setName(dto.getName());
+	entry.setEnabled(dto.isEnabled());
+	entry.setFrozen(dto.isFrozen());
+
+	List<SegmentEntry> segments = new ArrayList<SegmentEntry>();
+	Iterator<SegmentDTO> iter = dto.getSegments().iterator();
+	while (iter.hasNext()) {
+	    SegmentDTO s = iter.next();
+	    SegmentEntry segment = new SegmentEntry();
+	    segment.setIdentifier(s.getSegmentId());
+	    segment.setName(s.getName());
+	    segment.setSequence(s.getSequence());
+	    segment.setEnabled(s.isEnabled());
+	    segment.setLength(s.getLength());
+	    segment.setNaturalAccountSegment(s.isNaturalAccountSegment());
+	    segment.setCostCenterSegment(s.isCostCenterSegment());
+	    segment.setSegmentValues(Collections
+		    .<SegmentValueEntry> emptyList());
+	    segments.add(segment);
+	}
+	entry.setSegments(Collections.unmodifiableList(segments));
+	index.put(entry.getIdentifier(), entry.getName(), entry);
+    }
+
+    @EventHandler
+    public synchronized void handle(StructureEnabledEvent event) {
+	StructureEntry entry = copy(event.getStructureId().getIdentifier());
+	if (entry != null) {
+	    entry.setEnabled(true);
+	    index.put(entry.getIdentifier(), entry.getName(), entry);
+	}
+    }
+
+    @EventHandler
+    public synchronized void handle(StructureDisabledEvent event) {
+	StructureEntry entry = copy(event.getStructureId().getIdentifier());
+	if (entry != null) {
+	    entry.setEnabled(false);
+	    index.put(entry.getIdentifier(), entry.getName(), entry);
+	}
+    }
+
+    @EventHandler
+    public synchronized void handle(StructureFrozenEvent event) {
+	StructureEntry entry = copy(event.getStructureId().getIdentifier());
+	if (entry != null) {
+	    entry.setFrozen(true);
+	    index.put(entry.getIdentifier(), entry.getName(), entry);
+	}
+    }
+
+    @EventHandler
+    public synchronized void handle(StructureUnfrozenEvent event) {
+	StructureEntry entry = copy(event.getStructureId().getIdentifier());
+	if (entry != null) {
+	    entry.setFrozen(false);
+	    index.put(entry.getIdentifier(), entry.getName(), entry);
+	}
+    }
+
+    @EventHandler
+    public synchronized void handle(SegmentValueCreatedEvent event) {
+	SegmentValueDTO dto = event.getSegmentValueDTO();
+	SegmentEntry segment = findSegment(event.getStructureId()
+		.getIdentifier(), dto.getSegmentId());
+	if (segment == null) {
+	    return;
+	}
+	SegmentValueEntry value = new SegmentValueEntry();
+	value.setIdentifier(dto.getSegmentValueId());
+	value.setSegmentEntry(segment);
+	value.setSequence(segment.getSequence());
+	value.setValue(dto.getValue());
+	value.setDescription(dto.getDescription());
+
+	if (loading) {
+	    getLoadingValues(segment).add(value);
+	    return;
+	}
+	List<SegmentValueEntry> values = new ArrayList<SegmentValueEntry>(
+		segment.getSegmentValues());
+	values.add(value);
+	segment.setSegmentValues(Collections.unmodifiableList(values));
+	publish(event.getStructureId().getIdentifier());
+    }
+
+    @EventHandler
+    public synchronized void handle(SegmentValueDeletedEvent event) {
+	SegmentEntry segment = findSegment(event.getStructureId()
+		.getIdentifier(), event.getSegmentId());
+	if (segment == null) {
+	    return;
+	}
+	List<SegmentValueEntry> values = loading ? getLoadingValues(segment)
+		: new ArrayList<SegmentValueEntry>(segment.getSegmentValues());
+	Iterator<SegmentValueEntry> iter = values.iterator();
+	while (iter.hasNext()) {
+	    if (iter.next().getIdentifier().equals(event.getSegmentValueId())) {
+		iter.remove();
+	    }
+	}
+	if (!loading) {
+	    segment.setSegmentValues(Collections.unmodifiableList(values));
+	    publish(event.getStructureId().getIdentifier());
+	}
+    }
+
+    public synchronized void beforeReplay() {
+	index.clear();
+	index.setLoading(true);
+	loading = true;
+    }
+
+    public synchronized void afterReplay() {
+	endLoading();
+    }
+
+    public synchronized void onReplayFailed(Throwable cause) {
+	endLoading();
+    }
+
+    /**
+     * Publishes the value lists built while loading and the list of entries.
+     */
+    private void endLoading() {
+	Iterator<Map.Entry<SegmentEntry, List<SegmentValueEntry>>> iter =
+		loadingValues.entrySet().iterator();
+	while (iter.hasNext()) {
+	    Map.Entry<SegmentEntry, List<SegmentValueEntry>> e = iter.next();
+	    e.getKey().setSegmentValues(
+		    Collections.unmodifiableList(e.getValue()));
+	}
+	loadingValues.clear();
+	loading = false;
+	index.setLoading(false);
+    }
+
+    /**
+     * Returns the list of values of the given segment that is changed in
+     * place while loading, which the segment holds until the end of loading.
+     */
+    private List<SegmentValueEntry> getLoadingValues(SegmentEntry segment) {
+	List<SegmentValueEntry> result = loadingValues.get(segment);
+	if (result == null) {
+	    result = new ArrayList<SegmentValueEntry>(
+		    segment.getSegmentValues());
+	    segment.setSegmentValues(result);
+	    loadingValues.put(segment, result);
+	}
+	return result;
+    }
+
+    /**
+     * Returns a copy of the entry with the given identifier that shares its
+     * segments, or null if there is none.
+     */
+    private StructureEntry copy(String identifier) {
+	StructureEntry entry = index.get(identifier);
+	if (entry == null) {
+	    return null;
+	}
+	StructureEntry result = new StructureEntry();
+	result.setIdentifier(entry.getIdentifier());
+	result.setName(entry.getName());
+	result.setEnabled(entry.isEnabled());
+	result.setFrozen(entry.isFrozen());
+	result.setSegments(entry.getSegments());
+	return result;
+    }
+
+    /**
+     * Publishes a copy of the entry with the given identifier, so that readers
+     * who look it up see the segment values set before.
+     */
+    private void publish(String identifier) {
+	StructureEntry entry = copy(identifier);
+	index.put(entry.getIdentifier(), entry.getName(), entry);
+    }
+
+    /**
+     * Returns the segment with the given identifier of the entry with the
+     * given identifier, or null if there is none.
+     */
+    private SegmentEntry findSegment(String identifier, String segmentId) {
+	StructureEntry entry = index.get(identifier);
+	if (entry == null) {
+	    return null;
+	}
+	Iterator<SegmentEntry> iter = entry.getSegments().iterator();
+	while (iter.hasNext()) {
+	    SegmentEntry segment = iter.next();
+	    if (segment.getIdentifier().equals(segmentId)) {
+		return segment;
+	    }
+	}
+	return null;
+    }
+
+    static int compareNames(String name1, String name2) {
+	if (name1 == null) {
+	    return (name2 == null) ? 0 : -1;
+	}
+	return (name2 == null) ? 1 : name1.compareTo(name2);
+    }
+}
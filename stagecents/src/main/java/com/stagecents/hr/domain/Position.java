@@ -24,8 +24,11 @@ package com.stagecents.hr.domain;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 import org.joda.time.DateTime;
@@ -65,6 +68,9 @@ public class Position extends Party implements DateEffective {
 	    new TimecardComparator());
     private Set<ElementEntry> elementEntries = new HashSet<ElementEntry>();
 
+    // Lazy loaded index of timecards keyed by cycle start date.
+    private transient NavigableMap<LocalDate, Timecard> timecardIndex;
+
     Position() {
 	super();
     }
@@ -85,6 +91,15 @@ public class Position extends Party implements DateEffective {
 	this.grade = grade;
     }
 
+    public void setNormalHours(LocalTime normalStart, LocalTime normalEnd) {
+	this.normalStart = normalStart;
+	this.normalEnd = normalEnd;
+    }
+
+    public void setMaximumHours(float maximumHours) {
+	this.maximumHours = maximumHours;
+    }
+
     public LocalTime getNormalStart() {
         return normalStart;
     }
@@ -112,23 +127,49 @@ public class Position extends Party implements DateEffective {
     public void addTimecard(Timecard arg) {
 	arg.setPosition(this);
 	timecards.add(arg);
+	if (timecardIndex != null) {
+	    timecardIndex.put(arg.getStartDate(), arg);
+	}
     }
 
     public void removeTimecard(Timecard arg) {
 	arg.setPosition(null);
 	timecards.remove(arg);
+	if (timecardIndex != null) {
+	    timecardIndex.remove(arg.getStartDate());
+	}
     }
 
+    /**
+     * Returns the timecard that is effective on the given date, or null if no
+     * such timecard exists. Since the timecards of a position do not overlap,
+     * the only candidate is the timecard with the latest start date on or
+     * before the given date.
+     *
+     * @param effectiveDate The date to look up.
+     * @return The timecard effective on the given date, or null.
+     */
     public Timecard getTimecard(LocalDate effectiveDate) {
-	Iterator<Timecard> iter = timecards.iterator();
-	while (iter.hasNext()) {
-	    Timecard tc = iter.next();
-	    if (tc.isEffective(effectiveDate)) {
-		return tc;
-	    }
+	Map.Entry<LocalDate, Timecard> entry = getTimecardIndex().floorEntry(
+		effectiveDate);
+	if (entry != null && entry.getValue().isEffective(effectiveDate)) {
+	    return entry.getValue();
 	}
 	return null;
     }
+
+    private NavigableMap<LocalDate, Timecard> getTimecardIndex() {
+	if ((timecardIndex == null)
+		|| (timecardIndex.size() != timecards.size())) {
+	    timecardIndex = new TreeMap<LocalDate, Timecard>();
+	    Iterator<Timecard> iter = timecards.iterator();
+	    while (iter.hasNext()) {
+		Timecard tc = iter.next();
+		timecardIndex.put(tc.getStartDate(), tc);
+	    }
+	}
+	return timecardIndex;
+    }
     
     public void addElementEntry(ElementEntry arg) {
 	arg.setPosition(this);
@@ -50,6 +50,10 @@ public class DetailHours {
     private float rateMultiplier;
     private float amount;
 
+    // Orders details that are otherwise alike in order of addition to the
+    // summary hours, which assigns it; -1 until then.
+    private transient long ordinal = -1;
+
     DetailHours() {
     }
 
@@ -76,6 +80,18 @@ public class DetailHours {
 	this.activity = activity;
     }
 
+    long getOrdinal() {
+	return ordinal;
+    }
+
+    void setOrdinal(long ordinal) {
+	this.ordinal = ordinal;
+    }
+
+    SummaryHours getSummaryHours() {
+	return summaryHours;
+    }
+
     public void setSummaryHours(SummaryHours summaryHours) {
 	this.summaryHours = summaryHours;
     }
@@ -110,7 +126,19 @@ public class DetailHours {
 
     public void update(Interval timeWorked) {
 	this.timeWorked = timeWorked;
-	hours = timeWorked.toDurationMillis() / 1000 / 60 / 60;
+	hours = computeHours(timeWorked.getStartMillis(),
+		timeWorked.getEndMillis());
+    }
+
+    /**
+     * Returns the hours worked between the given instants.
+     *
+     * @param start The start of the time worked in epoch millis.
+     * @param end The end of the time worked in epoch millis.
+     * @return The hours worked.
+     */
+    static float computeHours(long start, long end) {
+	return (end - start) / 1000 / 60 / 60;
     }
 
     @Override
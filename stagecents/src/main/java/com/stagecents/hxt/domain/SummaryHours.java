@@ -22,7 +22,9 @@
 package com.stagecents.hxt.domain;
 
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -60,6 +62,9 @@ public class SummaryHours {
     private SortedSet<DetailHours> detailHours = new TreeSet<DetailHours>(
 	    new DetailHoursComparator());
 
+    // The ordinal of the next detail added to this summary
+    private transient long nextOrdinal;
+
     SummaryHours() {
     }
 
@@ -104,24 +109,37 @@ public class SummaryHours {
     }
 
     public void addDetailHours(DetailHours arg) {
+	if (arg.getSummaryHours() != this || arg.getOrdinal() < 0) {
+	    // Ordinals need only be unique within this summary.
+	    arg.setOrdinal(nextOrdinal++);
+	}
 	arg.setSummaryHours(this);
-	detailHours.add(arg);
+	if (detailHours.add(arg)) {
+	    recordHours(arg, arg.getHours());
+	}
     }
 
     public void removeDetailHours(DetailHours arg) {
+	if (detailHours.remove(arg)) {
+	    recordHours(arg, -arg.getHours());
+	}
 	arg.setSummaryHours(null);
-	detailHours.remove(arg);
+    }
+
+    public SortedSet<DetailHours> getDetailHours() {
+	return detailHours;
     }
 
     public float getHours(ElementType element) {
+	float result = 0F;
 	Iterator<DetailHours> iter = detailHours.iterator();
 	while (iter.hasNext()) {
 	    DetailHours dh = iter.next();
 	    if (dh.getElementType().equals(element)) {
-		return dh.getHours();
+		result += dh.getHours();
 	    }
 	}
-	return 0F;
+	return result;
     }
 
     public void updateHours(Activity activity, ElementType element,
@@ -131,11 +149,37 @@ public class SummaryHours {
 	    Timecard t = this.getTimecard();
 	    dh = new DetailHours(this, t, t.getPosition(), element, activity,
 		    interval);
+	} else {
+	    // The time worked is part of the detail's identity, so the detail
+	    // must be removed before it is updated and then added back.
+	    removeDetailHours(dh);
 	}
 	dh.update(interval);
+	addDetailHours(dh);
 	recalculateHours();
     }
 
+    /**
+     * Removes all detail hours from this summary and resets the summary hours
+     * to zero. The activities that generated the hours are not touched, since
+     * an activity may be shared by timecards that are costed concurrently.
+     *
+     * @return The element types of the removed detail hours.
+     */
+    public Set<ElementType> clearHours() {
+	Set<ElementType> result = new HashSet<ElementType>();
+	Iterator<DetailHours> iter = detailHours.iterator();
+	while (iter.hasNext()) {
+	    DetailHours dh = iter.next();
+	    result.add(dh.getElementType());
+	    iter.remove();
+	    recordHours(dh, -dh.getHours());
+	    dh.setSummaryHours(null);
+	}
+	hours = 0F;
+	return result;
+    }
+
     private DetailHours getDetailHours(Activity activity, ElementType element) {
 	DetailHours dh = null;
 	Iterator<DetailHours> iter = detailHours.iterator();
@@ -150,6 +194,13 @@ public class SummaryHours {
 	return dh;
     }
 
+    private void recordHours(DetailHours dh, float delta) {
+	if (timecard != null) {
+	    int day = timecard.getSummaryHoursSequence(dateWorked);
+	    timecard.recordHours(day, dh.getElementType(), delta);
+	}
+    }
+
     private void recalculateHours() {
 	float hoursWorked = 0;
 	Iterator<DetailHours> iter = detailHours.iterator();
@@ -165,16 +216,47 @@ public class SummaryHours {
 	@Override
 	public int compare(DetailHours o1, DetailHours o2) {
 	    LocalTime s1 = o1.timeIn();
-	    LocalTime s2 = o1.timeIn();
+	    LocalTime s2 = o2.timeIn();
 	    if (s1.isBefore(s2)) {
 		return -1;
 	    } else if (s1.isEqual(s2)) {
 		LocalTime e1 = o1.timeOut();
 		LocalTime e2 = o2.timeOut();
-		return e1.isBefore(e2) ? -1 : (e1.isEqual(e2) ? 0 : 1);
+		if (e1.isEqual(e2)) {
+		    return compareOwners(o1, o2);
+		}
+		return e1.isBefore(e2) ? -1 : 1;
 	    }
 	    return 1;
 	}
 
+	/**
+	 * Orders details with identical times worked by element type and
+	 * activity name, and then in order of creation, so that no two details
+	 * are collapsed into one.
+	 */
+	private int compareOwners(DetailHours o1, DetailHours o2) {
+	    int i = compareNames(o1.getElementType().getName(), o2
+		    .getElementType().getName());
+	    if (i != 0) {
+		return i;
+	    }
+	    i = compareNames(o1.getActivity().getName(), o2.getActivity()
+		    .getName());
+	    if (i != 0) {
+		return i;
+	    }
+	    long n1 = o1.getOrdinal();
+	    long n2 = o2.getOrdinal();
+	    return (n1 < n2) ? -1 : ((n1 == n2) ? 0 : 1);
+	}
+
+	private int compareNames(String n1, String n2) {
+	    if (n1 == null) {
+		return (n2 == null) ? 0 : -1;
+	    }
+	    return (n2 == null) ? 1 : n1.compareTo(n2);
+	}
+
     }
 }
@@ -21,8 +21,16 @@
  */
 package com.stagecents.hxt.domain;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -32,8 +40,10 @@ import org.joda.time.LocalDate;
 
 import com.stagecents.common.DateEffective;
 import com.stagecents.common.EffectiveDateInterval;
+import com.stagecents.common.Utils;
 import com.stagecents.hr.domain.Position;
 import com.stagecents.pa.domain.Activity;
+import com.stagecents.pa.domain.GenericActivity.ActivityComparator;
 import com.stagecents.pay.domain.ElementType;
 import com.stagecents.pay.domain.PayCycle.Frequency;
 import com.stagecents.pay.domain.Payroll;
@@ -48,6 +58,15 @@ public class Timecard implements DateEffective {
     private SortedSet<SummaryHours> summaryHours = new TreeSet<SummaryHours>(
 	    new SummaryHoursComparator());
 
+    // Lazy loaded array of daily summaries indexed by day offset.
+    private transient SummaryHours[] days;
+
+    // Optional compact storage of recorded hours.
+    private transient TimecardHours compactHours;
+
+    // Lazy loaded running hours by element type.
+    private transient Map<ElementType, ElementHours> accumulators;
+
     Timecard() {
     }
 
@@ -89,55 +108,305 @@ public class Timecard implements DateEffective {
     public void addSummaryHours(SummaryHours arg) {
 	arg.setTimecard(this);
 	summaryHours.add(arg);
+	if (days != null) {
+	    putDay(days, arg);
+	}
+	if (!arg.getDetailHours().isEmpty()) {
+	    accumulators = null;
+	}
     }
 
     public void removeSummaryHours(SummaryHours arg) {
 	arg.setTimecard(null);
 	summaryHours.remove(arg);
+	days = null;
+	accumulators = null;
     }
 
     public LocalDate getStartDate() {
 	return effectiveDateRange.getStartDate().toLocalDate();
     }
 
+    public LocalDate getEndDate() {
+	// The effective date range ends at midnight following the last day.
+	return effectiveDateRange.getEndDate().toLocalDate().minusDays(1);
+    }
+
+    /**
+     * Returns the daily summary for the given date, or null if no hours have
+     * been recorded for that date.
+     *
+     * @param dateWorked The date worked.
+     * @return The daily summary for the given date, or null.
+     */
     public SummaryHours getSummaryHours(LocalDate dateWorked) {
+	SummaryHours[] index = getDays();
+	int offset = getSummaryHoursSequence(dateWorked);
+	if (offset < 0 || offset >= index.length) {
+	    return null;
+	}
+	return index[offset];
+    }
+
+    private SummaryHours[] getDays() {
+	if (days == null) {
+	    int length = getSummaryHoursSequence(getEndDate()) + 1;
+	    SummaryHours[] result = new SummaryHours[Math.max(length, 0)];
+	    Iterator<SummaryHours> iter = summaryHours.iterator();
+	    while (iter.hasNext()) {
+		putDay(result, iter.next());
+	    }
+	    days = result;
+	}
+	return days;
+    }
+
+    private void putDay(SummaryHours[] index, SummaryHours sh) {
+	int offset = getSummaryHoursSequence(sh.getDateWorked());
+	if (offset >= 0 && offset < index.length) {
+	    index[offset] = sh;
+	}
+    }
+
+    /**
+     * Returns true if the hours of this timecard are held in compact storage
+     * rather than in summary and detail hours.
+     *
+     * @return True if this timecard uses compact storage.
+     */
+    public boolean isCompact() {
+	return compactHours != null;
+    }
+
+    /**
+     * Switches this timecard to compact storage. Hours recorded afterwards are
+     * held in primitive arrays and are only written to summary and detail
+     * hours by <code>materializeHours()</code>. Compact storage must be
+     * enabled before any hours are recorded.
+     */
+    public void useCompactStorage() {
+	if (compactHours != null) {
+	    return;
+	}
 	Iterator<SummaryHours> iter = summaryHours.iterator();
 	while (iter.hasNext()) {
-	    SummaryHours sh = iter.next();
-	    if (sh.getDateWorked().equals(dateWorked)) {
-		return sh;
+	    if (!iter.next().getDetailHours().isEmpty()) {
+		throw new IllegalStateException("hours already recorded");
 	    }
 	}
-	return null;
+	compactHours = new TimecardHours(getDays().length);
+    }
+
+    /**
+     * Writes the hours held in compact storage to the summary and detail hours
+     * of this timecard, replacing any details previously written, so that they
+     * may be persisted or displayed. This method does nothing unless the
+     * timecard uses compact storage.
+     */
+    public void materializeHours() {
+	if (compactHours == null) {
+	    return;
+	}
+	LocalDate dateWorked = getStartDate();
+	for (int d = 0; d < compactHours.getDays(); d++) {
+	    SummaryHours sh = getSummaryHours(dateWorked);
+	    if (sh != null) {
+		sh.clearHours();
+	    }
+	    for (int i = compactHours.head(d); i >= 0; i = compactHours
+		    .next(i)) {
+		if (sh == null) {
+		    sh = new SummaryHours(this, d, dateWorked);
+		    addSummaryHours(sh);
+		}
+		Interval interval = new Interval(compactHours.getStart(i),
+			compactHours.getEnd(i));
+		sh.updateHours(compactHours.getActivity(i),
+			compactHours.getElementType(i), interval);
+	    }
+	    dateWorked = dateWorked.plusDays(1);
+	}
     }
 
     public void updateHours(Activity activity, ElementType element,
 	    Interval interval) {
 	LocalDate dateWorked = interval.getStart().toLocalDate();
-	
+	if (!isEffective(dateWorked)) {
+	    throw new IllegalArgumentException("invalid date worked");
+	}
+	if (compactHours != null) {
+	    int day = getSummaryHoursSequence(dateWorked);
+	    float delta = compactHours.update(day, element, activity,
+		    interval.getStartMillis(), interval.getEndMillis());
+	    addHours(day, element, delta);
+	    return;
+	}
+
 	SummaryHours sh = getSummaryHours(dateWorked);
-	if (sh == null && isEffective(dateWorked)) {
+	if (sh == null) {
 	    int seq = getSummaryHoursSequence(dateWorked);
 	    sh = new SummaryHours(this, seq, dateWorked);
+	    addSummaryHours(sh);
 	}
 	sh.updateHours(activity, element, interval);
     }
 
+    /**
+     * Returns the total hours recorded on this timecard for the given element
+     * type.
+     *
+     * @param element The element type to sum.
+     * @return The total hours recorded for the given element type.
+     */
+    public float getHours(ElementType element) {
+	ElementHours acc = getAccumulators().get(element);
+	return (acc == null) ? 0F : acc.getTotal();
+    }
+
+    /**
+     * Returns the hours recorded on this timecard for the given element type
+     * prior to the given date.
+     *
+     * @param element The element type to sum.
+     * @param before The cutoff date.
+     * @return The hours recorded for the given element type before the given
+     *         date.
+     */
+    public float getPriorHours(ElementType element, LocalDate before) {
+	ElementHours acc = getAccumulators().get(element);
+	if (acc == null) {
+	    return 0F;
+	}
+	int day = getSummaryHoursSequence(before);
+	return acc.getPriorHours(Math.max(0, Math.min(day, getDays().length)));
+    }
+
+    /**
+     * Records a change in the hours of the given element type on the given
+     * day. Called by summary hours as detail hours are added and removed.
+     *
+     * @param day The day offset of the change.
+     * @param element The element type of the changed hours.
+     * @param delta The change in hours.
+     */
+    void recordHours(int day, ElementType element, float delta) {
+	if (compactHours == null) {
+	    addHours(day, element, delta);
+	}
+    }
+
+    private void addHours(int day, ElementType element, float delta) {
+	if (accumulators == null || day < 0 || day >= getDays().length) {
+	    return;
+	}
+	getElementHours(accumulators, element).add(day, delta);
+    }
+
+    /**
+     * Returns the running hours of each element type, rebuilding them from
+     * the recorded hours if they have been discarded.
+     */
+    private Map<ElementType, ElementHours> getAccumulators() {
+	if (accumulators == null) {
+	    Map<ElementType, ElementHours> result =
+		    new HashMap<ElementType, ElementHours>();
+	    SummaryHours[] index = getDays();
+	    for (int d = 0; d < index.length; d++) {
+		if (compactHours != null) {
+		    for (int i = compactHours.head(d); i >= 0; i = compactHours
+			    .next(i)) {
+			getElementHours(result, compactHours.getElementType(i))
+				.add(d, compactHours.getHours(i));
+		    }
+		} else if (index[d] != null) {
+		    Iterator<DetailHours> iter = index[d].getDetailHours()
+			    .iterator();
+		    while (iter.hasNext()) {
+			DetailHours dh = iter.next();
+			getElementHours(result, dh.getElementType()).add(d,
+				dh.getHours());
+		    }
+		}
+	    }
+	    accumulators = result;
+	}
+	return accumulators;
+    }
+
+    private ElementHours getElementHours(
+	    Map<ElementType, ElementHours> map, ElementType element) {
+	ElementHours result = map.get(element);
+	if (result == null) {
+	    result = new ElementHours(getDays().length);
+	    map.put(element, result);
+	}
+	return result;
+    }
+
+    /**
+     * Returns the sequence of the daily summary for the given date, which is
+     * the number of days between the start of this timecard and the given
+     * date.
+     *
+     * @param dateWorked The date worked.
+     * @return The sequence of the daily summary for the given date.
+     */
     public int getSummaryHoursSequence(LocalDate dateWorked) {
-	int seq = 0;
+	return (int) (Utils.toEpochDay(dateWorked) - effectiveDateRange
+		.getStartDay());
+    }
+
+    /**
+     * Returns the activities that have recorded hours on this timecard on or
+     * after the given date, ordered by their scheduled start.
+     *
+     * @param from The earliest date worked to examine.
+     * @return The list of activities with hours on or after the given date.
+     */
+    public List<Activity> getActivities(LocalDate from) {
+	Set<Activity> activities;
+	if (compactHours != null) {
+	    int fromDay = getSummaryHoursSequence(from);
+	    activities = compactHours.getActivities(fromDay);
+	} else {
+	    activities = new LinkedHashSet<Activity>();
+	    Iterator<SummaryHours> iter = summaryHours.iterator();
+	    while (iter.hasNext()) {
+		SummaryHours sh = iter.next();
+		if (!sh.getDateWorked().isBefore(from)) {
+		    Iterator<DetailHours> it = sh.getDetailHours().iterator();
+		    while (it.hasNext()) {
+			activities.add(it.next().getActivity());
+		    }
+		}
+	    }
+	}
+	List<Activity> result = new ArrayList<Activity>(activities);
+	Collections.sort(result, new ActivityComparator());
+	return result;
+    }
+
+    /**
+     * Removes all detail hours recorded on this timecard on or after the given
+     * date. Hours recorded before the given date are not affected.
+     *
+     * @param from The earliest date worked to clear.
+     * @return The element types of the removed detail hours.
+     */
+    public Set<ElementType> clearHours(LocalDate from) {
+	if (compactHours != null) {
+	    accumulators = null;
+	    return compactHours.clear(getSummaryHoursSequence(from));
+	}
+	Set<ElementType> result = new HashSet<ElementType>();
 	Iterator<SummaryHours> iter = summaryHours.iterator();
 	while (iter.hasNext()) {
 	    SummaryHours sh = iter.next();
-	    if (sh.getDateWorked().equals(dateWorked)) {
-		return sh.getSequence();
+	    if (!sh.getDateWorked().isBefore(from)) {
+		result.addAll(sh.clearHours());
 	    }
-	    LocalDate tmp = getStartDate().plusDays(seq);
-	    if(tmp.equals(dateWorked)) {
-		return seq;
-	    }
-	    seq++;
 	}
-	return seq;
+	return result;
     }
 
     @Override
@@ -150,6 +419,42 @@ public class Timecard implements DateEffective {
 	return effectiveDateRange.isEffective(effectiveDate);
     }
 
+    /**
+     * Represents the running hours of a single element type. Prefix sums are
+     * brought up to date lazily, so that prior hours are found in constant
+     * amortized time when days are processed in order.
+     */
+    private static class ElementHours {
+	private final float[] daily;
+	// prefix[i] holds the sum of the hours of the days before day i.
+	private final float[] prefix;
+	private int valid;
+	private float total;
+
+	ElementHours(int days) {
+	    daily = new float[days];
+	    prefix = new float[days + 1];
+	}
+
+	void add(int day, float delta) {
+	    daily[day] += delta;
+	    total += delta;
+	    valid = Math.min(valid, day);
+	}
+
+	float getPriorHours(int day) {
+	    for (int i = valid + 1; i <= day; i++) {
+		prefix[i] = prefix[i - 1] + daily[i - 1];
+	    }
+	    valid = Math.max(valid, day);
+	    return prefix[day];
+	}
+
+	float getTotal() {
+	    return total;
+	}
+    }
+
     public static class SummaryHoursComparator implements
 	    Comparator<SummaryHours> {
 
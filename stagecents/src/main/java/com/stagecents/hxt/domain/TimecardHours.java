@@ -0,0 +1,270 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.hxt.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.stagecents.pa.domain.Activity;
+import com.stagecents.pay.domain.ElementType;
+
+/**
+ * Represents the compact storage of the hours recorded on a timecard. Each
+ * block of time worked occupies one slot in a set of parallel primitive arrays
+ * holding its day offset, element type index, activity index, start and end
+ * times and hours, instead of a <code>DetailHours</code> object. The slots of
+ * each day are chained together so that a day's hours can be visited without
+ * scanning the whole store.
+ * <p>
+ * Element types and activities are stored once in dictionaries and referenced
+ * by index.
+ *
+ * @author Blair Caple
+ */
+class TimecardHours {
+
+    private static final int NONE = -1;
+
+    // Dictionaries
+    private final List<ElementType> elements = new ArrayList<ElementType>();
+    private final Map<ElementType, Integer> elementIndex =
+	    new HashMap<ElementType, Integer>();
+    private final List<Activity> activities = new ArrayList<Activity>();
+    private final Map<Activity, Integer> activityIndex =
+	    new HashMap<Activity, Integer>();
+
+    // Slots
+    private int size;
+    private int[] day;
+    private int[] element;
+    private int[] activity;
+    private long[] start;
+    private long[] end;
+    private float[] hours;
+    private int[] next;
+
+    // First slot of each day
+    private final int[] heads;
+
+    /**
+     * Creates a new, empty store for a timecard with the given number of days.
+     *
+     * @param days The number of days in the timecard.
+     */
+    TimecardHours(int days) {
+	heads = new int[days];
+	Arrays.fill(heads, NONE);
+	allocate(16);
+    }
+
+    int getDays() {
+	return heads.length;
+    }
+
+    /**
+     * Records the given block of time worked. Any time previously recorded for
+     * the same day, element type and activity is replaced.
+     *
+     * @param dayOffset The day offset from the start of the timecard.
+     * @param elementType The element type of the time worked.
+     * @param act The activity from which the time was worked.
+     * @param startMillis The start of the time worked in epoch millis.
+     * @param endMillis The end of the time worked in epoch millis.
+     * @return The change in the hours recorded for the given day and element
+     *         type.
+     */
+    float update(int dayOffset, ElementType elementType, Activity act,
+	    long startMillis, long endMillis) {
+	int e = indexOf(elementType);
+	int a = indexOf(act);
+	float value = DetailHours.computeHours(startMillis, endMillis);
+
+	int slot = find(dayOffset, e, a);
+	float delta = value;
+	if (slot == NONE) {
+	    slot = add(dayOffset, e, a);
+	} else {
+	    delta -= hours[slot];
+	}
+	start[slot] = startMillis;
+	end[slot] = endMillis;
+	hours[slot] = value;
+	return delta;
+    }
+
+    /**
+     * Returns the activities with hours on or after the given day.
+     */
+    Set<Activity> getActivities(int fromDay) {
+	Set<Activity> result = new LinkedHashSet<Activity>();
+	for (int d = Math.max(fromDay, 0); d < heads.length; d++) {
+	    for (int i = heads[d]; i != NONE; i = next[i]) {
+		result.add(activities.get(activity[i]));
+	    }
+	}
+	return result;
+    }
+
+    /**
+     * Removes all hours recorded on or after the given day and compacts the
+     * remaining slots.
+     *
+     * @param fromDay The first day to clear.
+     * @return The element types of the removed hours.
+     */
+    Set<ElementType> clear(int fromDay) {
+	Set<ElementType> result = new HashSet<ElementType>();
+	int[] oldDay = day;
+	int[] oldElement = element;
+	int[] oldActivity = activity;
+	long[] oldStart = start;
+	long[] oldEnd = end;
+	float[] oldHours = hours;
+	int oldSize = size;
+
+	allocate(Math.max(oldSize, 16));
+	Arrays.fill(heads, NONE);
+	size = 0;
+	for (int i = 0; i < oldSize; i++) {
+	    if (oldDay[i] >= fromDay) {
+		result.add(elements.get(oldElement[i]));
+		continue;
+	    }
+	    int slot = add(oldDay[i], oldElement[i], oldActivity[i]);
+	    start[slot] = oldStart[i];
+	    end[slot] = oldEnd[i];
+	    hours[slot] = oldHours[i];
+	}
+	return result;
+    }
+
+    // Slot accessors used to materialize detail hours and to rebuild the
+    // timecard's hour accumulators.
+
+    int head(int dayOffset) {
+	return heads[dayOffset];
+    }
+
+    int next(int slot) {
+	return next[slot];
+    }
+
+    ElementType getElementType(int slot) {
+	return elements.get(element[slot]);
+    }
+
+    Activity getActivity(int slot) {
+	return activities.get(activity[slot]);
+    }
+
+    long getStart(int slot) {
+	return start[slot];
+    }
+
+    long getEnd(int slot) {
+	return end[slot];
+    }
+
+    float getHours(int slot) {
+	return hours[slot];
+    }
+
+    private int find(int dayOffset, int e, int a) {
+	for (int i = heads[dayOffset]; i != NONE; i = next[i]) {
+	    if (element[i] == e && activity[i] == a) {
+		return i;
+	    }
+	}
+	return NONE;
+    }
+
+    /**
+     * Appends a slot to the end of the chain of the given day.
+     */
+    private int add(int dayOffset, int e, int a) {
+	if (size == day.length) {
+	    grow();
+	}
+	int slot = size++;
+	day[slot] = dayOffset;
+	element[slot] = e;
+	activity[slot] = a;
+	next[slot] = NONE;
+	if (heads[dayOffset] == NONE) {
+	    heads[dayOffset] = slot;
+	} else {
+	    int i = heads[dayOffset];
+	    while (next[i] != NONE) {
+		i = next[i];
+	    }
+	    next[i] = slot;
+	}
+	return slot;
+    }
+
+    private int indexOf(ElementType elementType) {
+	Integer result = elementIndex.get(elementType);
+	if (result == null) {
+	    result = elements.size();
+	    elements.add(elementType);
+	    elementIndex.put(elementType, result);
+	}
+	return result;
+    }
+
+    private int indexOf(Activity act) {
+	Integer result = activityIndex.get(act);
+	if (result == null) {
+	    result = activities.size();
+	    activities.add(act);
+	    activityIndex.put(act, result);
+	}
+	return result;
+    }
+
+    private void allocate(int capacity) {
+	day = new int[capacity];
+	element = new int[capacity];
+	activity = new int[capacity];
+	start = new long[capacity];
+	end = new long[capacity];
+	hours = new float[capacity];
+	next = new int[capacity];
+    }
+
+    private void grow() {
+	int capacity = day.length * 2;
+	day = Arrays.copyOf(day, capacity);
+	element = Arrays.copyOf(element, capacity);
+	activity = Arrays.copyOf(activity, capacity);
+	start = Arrays.copyOf(start, capacity);
+	end = Arrays.copyOf(end, capacity);
+	hours = Arrays.copyOf(hours, capacity);
+	next = Arrays.copyOf(next, capacity);
+    }
+}
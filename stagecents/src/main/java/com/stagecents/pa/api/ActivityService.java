@@ -21,7 +21,12 @@
  */
 package com.stagecents.pa.api;
 
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
@@ -30,18 +35,33 @@ import org.joda.time.LocalDate;
 import com.stagecents.hr.domain.Position;
 import com.stagecents.hxt.domain.Timecard;
 import com.stagecents.pa.domain.Activity;
+import com.stagecents.pa.domain.GenericActivity.ActivityComparator;
 import com.stagecents.pa.domain.PositionResource;
 import com.stagecents.pa.domain.Resource;
+import com.stagecents.pay.domain.DailyRulesPlan;
 import com.stagecents.pay.domain.ElementEntry;
 import com.stagecents.pay.domain.ElementType;
-import com.stagecents.pay.domain.PayCycle;
+import com.stagecents.pay.domain.PayCycleCalendar;
 
 public class ActivityService {
 
     private Activity activity;
+    private boolean compactStorage;
 
     public ActivityService(Activity activity) {
+	this(activity, false);
+    }
+
+    /**
+     * Creates a new ActivityService for the given activity.
+     * 
+     * @param activity The activity to cost.
+     * @param compactStorage True if timecards created by this service should
+     *            hold their hours in compact storage.
+     */
+    public ActivityService(Activity activity, boolean compactStorage) {
 	this.activity = activity;
+	this.compactStorage = compactStorage;
     }
 
     public void generateBudgetCost() {
@@ -58,47 +78,202 @@ public class ActivityService {
 	}
     }
 
+    /**
+     * Generates the budget cost of this activity for the given position
+     * resource only. The resource's position timecards and element entries are
+     * the only objects that are modified, which allows callers to cost
+     * different positions concurrently.
+     * 
+     * @param resource The position resource to cost.
+     */
+    public void generateBudgetCost(PositionResource resource) {
+	generateHours(resource);
+    }
+
+    /**
+     * Moves this activity to the given schedule and recosts only the days that
+     * are affected by the move. For each timecard that holds a day of the old
+     * or the new schedule, the hours recorded from the earliest such day
+     * onward are cleared and replayed in chronological order, since the hours
+     * of later days depend on the prior hours of the same timecard. Hours
+     * recorded on earlier days and on other timecards are left untouched.
+     * 
+     * @param scheduledStart The new scheduled start of the activity.
+     * @param scheduledEnd The new scheduled end of the activity.
+     */
+    public void reschedule(DateTime scheduledStart, DateTime scheduledEnd) {
+	LocalDate oldStart = activity.getScheduledStart().toLocalDate();
+	LocalDate oldEnd = activity.getScheduledEnd().toLocalDate();
+	activity.reschedule(scheduledStart, scheduledEnd);
+
+	Iterator<Resource> iter = activity.getResources().iterator();
+	while (iter.hasNext()) {
+	    Resource resource = iter.next();
+	    if (resource instanceof PositionResource) {
+		PositionResource pr = (PositionResource) resource;
+		recostHours(pr, oldStart, oldEnd);
+	    }
+	}
+    }
+
+    private void recostHours(PositionResource resource, LocalDate oldStart,
+	    LocalDate oldEnd) {
+	Position position = resource.getResource();
+	DailyRulesPlan plan = DailyRulesPlan.compile(position);
+
+	// Collect the earliest affected day of each affected time card. Time
+	// cards are only created for the days of the new schedule.
+	Map<Timecard, LocalDate> affected =
+		new LinkedHashMap<Timecard, LocalDate>();
+	LocalDate date = oldStart;
+	while (!date.isAfter(oldEnd)) {
+	    Timecard timecard = position.getTimecard(date);
+	    if (timecard != null) {
+		putEarliest(affected, timecard, date);
+	    }
+	    date = date.plusDays(1);
+	}
+	date = activity.getScheduledStart().toLocalDate();
+	LocalDate newEnd = activity.getScheduledEnd().toLocalDate();
+	while (!date.isAfter(newEnd)) {
+	    Timecard timecard = loadTimecard(resource, date);
+	    if (timecard != null) {
+		putEarliest(affected, timecard, date);
+	    }
+	    date = date.plusDays(1);
+	}
+
+	Iterator<Map.Entry<Timecard, LocalDate>> iter = affected.entrySet()
+		.iterator();
+	while (iter.hasNext()) {
+	    Map.Entry<Timecard, LocalDate> entry = iter.next();
+	    recostTimecard(entry.getKey(), position, plan, entry.getValue());
+	}
+    }
+
+    private void recostTimecard(Timecard timecard, Position position,
+	    DailyRulesPlan plan, LocalDate from) {
+	// Find the activities to replay before their hours are cleared.
+	List<Activity> activities = timecard.getActivities(from);
+	if (!activities.contains(activity)
+		&& overlaps(activity, from, timecard.getEndDate())) {
+	    activities.add(activity);
+	    Collections.sort(activities, new ActivityComparator());
+	}
+	Set<ElementType> elements = timecard.clearHours(from);
+
+	// Replay the hours day by day.
+	LocalDate date = from;
+	LocalDate end = timecard.getEndDate();
+	while (!date.isAfter(end)) {
+	    Iterator<Activity> iter = activities.iterator();
+	    while (iter.hasNext()) {
+		Activity a = iter.next();
+		if (overlaps(a, date, date)) {
+		    plan.processHours(getDailyInterval(a, date), a, timecard);
+		    elements.addAll(plan.getElements());
+		}
+	    }
+	    date = date.plusDays(1);
+	}
+
+	// Update the element entries whose hours may have changed.
+	Iterator<ElementEntry> iter = position.getElementEntries().iterator();
+	while (iter.hasNext()) {
+	    ElementEntry ee = iter.next();
+	    if (elements.contains(ee.getElementType())) {
+		ee.processHours(timecard);
+	    }
+	}
+    }
+
+    private Timecard loadTimecard(PositionResource resource, LocalDate date) {
+	Position position = resource.getResource();
+	Timecard timecard = position.getTimecard(date);
+	if (timecard == null) {
+	    PayCycleCalendar calendar = resource.getPayroll()
+		    .getPayCycleCalendar(date, date);
+	    int i = calendar.indexOf(date);
+	    if (i < 0) {
+		return null;
+	    }
+	    LocalDate cycleStart = calendar.getCycleStart(i);
+	    LocalDate cycleEnd = calendar.getCycleEnd(i);
+	    timecard = createTimecard(resource, cycleStart, cycleEnd);
+	}
+	return timecard;
+    }
+
+    private Timecard createTimecard(PositionResource resource,
+	    LocalDate cycleStart, LocalDate cycleEnd) {
+	Position position = resource.getResource();
+	Timecard timecard = new Timecard(position, resource.getPayroll(),
+		cycleStart, cycleEnd);
+	if (compactStorage) {
+	    timecard.useCompactStorage();
+	}
+	position.addTimecard(timecard);
+	return timecard;
+    }
+
+    private void putEarliest(Map<Timecard, LocalDate> affected,
+	    Timecard timecard, LocalDate date) {
+	LocalDate earliest = affected.get(timecard);
+	if (earliest == null || date.isBefore(earliest)) {
+	    affected.put(timecard, date);
+	}
+    }
+
+    private boolean overlaps(Activity a, LocalDate start, LocalDate end) {
+	return !a.getScheduledStart().toLocalDate().isAfter(end)
+		&& !a.getScheduledEnd().toLocalDate().isBefore(start);
+    }
+
+    /**
+     * Returns the time interval of the given activity on the given day.
+     */
+    private Interval getDailyInterval(Activity a, LocalDate date) {
+	return new Interval(date.toDateTime(a.getScheduledStart()),
+		date.toDateTime(a.getScheduledEnd()));
+    }
+
     private void generateHours(PositionResource resource) {
 	Position position = resource.getResource();
 	LocalDate startDate = activity.getScheduledStart().toLocalDate();
 	LocalDate endDate = activity.getScheduledEnd().toLocalDate();
+	DailyRulesPlan plan = DailyRulesPlan.compile(position);
 
-	PayCycle payCycle = resource.getPayroll().getPayCycle();
-	LocalDate cycleStart = payCycle.getCycleStart(activity.duration());
-	int cycles = payCycle.getCyclePeriods(activity.duration());
-	for (int i = 0; i < cycles; i++) {
+	PayCycleCalendar calendar = resource.getPayroll().getPayCycleCalendar(
+		startDate, endDate);
+	int first = calendar.indexOf(startDate);
+	int last = calendar.indexOf(endDate);
+	for (int i = first; i >= 0 && i <= last; i++) {
 	    // Load or create time card.
+	    LocalDate cycleStart = calendar.getCycleStart(i);
 	    Timecard timecard = position.getTimecard(cycleStart);
 	    if (timecard == null) {
-		LocalDate cycleEnd = payCycle.getCycleEnd(cycleStart);
-		timecard = new Timecard(position, resource.getPayroll(),
-			cycleStart, cycleEnd);
-		position.addTimecard(timecard);
+		timecard = createTimecard(resource, cycleStart,
+			calendar.getCycleEnd(i));
 	    }
 
-	    // Update the time card hours
-	    updateTimecardHours(timecard, position, startDate, endDate);
+	    // Update the time card hours from the first activity day in the
+	    // cycle.
+	    LocalDate from = startDate.isAfter(cycleStart) ? startDate
+		    : cycleStart;
+	    updateTimecardHours(timecard, plan, from, endDate);
 
 	    // Update each element entry
 	    updateElementEntry(timecard, position);
-
-	    cycleStart = payCycle.getCycleEnd(cycleStart).plusDays(1);
 	}
     }
 
-    private void updateTimecardHours(Timecard timecard, Position position,
+    private void updateTimecardHours(Timecard timecard, DailyRulesPlan plan,
 	    LocalDate startDate, LocalDate endDate) {
 	while (timecard.isEffective(startDate)) {
-	    Interval duration = new Interval(startDate.toDateTime(activity
-		    .getScheduledStart()), startDate.toDateTime(activity
-		    .getScheduledEnd()));
+	    Interval duration = getDailyInterval(activity, startDate);
 
 	    // Update the time card hours for each element type
-	    Iterator<ElementType> iter = position.getElements().iterator();
-	    while (iter.hasNext()) {
-		ElementType e = iter.next();
-		e.processHours(duration, activity, timecard, position);
-	    }
+	    plan.processHours(duration, activity, timecard);
 
 	    // Increment the day
 	    startDate = startDate.plusDays(1);
@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.pa.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.stagecents.hr.domain.Position;
+import com.stagecents.pa.domain.Activity;
+import com.stagecents.pa.domain.PositionResource;
+import com.stagecents.pa.domain.Project;
+import com.stagecents.pa.domain.Resource;
+import com.stagecents.pa.domain.Season;
+
+/**
+ * Generates the budget cost of every activity in a season or project by
+ * fanning the work out over a fork-join pool.
+ * <p>
+ * Work is partitioned by position. Each partition holds every activity the
+ * position is assigned to, in the same order as the sequential
+ * <code>ActivityService.generateBudgetCost()</code> path would visit them, and
+ * is costed by a single worker. Since timecards and element entries belong to
+ * a position, no two workers ever touch the same timecard and the resulting
+ * summary hours, detail hours and element entries are identical to those of
+ * the sequential path. An activity staffed by several positions is shared by
+ * their workers, so costing only reads activities and never changes them.
+ *
+ * @author Blair Caple
+ */
+public class BudgetCostEngine {
+
+    private final ForkJoinPool pool;
+    private boolean compactStorage;
+
+    /**
+     * Creates a new BudgetCostEngine backed by the common fork-join pool,
+     * which needs no shutdown.
+     */
+    public BudgetCostEngine() {
+	this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new BudgetCostEngine backed by the given fork-join pool.
+     *
+     * @param pool The pool on which to run costing tasks.
+     */
+    public BudgetCostEngine(ForkJoinPool pool) {
+	this.pool = pool;
+    }
+
+    /**
+     * Sets whether timecards created by this engine hold their hours in
+     * compact storage. Compact timecards must be materialized with
+     * <code>Timecard.materializeHours()</code> before they are persisted or
+     * displayed.
+     *
+     * @param compactStorage True to create compact timecards.
+     */
+    public void setCompactStorage(boolean compactStorage) {
+	this.compactStorage = compactStorage;
+    }
+
+    /**
+     * Generates the budget cost of every activity of every project in the
+     * given season.
+     *
+     * @param season The season to cost.
+     */
+    public void generateBudgetCost(Season season) {
+	List<Activity> activities = new ArrayList<Activity>();
+	Iterator<Project> iter = season.getProjects().iterator();
+	while (iter.hasNext()) {
+	    activities.addAll(iter.next().getActivities());
+	}
+	generateBudgetCost(activities);
+    }
+
+    /**
+     * Generates the budget cost of every activity in the given project.
+     *
+     * @param project The project to cost.
+     */
+    public void generateBudgetCost(Project project) {
+	generateBudgetCost(project.getActivities());
+    }
+
+    /**
+     * Generates the budget cost of the given activities. Activities are costed
+     * per position in the iteration order of the given collection.
+     *
+     * @param activities The activities to cost.
+     */
+    public void generateBudgetCost(Collection<Activity> activities) {
+	List<PositionWork> partitions = partition(activities);
+	if (!partitions.isEmpty()) {
+	    pool.invoke(new CostingTask(partitions, 0, partitions.size()));
+	}
+    }
+
+    /**
+     * Groups the position resources of the given activities by position,
+     * preserving the order in which each position encounters its activities.
+     *
+     * @param activities The activities to partition.
+     * @return The list of units of work, one per position.
+     */
+    List<PositionWork> partition(Collection<Activity> activities) {
+	Map<Position, PositionWork> result =
+		new LinkedHashMap<Position, PositionWork>();
+	Iterator<Activity> iter = activities.iterator();
+	while (iter.hasNext()) {
+	    Activity activity = iter.next();
+	    Iterator<Resource> it = activity.getResources().iterator();
+	    while (it.hasNext()) {
+		Resource resource = it.next();
+		if (resource instanceof PositionResource) {
+		    PositionResource pr = (PositionResource) resource;
+		    PositionWork work = result.get(pr.getResource());
+		    if (work == null) {
+			work = new PositionWork(compactStorage);
+			result.put(pr.getResource(), work);
+		    }
+		    work.add(activity, pr);
+		}
+	    }
+	}
+	return new ArrayList<PositionWork>(result.values());
+    }
+
+    /**
+     * Represents the ordered list of activity assignments of a single
+     * position.
+     */
+    static class PositionWork {
+	private final List<Activity> activities = new ArrayList<Activity>();
+	private final List<PositionResource> resources =
+		new ArrayList<PositionResource>();
+	private final boolean compactStorage;
+
+	PositionWork(boolean compactStorage) {
+	    this.compactStorage = compactStorage;
+	}
+
+	void add(Activity activity, PositionResource resource) {
+	    activities.add(activity);
+	    resources.add(resource);
+	}
+
+	void generateBudgetCost() {
+	    for (int i = 0; i < activities.size(); i++) {
+		ActivityService service = new ActivityService(
+			activities.get(i), compactStorage);
+		service.generateBudgetCost(resources.get(i));
+	    }
+	}
+    }
+
+    /**
+     * Recursively splits a range of position partitions until a single
+     * partition remains, which is then costed on the current worker.
+     */
+    private static class CostingTask extends RecursiveAction {
+	private static final long serialVersionUID = 1L;
+
+	private final List<PositionWork> partitions;
+	private final int lo;
+	private final int hi;
+
+	CostingTask(List<PositionWork> partitions, int lo, int hi) {
+	    this.partitions = partitions;
+	    this.lo = lo;
+	    this.hi = hi;
+	}
+
+	@Override
+	protected void compute() {
+	    if (hi - lo == 1) {
+		partitions.get(lo).generateBudgetCost();
+		return;
+	    }
+	    int mid = (lo + hi) >>> 1;
+	    invokeAll(new CostingTask(partitions, lo, mid), new CostingTask(
+		    partitions, mid, hi));
+	}
+    }
+}
@@ -119,7 +119,11 @@ public abstract class AbstractResource<E> implements Resource<E>, DateEffective
 	public int compare(Activity o1, Activity o2) {
 	    DateTime s1 = o1.getScheduledStart();
 	    DateTime s2 = o2.getScheduledStart();
-	    return s1.isBefore(s2) ? -1 : (s1.isEqual(s2) ? 0 : 1);
+	    if (s1.isEqual(s2)) {
+		// Keep activities that start at the same time.
+		return o1.getName().compareTo(o2.getName());
+	    }
+	    return s1.isBefore(s2) ? -1 : 1;
 	}
 
     }
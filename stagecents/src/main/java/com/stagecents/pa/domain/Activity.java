@@ -74,6 +74,14 @@ public interface Activity {
      */
     DateTime getScheduledEnd();
 
+    /**
+     * Moves the activity to the given scheduled start and end.
+     * 
+     * @param scheduledStart The new scheduled starting date and time.
+     * @param scheduledEnd The new scheduled ending date and time.
+     */
+    void reschedule(DateTime scheduledStart, DateTime scheduledEnd);
+
     /**
      * Returns the scheduled time interval of the activity
      * 
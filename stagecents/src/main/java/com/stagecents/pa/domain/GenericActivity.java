@@ -163,6 +163,48 @@ public class GenericActivity implements Activity {
 	return budgets;
     }
 
+    /**
+     * Changes the scheduled start and end of this activity. The activities of
+     * the project, the parent, the resources and the budgets are sorted by
+     * scheduled start, so this activity is taken out of those sets while its
+     * start changes and put back afterwards.
+     */
+    @Override
+    public void reschedule(DateTime scheduledStart, DateTime scheduledEnd) {
+	if (scheduledEnd.isBefore(scheduledStart)) {
+	    throw new IllegalArgumentException("invalid schedule");
+	}
+	List<Set<Activity>> owners = new ArrayList<Set<Activity>>();
+	if (project != null) {
+	    owners.add(project.getActivities());
+	}
+	if (parent != null) {
+	    owners.add(((GenericActivity) parent).children);
+	}
+	Iterator<Resource> resourceIter = resources.iterator();
+	while (resourceIter.hasNext()) {
+	    Resource<?> resource = resourceIter.next();
+	    owners.add(resource.getActivities());
+	}
+	Iterator<Budget> budgetIter = budgets.iterator();
+	while (budgetIter.hasNext()) {
+	    owners.add(budgetIter.next().getActivities());
+	}
+
+	Iterator<Set<Activity>> iter = owners.iterator();
+	while (iter.hasNext()) {
+	    if (!iter.next().remove(this)) {
+		iter.remove();
+	    }
+	}
+	this.scheduledStart = scheduledStart;
+	this.scheduledEnd = scheduledEnd;
+	iter = owners.iterator();
+	while (iter.hasNext()) {
+	    iter.next().add(this);
+	}
+    }
+
     @Override
     public Interval duration() {
 	return new Interval(scheduledStart, scheduledEnd);
@@ -278,7 +320,11 @@ public class GenericActivity implements Activity {
 	public int compare(Activity o1, Activity o2) {
 	    DateTime s1 = o1.getScheduledStart();
 	    DateTime s2 = o2.getScheduledStart();
-	    return s1.isBefore(s2) ? -1 : (s1.isEqual(s2) ? 0 : 1);
+	    if (s1.isEqual(s2)) {
+		// Keep siblings that start at the same time.
+		return o1.getName().compareTo(o2.getName());
+	    }
+	    return s1.isBefore(s2) ? -1 : 1;
 	}
 
     }
@@ -107,6 +107,10 @@ public class Project {
 	return sequence;
     }
 
+    public SortedSet<Activity> getActivities() {
+	return activities;
+    }
+
     public Set<ClassificationCode> getClassCodes() {
 	return classCodes;
     }
@@ -48,6 +48,10 @@ public class Season {
 	locked = false;
     }
 
+    public SortedSet<Project> getProjects() {
+	return projects;
+    }
+
     public void addProject(Project arg) {
 	arg.setSeason(this);
 	projects.add(arg);
@@ -0,0 +1,292 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.pay.domain;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.joda.time.Chronology;
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.joda.time.LocalDate;
+
+import com.stagecents.hr.domain.Position;
+import com.stagecents.hxt.domain.Timecard;
+import com.stagecents.pa.domain.Activity;
+import com.stagecents.pa.domain.Performance;
+
+/**
+ * Represents the compiled daily time rules of a position. A plan evaluates the
+ * hours of an activity on a single day for every element type linked to the
+ * position in one pass. The intermediates shared by the element types, i.e.
+ * the position's normal start and end on the day, its maximum hours and the
+ * kind of activity, are computed once per day, after which each element's
+ * regular, performance or overtime slice is split off on primitive instants.
+ * <p>
+ * Only <code>RegularWages</code>, <code>PerformanceWages</code> and
+ * <code>Overtime</code> elements are compiled. Any other element type,
+ * including subclasses of these, is evaluated through its own
+ * <code>processHours()</code> method, which remains the reference
+ * implementation of every rule. A plan is not thread safe.
+ *
+ * @author Blair Caple
+ */
+public class DailyRulesPlan {
+
+    private static final long MILLIS_PER_HOUR = 1000L * 60 * 60;
+    private static final long NO_MINIMUM_CALL = Long.MIN_VALUE;
+
+    private enum Rule {
+	REGULAR, PERFORMANCE, OVERTIME, REFERENCE
+    }
+
+    private final Position position;
+    private final ElementType[] elements;
+    private final Rule[] rules;
+
+    // Minimum call of each element, cached for the activity last evaluated.
+    private Activity activity;
+    private final long[] activityMinimumCall;
+    private final boolean[] activityMinimumCallKnown;
+
+    private DailyRulesPlan(Position position, boolean compile) {
+	this.position = position;
+	List<ElementType> list = position.getElements();
+	elements = list.toArray(new ElementType[list.size()]);
+	rules = new Rule[elements.length];
+	activityMinimumCall = new long[elements.length];
+	activityMinimumCallKnown = new boolean[elements.length];
+	for (int i = 0; i < elements.length; i++) {
+	    rules[i] = compile ? getRule(elements[i]) : Rule.REFERENCE;
+	}
+    }
+
+    /**
+     * Compiles the daily time rules of the given position's element types.
+     *
+     * @param position The position to compile.
+     * @return The compiled plan.
+     */
+    public static DailyRulesPlan compile(Position position) {
+	return new DailyRulesPlan(position, true);
+    }
+
+    /**
+     * Returns a plan that evaluates every element type of the given position
+     * through its own <code>processHours()</code> method, against which a
+     * compiled plan may be verified.
+     *
+     * @param position The position.
+     * @return The reference plan.
+     */
+    public static DailyRulesPlan reference(Position position) {
+	return new DailyRulesPlan(position, false);
+    }
+
+    private static Rule getRule(ElementType e) {
+	Class<?> c = e.getClass();
+	if (c == RegularWages.class) {
+	    return Rule.REGULAR;
+	} else if (c == PerformanceWages.class) {
+	    return Rule.PERFORMANCE;
+	} else if (c == Overtime.class) {
+	    return Rule.OVERTIME;
+	}
+	return Rule.REFERENCE;
+    }
+
+    /**
+     * Returns the element types evaluated by this plan, in evaluation order.
+     *
+     * @return The list of element types.
+     */
+    public List<ElementType> getElements() {
+	return Collections.unmodifiableList(Arrays.asList(elements));
+    }
+
+    /**
+     * Records the hours of the given activity on a single day for every
+     * element type of this plan's position.
+     *
+     * @param interval The time period of the activity, adjusted to a single
+     *            day.
+     * @param act The activity from which to compute hours.
+     * @param timecard The timecard on which to record the hours.
+     */
+    public void processHours(Interval interval, Activity act,
+	    Timecard timecard) {
+	if (act != activity) {
+	    activity = act;
+	    Arrays.fill(activityMinimumCallKnown, false);
+	}
+	boolean performance = act instanceof Performance;
+	Day day = null;
+	for (int i = 0; i < elements.length; i++) {
+	    Rule rule = rules[i];
+	    if (rule == Rule.REFERENCE) {
+		elements[i].processHours(interval, act, timecard, position);
+		continue;
+	    }
+	    if ((rule == Rule.REGULAR && performance)
+		    || (rule == Rule.PERFORMANCE && !performance)) {
+		continue;
+	    }
+	    if (day == null) {
+		day = new Day(interval);
+	    }
+	    if (rule == Rule.OVERTIME) {
+		processOvertime(i, day, act, timecard);
+	    } else {
+		processRegular(i, day, act, timecard);
+	    }
+	}
+    }
+
+    /**
+     * Splits off the regular hours worked within the position's normal hours,
+     * as in <code>RegularWages.doProcessHours()</code>.
+     */
+    private void processRegular(int i, Day day, Activity act,
+	    Timecard timecard) {
+	ElementType e = elements[i];
+	long start = day.regularStart;
+	long end = day.end;
+
+	if (!activityMinimumCallKnown[i]) {
+	    activityMinimumCall[i] = getMinimumCall(e, act.getScheduledStart()
+		    .getMillis());
+	    activityMinimumCallKnown[i] = true;
+	}
+	if (activityMinimumCall[i] != NO_MINIMUM_CALL) {
+	    end = Math.max(end, end + activityMinimumCall[i]);
+	}
+	end = Math.min(end, day.getNormalEnd(end));
+	end = Math.min(end, getAvailableEnd(e, timecard, day, start));
+
+	e.updateTimecard(timecard, act, new Interval(start, end,
+		day.chronology));
+    }
+
+    /**
+     * Splits off the premium hours worked before the position's normal start
+     * and after its normal end, as in <code>Overtime.processHours()</code>.
+     */
+    private void processOvertime(int i, Day day, Activity act,
+	    Timecard timecard) {
+	ElementType e = elements[i];
+	long start = day.start;
+	long regularStart = day.regularStart;
+	if (start < regularStart) {
+	    e.updateTimecard(timecard, act, new Interval(start, regularStart,
+		    day.chronology));
+	}
+
+	long end = day.end;
+	long minimumCall = getMinimumCall(e, start);
+	if (minimumCall != NO_MINIMUM_CALL) {
+	    end = Math.max(end, end + minimumCall);
+	}
+	long regularEnd = Math.min(end, day.getNormalEnd(end));
+	regularEnd = Math.min(regularEnd, getAvailableEnd(e, timecard, day,
+		regularStart));
+
+	if (regularEnd < end) {
+	    e.updateTimecard(timecard, act, new Interval(regularEnd, end,
+		    day.chronology));
+	}
+    }
+
+    private long getMinimumCall(ElementType e, long instant) {
+	MinimumCallValue mc = (MinimumCallValue) e.getInputValueIndex().find(
+		InputValue.Type.MINIMUM_CALL, instant);
+	if (mc == null) {
+	    return NO_MINIMUM_CALL;
+	}
+	return (long) mc.getDefaultValue() * MILLIS_PER_HOUR;
+    }
+
+    /**
+     * Returns the latest end of time worked from the given start that keeps
+     * the element's hours on the timecard within the position's maximum.
+     */
+    private long getAvailableEnd(ElementType e, Timecard timecard, Day day,
+	    long start) {
+	float maximumHours = position.getMaximumHours();
+	if (maximumHours <= 0) {
+	    return Long.MAX_VALUE;
+	}
+	float priorHours = e.getPriorHours(timecard, day.date);
+	float availHours = Math.max(0F, maximumHours - priorHours);
+	return start + (long) availHours * MILLIS_PER_HOUR;
+    }
+
+    /**
+     * Represents the intermediates of a single day shared by every element.
+     */
+    private class Day {
+	final Chronology chronology;
+	final LocalDate date;
+	final long start;
+	final long end;
+	final long regularStart;
+
+	// Normal end on the date, and the bounds of the date.
+	private long normalEnd;
+	private long dateStart;
+	private long dateEnd;
+
+	Day(Interval interval) {
+	    DateTime dt = interval.getStart();
+	    chronology = interval.getChronology();
+	    date = dt.toLocalDate();
+	    start = interval.getStartMillis();
+	    end = interval.getEndMillis();
+	    if (position.getNormalStart() != null) {
+		regularStart = Math.max(start, date.toDateTime(
+			position.getNormalStart()).getMillis());
+	    } else {
+		regularStart = start;
+	    }
+	    if (position.getNormalEnd() != null) {
+		normalEnd = date.toDateTime(position.getNormalEnd())
+			.getMillis();
+		dateStart = date.toDateTimeAtStartOfDay().getMillis();
+		dateEnd = date.plusDays(1).toDateTimeAtStartOfDay().getMillis();
+	    }
+	}
+
+	/**
+	 * Returns the position's normal end on the date of the given instant.
+	 */
+	long getNormalEnd(long instant) {
+	    if (position.getNormalEnd() == null) {
+		return Long.MAX_VALUE;
+	    }
+	    if (dateStart <= instant && instant < dateEnd) {
+		return normalEnd;
+	    }
+	    return new DateTime(instant, chronology).toLocalDate()
+		    .toDateTime(position.getNormalEnd()).getMillis();
+	}
+    }
+}
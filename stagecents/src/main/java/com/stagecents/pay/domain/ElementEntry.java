@@ -21,6 +21,7 @@
  */
 package com.stagecents.pay.domain;
 
+import java.math.RoundingMode;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -29,10 +30,10 @@ import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 
 import com.stagecents.common.DateEffective;
+import com.stagecents.common.FixedPoint;
 import com.stagecents.common.EffectiveDateInterval;
 import com.stagecents.hr.domain.Position;
 import com.stagecents.hxt.domain.DetailHours;
-import com.stagecents.hxt.domain.SummaryHours;
 import com.stagecents.hxt.domain.Timecard;
 
 /**
@@ -75,6 +76,10 @@ public class ElementEntry implements DateEffective {
 	this.elementLink = elementLink;
     }
 
+    public ElementType getElementType() {
+	return elementLink.getElementType();
+    }
+
     public void addElementEntryValue(ElementEntryValue arg) {
 	arg.setElementEntry(this);
 	entryValues.add(arg);
@@ -85,38 +90,44 @@ public class ElementEntry implements DateEffective {
 	entryValues.remove(arg);
     }
 
+    /**
+     * Computes the pay of this entry from the hours recorded on the given
+     * timecard. Hours, rate and multiplier are converted to fixed-point
+     * values and multiplied exactly; the pay is rounded half up to cents once.
+     */
     public void processHours(Timecard timecard) {
 	// Fetch hours
-	float hours = 0;
-	Iterator<SummaryHours> iter1 = timecard.getSummaryHours().iterator();
-	while (iter1.hasNext()) {
-	    SummaryHours sh = iter1.next();
-	    hours += sh.getHours(elementLink.getElementType());
-	}
+	float hours = timecard.getHours(elementLink.getElementType());
 	ElementEntryValue hoursValue = getElementEntryValue(HoursValue.class);
 	if (hoursValue != null) {
 	    hoursValue.setValue(hours);
 	}
 
 	// Fetch rate
-	float rate = 0;
+	long rate = 0;
 	ElementEntryValue rateValue = getElementEntryValue(RateValue.class);
 	if (rateValue != null) {
-	    rate = rateValue.getValue();
+	    rate = FixedPoint.valueOf(rateValue.getValue(),
+		    FixedPoint.FACTOR_SCALE);
 	}
 
 	// Fetch rate multiplier
-	float multiplier = 1;
+	long multiplier = FixedPoint.valueOf(1, FixedPoint.FACTOR_SCALE);
 	ElementEntryValue multiplierValue = getElementEntryValue(MultiplierValue.class);
 	if (multiplierValue != null) {
-	    multiplier = multiplierValue.getValue();
+	    multiplier = FixedPoint.valueOf(multiplierValue.getValue(),
+		    FixedPoint.FACTOR_SCALE);
 	}
 
 	// Compute and set pay
-	float pay = rate * multiplier * hours;
+	long pay = FixedPoint.multiply(FixedPoint.multiply(rate, multiplier),
+		FixedPoint.valueOf(hours, FixedPoint.HOURS_SCALE));
+	pay = FixedPoint.rescale(pay, FixedPoint.FACTOR_SCALE * 2
+		+ FixedPoint.HOURS_SCALE, FixedPoint.MONEY_SCALE,
+		RoundingMode.HALF_UP);
 	ElementEntryValue payValue = getElementEntryValue(PayMoneyValue.class);
 	if (payValue != null) {
-	    payValue.setValue(pay);
+	    payValue.setValue(FixedPoint.toFloat(pay, FixedPoint.MONEY_SCALE));
 	}
     }
 
@@ -36,9 +36,9 @@ import org.joda.time.LocalDate;
 
 import com.stagecents.common.DateEffective;
 import com.stagecents.common.EffectiveDateInterval;
+import com.stagecents.common.Utils;
 import com.stagecents.hr.domain.Party;
 import com.stagecents.hr.domain.Position;
-import com.stagecents.hxt.domain.SummaryHours;
 import com.stagecents.hxt.domain.Timecard;
 import com.stagecents.pa.domain.Activity;
 
@@ -149,6 +149,9 @@ public class ElementType implements DateEffective {
 	    new InputValueComparator());
     protected Set<ElementLink> links = new HashSet<ElementLink>();
 
+    // Lazy loaded temporal index of input values.
+    private transient volatile InputValueIndex inputValueIndex;
+
     ElementType() {
     }
 
@@ -167,34 +170,51 @@ public class ElementType implements DateEffective {
 	return effectiveDateRange;
     }
 
+    public String getName() {
+	return name;
+    }
+
     public int getSequence() {
 	return sequence;
     }
 
+    public void setSequence(int sequence) {
+	this.sequence = sequence;
+    }
+
     public SortedSet<InputValue> getInputValues() {
 	return inputValues;
     }
 
     public List<InputValue> getValues(LocalDate effectiveDate) {
-	List<InputValue> result = new ArrayList<InputValue>();
-	Iterator<InputValue> iter = inputValues.iterator();
-	while (iter.hasNext()) {
-	    InputValue each = iter.next();
-	    if (each.isEffective(effectiveDate)) {
-		result.add(each);
-	    }
-	}
-	return result;
+	return getInputValueIndex().findAll(Utils.toEpochDay(effectiveDate));
     }
 
     public void addInputValue(InputValue arg) {
 	arg.setElementType(this);
 	inputValues.add(arg);
+	inputValueIndex = null;
     }
 
     public void removeInputValue(InputValue arg) {
 	arg.setElementType(null);
 	inputValues.remove(arg);
+	inputValueIndex = null;
+    }
+
+    /**
+     * Returns the temporal index of this element's input values, building it
+     * if the input values have changed since it was last built.
+     * 
+     * @return The temporal index of this element's input values.
+     */
+    InputValueIndex getInputValueIndex() {
+	InputValueIndex result = inputValueIndex;
+	if (result == null) {
+	    result = new InputValueIndex(inputValues);
+	    inputValueIndex = result;
+	}
+	return result;
     }
 
     public void linkElement(ElementLink arg) {
@@ -255,57 +275,29 @@ public class ElementType implements DateEffective {
      *         been recorded.
      */
     float getPriorHours(Timecard timecard, LocalDate start) {
-	float result = 0F;
-	Iterator<SummaryHours> iter = timecard.getSummaryHours().iterator();
-	while (iter.hasNext()) {
-	    SummaryHours sh = iter.next();
-	    if (sh.getDateWorked().isBefore(start)) {
-		result += sh.getHours(this);
-	    }
-	}
-	return result;
+	return timecard.getPriorHours(this, start);
     }
 
     MultiplierValue getMultiplier(Interval interval) {
-	Iterator<InputValue> iter = inputValues.iterator();
-	while (iter.hasNext()) {
-	    InputValue iv = iter.next();
-	    if (iv instanceof MultiplierValue) {
-		MultiplierValue mv = (MultiplierValue) iv;
-		if (mv.getEffectiveDateRange() == null
-			|| mv.isEffective(interval.getStart())) {
-		    return mv;
-		}
-	    }
+	InputValueIndex index = getInputValueIndex();
+	long instant = interval.getStartMillis();
+	InputValue mv = index.find(InputValue.Type.MULTIPLE, instant);
+	InputValue omv = index.find(InputValue.Type.OT_MULTIPLE, instant);
+	if (mv == null || (omv != null
+		&& inputValues.comparator().compare(omv, mv) < 0)) {
+	    return (MultiplierValue) omv;
 	}
-	return null;
+	return (MultiplierValue) mv;
     }
 
     MinimumCallValue getMinimumCall(Interval interval) {
-	Iterator<InputValue> iter = inputValues.iterator();
-	while (iter.hasNext()) {
-	    InputValue iv = iter.next();
-	    if (iv instanceof MinimumCallValue) {
-		MinimumCallValue mcv = (MinimumCallValue) iv;
-		if (mcv.getEffectiveDateRange() == null
-			|| mcv.isEffective(interval.getStart())) {
-		    return mcv;
-		}
-	    }
-	}
-	return null;
+	return (MinimumCallValue) getInputValueIndex().find(
+		InputValue.Type.MINIMUM_CALL, interval.getStartMillis());
     }
 
     void updateTimecard(Timecard timecard, Activity activity,
 	    Interval timeWorked) {
-	LocalDate dateWorked = timeWorked.getStart().toLocalDate();
-
-	SummaryHours sh = timecard.getSummaryHours(dateWorked);
-	if (sh == null) {
-	    int seq = timecard.getSummaryHoursSequence(dateWorked);
-	    sh = new SummaryHours(timecard, seq, dateWorked);
-	}
-	sh.updateHours(activity, this, timeWorked);
+	timecard.updateHours(activity, this, timeWorked);
     }
 
     @Override
@@ -85,6 +85,10 @@ public abstract class InputValue implements DateEffective {
 	this.elementType = elementType;
     }
 
+    public Type getType() {
+	return type;
+    }
+
     public int getSequence() {
 	return sequence;
     }
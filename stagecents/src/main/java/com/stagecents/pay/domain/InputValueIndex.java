@@ -0,0 +1,239 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.pay.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.stagecents.common.EffectiveDateInterval;
+
+/**
+ * Represents a read-only temporal index of the input values of an element
+ * type. Input values are grouped by type and, within each type, sorted by
+ * effective start date. Lookups use binary search over primitive epoch millis
+ * and do not allocate.
+ * <p>
+ * The index preserves the lookup semantics of a scan over the element's
+ * input values in their natural order, i.e. by sequence and then by start
+ * date: the first value of the requested type that is effective is returned.
+ *
+ * @author Blair Caple
+ */
+class InputValueIndex {
+
+    private static final InputValue.Type[] TYPES = InputValue.Type.values();
+
+    // Per type arrays, indexed by type ordinal.
+    private final InputValue[][] values;
+    private final long[][] starts;
+    private final long[][] ends;
+    private final long[][] maxEnds;
+    private final boolean[] uniformSequence;
+
+    // All values in their natural order.
+    private final InputValue[] all;
+    private final long[] allStarts;
+    private final long[] allEnds;
+    private final long[] allStartDays;
+    private final long[] allEndDays;
+
+    /**
+     * Creates a new index of the given input values, which must be iterated in
+     * their natural order.
+     *
+     * @param inputValues The input values to index.
+     */
+    InputValueIndex(Collection<InputValue> inputValues) {
+	int n = inputValues.size();
+	all = inputValues.toArray(new InputValue[n]);
+	allStarts = new long[n];
+	allEnds = new long[n];
+	allStartDays = new long[n];
+	allEndDays = new long[n];
+
+	List<List<Integer>> byType = new ArrayList<List<Integer>>();
+	for (int i = 0; i < TYPES.length; i++) {
+	    byType.add(new ArrayList<Integer>());
+	}
+	for (int i = 0; i < n; i++) {
+	    EffectiveDateInterval range = all[i].getEffectiveDateRange();
+	    allStarts[i] = (range == null) ? Long.MIN_VALUE : range
+		    .getStartMillis();
+	    allEnds[i] = (range == null) ? Long.MAX_VALUE : range
+		    .getEndMillis();
+	    allStartDays[i] = (range == null) ? Long.MIN_VALUE : range
+		    .getStartDay();
+	    allEndDays[i] = (range == null) ? Long.MAX_VALUE : range
+		    .getEndDay();
+	    InputValue.Type type = all[i].getType();
+	    if (type != null) {
+		byType.get(type.ordinal()).add(i);
+	    }
+	}
+
+	values = new InputValue[TYPES.length][];
+	starts = new long[TYPES.length][];
+	ends = new long[TYPES.length][];
+	maxEnds = new long[TYPES.length][];
+	uniformSequence = new boolean[TYPES.length];
+	for (int t = 0; t < TYPES.length; t++) {
+	    build(t, byType.get(t));
+	}
+    }
+
+    private void build(int t, List<Integer> members) {
+	// Insertion sort by start date keeps equal starts in natural order.
+	int n = members.size();
+	Integer[] order = members.toArray(new Integer[n]);
+	for (int i = 1; i < n; i++) {
+	    Integer key = order[i];
+	    int j = i - 1;
+	    while (j >= 0 && allStarts[order[j]] > allStarts[key]) {
+		order[j + 1] = order[j];
+		j--;
+	    }
+	    order[j + 1] = key;
+	}
+
+	values[t] = new InputValue[n];
+	starts[t] = new long[n];
+	ends[t] = new long[n];
+	maxEnds[t] = new long[n];
+	uniformSequence[t] = true;
+	long maxEnd = Long.MIN_VALUE;
+	for (int i = 0; i < n; i++) {
+	    int k = order[i];
+	    values[t][i] = all[k];
+	    starts[t][i] = allStarts[k];
+	    ends[t][i] = allEnds[k];
+	    maxEnd = Math.max(maxEnd, allEnds[k]);
+	    maxEnds[t][i] = maxEnd;
+	    if (all[k].getSequence() != values[t][0].getSequence()) {
+		uniformSequence[t] = false;
+	    }
+	}
+    }
+
+    /**
+     * Returns the first input value of the given type that is effective at
+     * the given instant, or null if no such value exists.
+     *
+     * @param type The type of input value to look up.
+     * @param instant The instant in epoch millis.
+     * @return The effective input value, or null.
+     */
+    InputValue find(InputValue.Type type, long instant) {
+	return find(type, instant, instant + 1);
+    }
+
+    /**
+     * Returns the first input value of the given type whose effective date
+     * range overlaps the given period, or null if no such value exists.
+     *
+     * @param type The type of input value to look up.
+     * @param from The inclusive start of the period in epoch millis.
+     * @param to The exclusive end of the period in epoch millis.
+     * @return The overlapping input value, or null.
+     */
+    InputValue find(InputValue.Type type, long from, long to) {
+	int t = type.ordinal();
+	long[] s = starts[t];
+
+	// Values at or after lo are the only ones that may end after the
+	// period start, and values before hi the only ones that start before
+	// the period end.
+	int lo = firstGreater(maxEnds[t], from);
+	int hi = firstNotLess(s, to);
+	if (lo >= hi) {
+	    return null;
+	}
+	if (uniformSequence[t]) {
+	    return values[t][lo];
+	}
+
+	// Sequences differ, so the value with the lowest sequence wins.
+	InputValue result = null;
+	long[] e = ends[t];
+	for (int i = lo; i < hi; i++) {
+	    if (e[i] > from
+		    && (result == null || values[t][i].getSequence() < result
+			    .getSequence())) {
+		result = values[t][i];
+	    }
+	}
+	return result;
+    }
+
+    /**
+     * Returns the input values that are effective for the whole of the given
+     * day, in their natural order.
+     *
+     * @param epochDay The day to test.
+     * @return The list of input values effective on the given day.
+     */
+    List<InputValue> findAll(long epochDay) {
+	List<InputValue> result = new ArrayList<InputValue>();
+	for (int i = 0; i < all.length; i++) {
+	    if (allStartDays[i] <= epochDay && epochDay < allEndDays[i]) {
+		result.add(all[i]);
+	    }
+	}
+	return result;
+    }
+
+    /**
+     * Returns the index of the first element greater than the given key in
+     * the given sorted array, or the array length if there is none.
+     */
+    private static int firstGreater(long[] a, long key) {
+	int lo = 0;
+	int hi = a.length;
+	while (lo < hi) {
+	    int mid = (lo + hi) >>> 1;
+	    if (a[mid] > key) {
+		hi = mid;
+	    } else {
+		lo = mid + 1;
+	    }
+	}
+	return lo;
+    }
+
+    /**
+     * Returns the index of the first element not less than the given key in
+     * the given sorted array, or the array length if there is none.
+     */
+    private static int firstNotLess(long[] a, long key) {
+	int lo = 0;
+	int hi = a.length;
+	while (lo < hi) {
+	    int mid = (lo + hi) >>> 1;
+	    if (a[mid] >= key) {
+		hi = mid;
+	    } else {
+		lo = mid + 1;
+	    }
+	}
+	return lo;
+    }
+}
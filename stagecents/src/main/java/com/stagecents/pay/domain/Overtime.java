@@ -92,7 +92,9 @@ public class Overtime extends ElementType {
 	// Test end time against maximum time for position.
 	if (position.getMaximumHours() > 0) {
 	    float priorHrs = getPriorHours(timecard, regStart.toLocalDate());
-	    long availMillis = (long) (position.getMaximumHours() - priorHrs) * 1000 * 60 * 60;
+	    float availHours = Math.max(0F, position.getMaximumHours()
+		    - priorHrs);
+	    long availMillis = (long) availHours * 1000 * 60 * 60;
 	    DateTime availEnd = regStart.plus(availMillis);
 	    regEnd = availEnd.isBefore(regEnd) ? availEnd : regEnd;
 	}
@@ -28,7 +28,6 @@ import java.util.TreeSet;
 import org.joda.time.DateTime;
 import org.joda.time.Days;
 import org.joda.time.Interval;
-import org.joda.time.LocalDate;
 import org.joda.time.Months;
 
 import com.stagecents.common.DayOfWeek;
@@ -106,53 +105,6 @@ public class PayCycle {
 	return periodEndDay;
     }
 
-    public LocalDate getCycleStart(Interval arg) {
-	LocalDate result = null;
-	if (frequency.equals(Frequency.W)) {
-	    result = getWeeklyCycleStart(arg).toLocalDate();
-
-	} else if (frequency.equals(Frequency.F)) {
-	    // TODO Need to compute biweekly start date
-
-	} else if (frequency.equals(Frequency.SM)) {
-	    result = (arg.getStart().getDayOfMonth() <= 15) ? arg.getStart()
-		    .dayOfMonth().withMinimumValue().toLocalDate() : arg
-		    .getStart().withDayOfMonth(15).toLocalDate();
-
-	} else if (frequency.equals(Frequency.CM)) {
-	    result = arg.getStart().withDayOfMonth(1).toLocalDate();
-
-	} else if (frequency.equals(Frequency.Q)) {
-	    int adjStartMonth = getQuarterStartMonth(arg.getStart()
-		    .getMonthOfYear());
-	    result = arg.getStart().withMonthOfYear(adjStartMonth)
-		    .withDayOfMonth(1).toLocalDate();
-	}
-	return result;
-    }
-
-    public LocalDate getCycleEnd(LocalDate cycleStart) {
-	LocalDate result = null;
-	if (frequency.equals(Frequency.W)) {
-	    result = cycleStart.plusDays(6);
-	    
-	} else if (frequency.equals(Frequency.F)) {
-	    result = cycleStart.plusDays(13);
-	    
-	} else if (frequency.equals(Frequency.SM)) {
-	    result = (cycleStart.getDayOfMonth() == 1) ? cycleStart
-		    .withDayOfMonth(15) : cycleStart.dayOfMonth()
-		    .withMaximumValue();
-		    
-	} else if(frequency.equals(Frequency.CM)) {
-	    result = cycleStart.dayOfMonth().withMaximumValue();
-	    
-	} else if(frequency.equals(Frequency.Q)) {
-	    result = cycleStart.plusMonths(2).dayOfMonth().withMaximumValue();
-	}
-	return result;
-    }
-
     private DateTime getWeeklyCycleStart(Interval arg) {
 	int argStartDOW = arg.getStart().getDayOfWeek();
 	int cycleStartDOW = (periodEndDay.getIsoValue() == 7) ? 1
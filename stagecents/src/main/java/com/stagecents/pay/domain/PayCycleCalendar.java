@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.pay.domain;
+
+import java.util.Arrays;
+
+import org.joda.time.LocalDate;
+
+import com.stagecents.common.Utils;
+import com.stagecents.pay.domain.PayCycle.Frequency;
+
+/**
+ * Represents the precomputed cycle boundaries of a pay cycle over a range of
+ * dates. Boundaries are held as a sorted array of epoch days so that the cycle
+ * of any date in the range is found by binary search.
+ * <p>
+ * Weekly cycles end on the pay cycle's period end day or, if none is defined,
+ * on the weekday of the payroll's first period end date. Biweekly cycles are
+ * anchored on the payroll's first period end date. Semimonthly cycles run from
+ * the 1st to the 15th and from the 16th to the end of the month. Monthly,
+ * quarterly and annual cycles follow the calendar. Flat fee pay cycles have no
+ * cycles.
+ *
+ * @author Blair Caple
+ */
+public class PayCycleCalendar {
+
+    private static final LocalDate EPOCH = new LocalDate(1970, 1, 1);
+
+    private final Frequency frequency;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+
+    // Cycle i runs from bounds[i] to bounds[i + 1] - 1.
+    private final long[] bounds;
+
+    /**
+     * Creates a new PayCycleCalendar with every cycle of the given pay cycle
+     * that overlaps the given range of dates.
+     *
+     * @param payCycle The pay cycle.
+     * @param firstEndDate The end date of the first cycle of the payroll, used
+     *            to anchor weekly and biweekly cycles.
+     * @param startDate The first date to cover.
+     * @param endDate The last date to cover.
+     */
+    public PayCycleCalendar(PayCycle payCycle, LocalDate firstEndDate,
+	    LocalDate startDate, LocalDate endDate) {
+	if (endDate.isBefore(startDate)) {
+	    throw new IllegalArgumentException("invalid date range");
+	}
+	this.frequency = payCycle.getFrequency();
+	this.startDate = startDate;
+	this.endDate = endDate;
+
+	long from = Utils.toEpochDay(startDate);
+	long to = Utils.toEpochDay(endDate);
+	if (frequency.equals(Frequency.W) || frequency.equals(Frequency.F)) {
+	    int length = frequency.equals(Frequency.W) ? 7 : 14;
+	    long anchor = getAnchor(payCycle, firstEndDate) + 1;
+	    long first = anchor + floorDiv(from - anchor, length) * length;
+	    int n = (int) ((to - first) / length) + 2;
+	    bounds = new long[n];
+	    for (int i = 0; i < n; i++) {
+		bounds[i] = first + (long) i * length;
+	    }
+	} else if (frequency.equals(Frequency.FF)) {
+	    bounds = new long[0];
+	} else {
+	    bounds = getCalendarBounds(startDate, to);
+	}
+    }
+
+    private long getAnchor(PayCycle payCycle, LocalDate firstEndDate) {
+	if (frequency.equals(Frequency.W)
+		&& payCycle.getPeriodEndDay() != null) {
+	    // Any day falling on the period end day will do. The epoch fell on
+	    // a Thursday.
+	    int endDay = payCycle.getPeriodEndDay().getIsoValue();
+	    return endDay - 4 - floorDiv(endDay - 4, 7) * 7;
+	}
+	if (firstEndDate == null) {
+	    throw new IllegalArgumentException("missing first period end date");
+	}
+	return Utils.toEpochDay(firstEndDate);
+    }
+
+    private static long floorDiv(long x, long y) {
+	long q = x / y;
+	return (x % y != 0 && (x < 0) != (y < 0)) ? q - 1 : q;
+    }
+
+    private long[] getCalendarBounds(LocalDate startDate, long to) {
+	LocalDate cycleStart = getCalendarCycleStart(startDate);
+	long[] result = new long[16];
+	int n = 0;
+	while (true) {
+	    long day = Utils.toEpochDay(cycleStart);
+	    if (n == result.length) {
+		result = Arrays.copyOf(result, n * 2);
+	    }
+	    result[n++] = day;
+	    if (day > to) {
+		break;
+	    }
+	    cycleStart = getNextCycleStart(cycleStart);
+	}
+	return Arrays.copyOf(result, n);
+    }
+
+    private LocalDate getCalendarCycleStart(LocalDate date) {
+	if (frequency.equals(Frequency.SM)) {
+	    return date.withDayOfMonth(date.getDayOfMonth() <= 15 ? 1 : 16);
+	} else if (frequency.equals(Frequency.CM)) {
+	    return date.withDayOfMonth(1);
+	} else if (frequency.equals(Frequency.Q)) {
+	    int month = (date.getMonthOfYear() - 1) / 3 * 3 + 1;
+	    return date.withMonthOfYear(month).withDayOfMonth(1);
+	}
+	return date.withDayOfYear(1);
+    }
+
+    private LocalDate getNextCycleStart(LocalDate cycleStart) {
+	if (frequency.equals(Frequency.SM)) {
+	    return (cycleStart.getDayOfMonth() == 1) ? cycleStart
+		    .withDayOfMonth(16) : cycleStart.plusMonths(1)
+		    .withDayOfMonth(1);
+	} else if (frequency.equals(Frequency.CM)) {
+	    return cycleStart.plusMonths(1);
+	} else if (frequency.equals(Frequency.Q)) {
+	    return cycleStart.plusMonths(3);
+	}
+	return cycleStart.plusYears(1);
+    }
+
+    /**
+     * Returns true if every date in the given range falls within this
+     * calendar.
+     *
+     * @param from The first date of the range.
+     * @param to The last date of the range.
+     * @return True if this calendar covers the given range.
+     */
+    public boolean covers(LocalDate from, LocalDate to) {
+	return !from.isBefore(startDate) && !to.isAfter(endDate);
+    }
+
+    public LocalDate getStartDate() {
+	return startDate;
+    }
+
+    public LocalDate getEndDate() {
+	return endDate;
+    }
+
+    /**
+     * Returns the number of cycles in this calendar.
+     *
+     * @return The number of cycles.
+     */
+    public int size() {
+	return Math.max(bounds.length - 1, 0);
+    }
+
+    /**
+     * Returns the index of the cycle that contains the given date, or -1 if
+     * the date falls outside this calendar.
+     *
+     * @param date The date to look up.
+     * @return The index of the cycle containing the given date, or -1.
+     */
+    public int indexOf(LocalDate date) {
+	return indexOf(Utils.toEpochDay(date));
+    }
+
+    /**
+     * Returns the index of the cycle that contains the given epoch day, or -1
+     * if the day falls outside this calendar.
+     *
+     * @param epochDay The epoch day to look up.
+     * @return The index of the cycle containing the given day, or -1.
+     */
+    public int indexOf(long epochDay) {
+	int i = Arrays.binarySearch(bounds, epochDay);
+	if (i < 0) {
+	    i = -i - 2;
+	}
+	return (i < 0 || i >= size()) ? -1 : i;
+    }
+
+    /**
+     * Returns the first day of the cycle at the given index.
+     *
+     * @param index The index of the cycle.
+     * @return The first day of the cycle.
+     */
+    public LocalDate getCycleStart(int index) {
+	return EPOCH.plusDays((int) getCycleStartDay(index));
+    }
+
+    /**
+     * Returns the last day of the cycle at the given index.
+     *
+     * @param index The index of the cycle.
+     * @return The last day of the cycle.
+     */
+    public LocalDate getCycleEnd(int index) {
+	return EPOCH.plusDays((int) getCycleEndDay(index));
+    }
+
+    public long getCycleStartDay(int index) {
+	checkIndex(index);
+	return bounds[index];
+    }
+
+    public long getCycleEndDay(int index) {
+	checkIndex(index);
+	return bounds[index + 1] - 1;
+    }
+
+    /**
+     * Returns the number of cycles touched by the given range of dates, or 0
+     * if the range falls outside this calendar.
+     *
+     * @param from The first date of the range.
+     * @param to The last date of the range.
+     * @return The number of cycles in the given range.
+     */
+    public int getCyclePeriods(LocalDate from, LocalDate to) {
+	int first = indexOf(from);
+	int last = indexOf(to);
+	if (first < 0 || last < 0) {
+	    return 0;
+	}
+	return last - first + 1;
+    }
+
+    private void checkIndex(int index) {
+	if (index < 0 || index >= size()) {
+	    throw new IndexOutOfBoundsException("invalid cycle index");
+	}
+    }
+}
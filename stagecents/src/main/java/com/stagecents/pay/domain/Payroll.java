@@ -59,6 +59,9 @@ public class Payroll {
     private Set<ElementLink> elements = new HashSet<ElementLink>();
     private Set<Timecard> timecards = new HashSet<Timecard>();
 
+    // Cached pay cycle boundaries, rebuilt when a wider range is requested.
+    private transient volatile PayCycleCalendar calendar;
+
     Payroll() {
     }
 
@@ -104,17 +107,46 @@ public class Payroll {
     }
 
     /**
-     * Returns the number of pay cycles in the given time interval. For weekly
-     * and biweekly pay cycles, the method returns the number of days of the
-     * current pay cycle in the given time interval. For flat fee arrangements,
-     * the method returns 0.
+     * Returns the number of pay cycles touched by the given time interval, as
+     * defined by the pay cycle calendar of this payroll. For flat fee
+     * arrangements, the method returns 0.
      * 
      * @param arg The time period to analyze.
-     * @return The number of pay cycles in the given time period, or days of the
-     *         current pay cycle for weekly and biweekly pay cycles.
+     * @return The number of pay cycles in the given time period.
      */
     public int getPayCyclePeriods(Interval arg) {
-	return payCycle.getCyclePeriods(arg);
+	LocalDate from = arg.getStart().toLocalDate();
+	LocalDate to = arg.getEnd().toLocalDate();
+	return getPayCycleCalendar(from, to).getCyclePeriods(from, to);
+    }
+
+    /**
+     * Returns the pay cycle calendar of this payroll covering at least the
+     * given range of dates. The calendar is cached and widened to whole
+     * calendar years so that a season or fiscal year shares one instance.
+     * 
+     * @param from The first date to cover.
+     * @param to The last date to cover.
+     * @return The pay cycle calendar covering the given dates.
+     */
+    public PayCycleCalendar getPayCycleCalendar(LocalDate from, LocalDate to) {
+	PayCycleCalendar result = calendar;
+	if (result != null && result.covers(from, to)) {
+	    return result;
+	}
+	if (result != null) {
+	    if (result.getStartDate().isBefore(from)) {
+		from = result.getStartDate();
+	    }
+	    if (result.getEndDate().isAfter(to)) {
+		to = result.getEndDate();
+	    }
+	}
+	result = new PayCycleCalendar(payCycle, firstEndDate,
+		from.withDayOfYear(1), to.plusYears(1).withDayOfYear(1)
+			.minusDays(1));
+	calendar = result;
+	return result;
     }
 
     @Override
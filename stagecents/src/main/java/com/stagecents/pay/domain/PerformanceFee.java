@@ -21,8 +21,6 @@
  */
 package com.stagecents.pay.domain;
 
-import java.util.Iterator;
-
 import org.joda.time.Interval;
 import org.joda.time.LocalDate;
 
@@ -51,16 +49,8 @@ public class PerformanceFee extends ElementType {
     }
 
     private PayMoneyValue getFee(Interval interval) {
-	Iterator<InputValue> iter = inputValues.iterator();
-	while (iter.hasNext()) {
-	    InputValue each = iter.next();
-	    if (each instanceof PayMoneyValue) {
-		PayMoneyValue fee = (PayMoneyValue) each;
-		if (fee.getEffectiveDateRange().getOverlap(interval) != null) {
-		    return fee;
-		}
-	    }
-	}
-	return null;
+	return (PayMoneyValue) getInputValueIndex().find(
+		InputValue.Type.PAY_VALUE_MONEY, interval.getStartMillis(),
+		interval.getEndMillis());
     }
 }
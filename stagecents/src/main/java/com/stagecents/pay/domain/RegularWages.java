@@ -22,7 +22,6 @@
 package com.stagecents.pay.domain;
 
 import java.util.Comparator;
-import java.util.Iterator;
 
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
@@ -114,7 +113,9 @@ public class RegularWages extends ElementType {
 	// Test end time against maximum time for position.
 	if (position.getMaximumHours() > 0) {
 	    float priorHours = getPriorHours(timecard, start.toLocalDate());
-	    long availMillis = (long) (position.getMaximumHours() - priorHours) * 1000 * 60 * 60;
+	    float availHours = Math.max(0F, position.getMaximumHours()
+		    - priorHours);
+	    long availMillis = (long) availHours * 1000 * 60 * 60;
 	    DateTime availEnd = start.plus(availMillis);
 	    end = availEnd.isBefore(end) ? availEnd : end;
 	}
@@ -123,18 +124,8 @@ public class RegularWages extends ElementType {
     }
 
     private RateValue getRate(Interval interval) {
-	Iterator<InputValue> iter = inputValues.iterator();
-	while (iter.hasNext()) {
-	    InputValue iv = iter.next();
-	    if (iv instanceof RateValue) {
-		RateValue rv = (RateValue) iv;
-		if (rv.getEffectiveDateRange() == null
-			|| isEffective(interval.getStart())) {
-		    return rv;
-		}
-	    }
-	}
-	return null;
+	return (RateValue) getInputValueIndex().find(InputValue.Type.RATE,
+		interval.getStartMillis());
     }
 
     public static class RateValueComparator implements Comparator<RateValue> {
@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.common;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import junit.framework.TestCase;
+
+public class FixedPointTest extends TestCase {
+
+    public void testDivideHalfEven() {
+	assertEquals(2, FixedPoint.divide(5, 2, RoundingMode.HALF_EVEN));
+	assertEquals(4, FixedPoint.divide(7, 2, RoundingMode.HALF_EVEN));
+	assertEquals(-2, FixedPoint.divide(-5, 2, RoundingMode.HALF_EVEN));
+	assertEquals(-4, FixedPoint.divide(-7, 2, RoundingMode.HALF_EVEN));
+	assertEquals(-2, FixedPoint.divide(5, -2, RoundingMode.HALF_EVEN));
+	assertEquals(2, FixedPoint.divide(-5, -2, RoundingMode.HALF_EVEN));
+	assertEquals(-3, FixedPoint.divide(-8, 3, RoundingMode.HALF_EVEN));
+	assertEquals(-2, FixedPoint.divide(-7, 3, RoundingMode.HALF_EVEN));
+    }
+
+    public void testDivideMatchesBigDecimal() {
+	RoundingMode[] modes = { RoundingMode.UP, RoundingMode.DOWN,
+		RoundingMode.CEILING, RoundingMode.FLOOR, RoundingMode.HALF_UP,
+		RoundingMode.HALF_DOWN, RoundingMode.HALF_EVEN };
+	long[] divisors = { -7, -4, -2, -1, 1, 2, 4, 7 };
+	for (int m = 0; m < modes.length; m++) {
+	    for (long dividend = -30; dividend <= 30; dividend++) {
+		for (int d = 0; d < divisors.length; d++) {
+		    long expected = BigDecimal.valueOf(dividend)
+			    .divide(BigDecimal.valueOf(divisors[d]), 0,
+				    modes[m]).longValueExact();
+		    assertEquals(modes[m] + " " + dividend + "/" + divisors[d],
+			    expected, FixedPoint.divide(dividend, divisors[d],
+				    modes[m]));
+		}
+	    }
+	}
+    }
+
+    public void testDivideHalfWithLargeDivisor() {
+	long divisor = Long.MAX_VALUE;
+	assertEquals(1, FixedPoint.divide(divisor / 2 + 1, divisor,
+		RoundingMode.HALF_UP));
+	assertEquals(0, FixedPoint.divide(divisor / 2, divisor,
+		RoundingMode.HALF_UP));
+	assertEquals(-1, FixedPoint.divide(-(divisor / 2 + 1), divisor,
+		RoundingMode.HALF_EVEN));
+    }
+
+    public void testDivideUnnecessary() {
+	assertEquals(-3, FixedPoint.divide(-6, 2, RoundingMode.UNNECESSARY));
+	try {
+	    FixedPoint.divide(-7, 2, RoundingMode.UNNECESSARY);
+	    fail("inexact quotient");
+	} catch (ArithmeticException e) {
+	    // Expected.
+	}
+    }
+
+    public void testDivideByZero() {
+	try {
+	    FixedPoint.divide(1, 0, RoundingMode.HALF_EVEN);
+	    fail("zero divisor");
+	} catch (ArithmeticException e) {
+	    // Expected.
+	}
+    }
+
+    public void testRescale() {
+	assertEquals(1250, FixedPoint.rescale(125, 2, 3,
+		RoundingMode.UNNECESSARY));
+	assertEquals(12, FixedPoint.rescale(125, 2, 1, RoundingMode.HALF_EVEN));
+	assertEquals(-12, FixedPoint.rescale(-125, 2, 1,
+		RoundingMode.HALF_EVEN));
+	assertEquals(-13, FixedPoint.rescale(-125, 2, 1, RoundingMode.HALF_UP));
+    }
+
+    public void testValueOf() {
+	assertEquals(10, FixedPoint.valueOf(0.1F, 2));
+	assertEquals(-10, FixedPoint.valueOf(-0.1F, 2));
+	assertEquals(0, FixedPoint.valueOf(0F, 2));
+	assertEquals(0, FixedPoint.valueOf(-0F, 2));
+	assertEquals(123, FixedPoint.valueOf(123F, 0));
+	assertEquals(1, FixedPoint.valueOf(0.005F, 2));
+	assertEquals(-1, FixedPoint.valueOf(-0.005F, 2));
+	assertEquals(0, FixedPoint.valueOf(0.0049F, 2));
+	assertEquals(101, FixedPoint.valueOf(1.005F, 2));
+	assertEquals(268, FixedPoint.valueOf(2.675F, 2));
+	assertEquals(-268, FixedPoint.valueOf(-2.675F, 2));
+	assertEquals(267, FixedPoint.valueOf(2.6749F, 2));
+	assertEquals(1999999, FixedPoint.valueOf(19999.99F, 2));
+	assertEquals(10000001, FixedPoint.valueOf(100000.01F, 2));
+    }
+
+    public void testValueOfLargeAmounts() {
+	assertEquals(13107200, FixedPoint.valueOf(131072F, 2));
+	assertEquals(20000000, FixedPoint.valueOf(200000F, 2));
+	assertEquals(-20000000, FixedPoint.valueOf(-200000F, 2));
+	assertEquals(100000000, FixedPoint.valueOf(1000000F, 2));
+	assertEquals(1677721600, FixedPoint.valueOf(16777216F, 2));
+	assertEquals(10240000, FixedPoint.valueOf(1024F,
+		FixedPoint.FACTOR_SCALE));
+	assertEquals(655360000, FixedPoint.valueOf(65536F,
+		FixedPoint.FACTOR_SCALE));
+	assertEquals(6553600, FixedPoint.valueOf(65536F, 2));
+	assertEquals(6553601, FixedPoint.valueOf(65536.01F, 2));
+    }
+
+    public void testValueOfWholeFloats() {
+	// Every float that is a whole number of minor units converts exactly.
+	for (long cents = 1L << 20; cents < (1L << 27); cents += 997) {
+	    float amount = (float) cents / 100;
+	    if ((double) amount * 100 == (double) (long) ((double) amount
+		    * 100)) {
+		assertEquals(String.valueOf(amount),
+			(long) ((double) amount * 100), FixedPoint.valueOf(
+				amount, 2));
+	    }
+	}
+    }
+
+    public void testValueOfOverflow() {
+	try {
+	    FixedPoint.valueOf(Float.MAX_VALUE, 2);
+	    fail("overflow");
+	} catch (ArithmeticException e) {
+	    // Expected.
+	}
+	try {
+	    FixedPoint.valueOf(-1E17F, 4);
+	    fail("overflow");
+	} catch (ArithmeticException e) {
+	    // Expected.
+	}
+    }
+
+    public void testValueOfInvalidScale() {
+	try {
+	    FixedPoint.valueOf(1F, -1);
+	    fail("negative scale");
+	} catch (IllegalArgumentException e) {
+	    // Expected.
+	}
+	try {
+	    FixedPoint.valueOf(1F, 19);
+	    fail("scale too large");
+	} catch (IllegalArgumentException e) {
+	    // Expected.
+	}
+    }
+
+    public void testMultiplyOverflow() {
+	try {
+	    FixedPoint.multiply(Long.MAX_VALUE, 2);
+	    fail("overflow");
+	} catch (ArithmeticException e) {
+	    // Expected.
+	}
+    }
+}
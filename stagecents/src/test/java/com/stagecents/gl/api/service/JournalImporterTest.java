@@ -0,0 +1,243 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.gl.api.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.axonframework.commandhandling.CommandCallback;
+import org.axonframework.commandhandling.CommandHandler;
+import org.axonframework.commandhandling.CommandMessage;
+import org.axonframework.commandhandling.SimpleCommandBus;
+import org.axonframework.unitofwork.UnitOfWork;
+import org.joda.time.LocalDate;
+
+import com.stagecents.gl.api.command.CalendarDTO;
+import com.stagecents.gl.api.command.ChartOfAccountsGeneratedEvent;
+import com.stagecents.gl.api.command.CreateJournalEntryCommand;
+import com.stagecents.gl.api.command.JournalHeaderDTO;
+import com.stagecents.gl.api.command.LedgerDTO;
+import com.stagecents.gl.api.command.PeriodDTO;
+import com.stagecents.gl.api.command.SegmentDTO;
+import com.stagecents.gl.api.command.StructureDTO;
+import com.stagecents.gl.domain.Calendar;
+import com.stagecents.gl.domain.CalendarId;
+import com.stagecents.gl.domain.JournalEntryCategory;
+import com.stagecents.gl.domain.Ledger;
+import com.stagecents.gl.domain.LedgerId;
+import com.stagecents.gl.domain.PeriodType;
+import com.stagecents.gl.domain.Segment;
+import com.stagecents.gl.domain.SegmentValue;
+import com.stagecents.gl.domain.Structure;
+import com.stagecents.gl.domain.StructureId;
+
+/**
+ * Verifies that the journal importer parses amounts exactly and reports rows
+ * in error without aborting the import.
+ *
+ * @author Blair Caple
+ */
+public class JournalImporterTest extends TestCase {
+
+    private static final LocalDate START_DATE = new LocalDate(2014, 7, 1);
+
+    private JournalImporter importer;
+    private List<JournalHeaderDTO> imported;
+    private Path file;
+    private int dispatchLimit = Integer.MAX_VALUE;
+
+    @Override
+    protected void setUp() throws IOException {
+	List<SegmentDTO> segments = new ArrayList<SegmentDTO>();
+	segments.add(new SegmentDTO("segment-0", "Account", 0, true, 1, true,
+		false));
+	segments.add(new SegmentDTO("segment-1", "Department", 1, true, 1,
+		false, true));
+	Structure structure = new Structure(new StructureDTO(
+		new StructureId(), "Structure", true, false, segments));
+	Iterator<Segment> iter = structure.getSegments().iterator();
+	while (iter.hasNext()) {
+	    Segment segment = iter.next();
+	    for (int i = 0; i < 3; i++) {
+		String value = String.valueOf(i);
+		segment.addSegmentValue(new SegmentValue(segment.getSegmentId()
+			+ "-" + value, segment, segment.getSequence(), value,
+			"Value " + value, null, null, null));
+	    }
+	}
+	structure.handleGenerateChartOfAccounts(
+		new ChartOfAccountsGeneratedEvent(structure.getIdentifier()));
+
+	CalendarDTO data = new CalendarDTO(new CalendarId(), "Fiscal", null,
+		new ArrayList<PeriodDTO>());
+	data.getPeriods().add(new PeriodDTO("period-1", data, "P1", null,
+		START_DATE, START_DATE.plusMonths(1).minusDays(1), START_DATE,
+		PeriodType.MONTH, START_DATE.getYear(), 1, false));
+	Calendar calendar = new Calendar(data);
+	Ledger ledger = new Ledger(new LedgerDTO(new LedgerId(), "Ledger",
+		"GL", null, Currency.getInstance("USD"), calendar, null, null,
+		structure));
+
+	imported = Collections
+		.synchronizedList(new ArrayList<JournalHeaderDTO>());
+	SimpleCommandBus commandBus = new SimpleCommandBus() {
+	    @Override
+	    public <R> void dispatch(CommandMessage<?> command,
+		    CommandCallback<R> callback) {
+		if (dispatchLimit-- == 0) {
+		    throw new IllegalStateException("command bus stopped");
+		}
+		super.dispatch(command, callback);
+	    }
+	};
+	commandBus.subscribe(CreateJournalEntryCommand.class.getName(),
+		new CommandHandler<CreateJournalEntryCommand>() {
+		    public Object handle(
+			    CommandMessage<CreateJournalEntryCommand> message,
+			    UnitOfWork unitOfWork) {
+			imported.add(message.getPayload()
+				.getJournalHeaderDTO());
+			return null;
+		    }
+		});
+	importer = new JournalImporter(commandBus, structure, ledger,
+		calendar.getPeriods().first(), new JournalEntryCategory(
+			"payroll", "Payroll", null), START_DATE);
+	file = Files.createTempFile("journal", ".csv");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+	Files.deleteIfExists(file);
+    }
+
+    public void testParseAmount() {
+	assertEquals(0, parseAmount(""));
+	assertEquals(0, parseAmount("0"));
+	assertEquals(123450, parseAmount("1234.5"));
+	assertEquals(123450, parseAmount("1234.50"));
+	assertEquals(50, parseAmount(".5"));
+	assertEquals(100, parseAmount("1."));
+	assertEquals(-1, parseAmount("1.234"));
+	assertEquals(-1, parseAmount("-1"));
+	assertEquals(-1, parseAmount("1.2.3"));
+	assertEquals(-1, parseAmount("1,000"));
+	assertEquals(-1, parseAmount("."));
+    }
+
+    public void testParseLargeAmount() {
+	assertEquals(25000000000L, parseAmount("250000000"));
+	assertEquals(Long.MAX_VALUE / 100 * 100,
+		parseAmount(String.valueOf(Long.MAX_VALUE / 100)));
+	// The digits fit in a long, but not once scaled to minor units.
+	assertEquals(-1, parseAmount(String.valueOf(Long.MAX_VALUE / 10)));
+	assertEquals(-1, parseAmount("99999999999999999999"));
+    }
+
+    public void testImportLargeAmounts() throws IOException {
+	JournalImportResult result = importFile("a,0-0,250000.00,",
+		"a,1-1,,250000.00");
+	assertEquals(0, result.getErrorCount());
+	assertEquals(1, result.getEntryCount());
+	assertEquals(25000000, imported.get(0).getControlTotal());
+	assertEquals(25000000, imported.get(0).getLines().get(0).getDebit());
+    }
+
+    public void testEmptyFields() throws IOException {
+	JournalImportResult result = importFile(",0-0,1.00,", "a,,1.00,",
+		"a,1-1,,1.00", "b,0-0,2.00,0", "b,1-1,0,2.00");
+	assertEquals(5, result.getLineCount());
+	assertEquals(1, result.getEntryCount());
+	assertEquals(1, result.getRejectedEntryCount());
+	assertEquals("missing journal key", result.getErrors().get(0)
+		.getMessage());
+	assertEquals("invalid account code", result.getErrors().get(1)
+		.getMessage());
+	assertEquals("b", imported.get(0).getName());
+    }
+
+    public void testInvalidAmountsDoNotAbortImport() throws IOException {
+	JournalImportResult result = importFile("a,0-0,1.005,",
+		"a,1-1,,1.005", "b,0-0," + Long.MAX_VALUE / 10 + ",",
+		"c,0-0,1.00,", "c,1-1,,1.00");
+	assertEquals(1, result.getEntryCount());
+	assertEquals(2, result.getRejectedEntryCount());
+	assertEquals(3, result.getErrorCount());
+	assertEquals(3, result.getErrors().get(2).getLineNumber());
+	assertEquals("invalid amount", result.getErrors().get(2).getMessage());
+	assertEquals("c", imported.get(0).getName());
+    }
+
+    public void testNonContiguousKeys() throws IOException {
+	JournalImportResult result = importFile("a,0-0,1.00,", "b,0-0,2.00,",
+		"b,1-1,,2.00", "a,1-1,,1.00");
+	assertEquals(1, result.getEntryCount());
+	assertEquals(2, result.getRejectedEntryCount());
+	assertEquals("journal entry does not balance", result.getErrors()
+		.get(0).getMessage());
+	assertEquals("lines of journal entry are not contiguous", result
+		.getErrors().get(1).getMessage());
+	assertEquals(4, result.getErrors().get(1).getLineNumber());
+	assertEquals("b", imported.get(0).getName());
+    }
+
+    public void testSubmitterFailure() throws IOException {
+	importer.setBatchSize(1);
+	importer.setQueueCapacity(1);
+	dispatchLimit = 1;
+	JournalImportResult result = importFile("a,0-0,1.00,", "a,1-1,,1.00",
+		"b,0-0,2.00,", "b,1-1,,2.00", "c,0-0,3.00,", "c,1-1,,3.00",
+		"d,0-0,4.00,", "d,1-1,,4.00");
+	assertEquals(1, result.getEntryCount());
+	assertEquals(3, result.getRejectedEntryCount());
+	assertEquals(3, result.getErrorCount());
+	assertEquals("b", result.getErrors().get(0).getKey());
+	assertEquals("journal entry not submitted", result.getErrors().get(0)
+		.getMessage());
+	assertEquals("command bus stopped", result.getFailure().getMessage());
+	assertEquals(1, imported.size());
+    }
+
+    private long parseAmount(String amount) {
+	byte[] bytes = ("x," + amount + ",x").getBytes(StandardCharsets.UTF_8);
+	return JournalImporter.parseAmount(bytes, 2, 2 + amount.length(), 2);
+    }
+
+    private JournalImportResult importFile(String... lines)
+	    throws IOException {
+	StringBuilder sb = new StringBuilder();
+	for (int i = 0; i < lines.length; i++) {
+	    sb.append(lines[i]).append('\n');
+	}
+	Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+	return importer.importFile(file);
+    }
+}
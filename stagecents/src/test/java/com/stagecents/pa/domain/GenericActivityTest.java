@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.pa.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.joda.time.DateTime;
+
+public class GenericActivityTest extends TestCase {
+
+    private Project project;
+    private GenericActivity parent;
+    private GenericActivity first;
+    private GenericActivity second;
+    private GenericActivity third;
+
+    @Override
+    protected void setUp() {
+	project = new Project("Project", null, Project.Status.APPROVED, null,
+		1, null, null);
+	parent = activity("Parent", 1);
+	first = activity("First", 2);
+	second = activity("Second", 3);
+	third = activity("Third", 4);
+	parent.addChild(first);
+	parent.addChild(second);
+	parent.addChild(third);
+    }
+
+    public void testRescheduleAcrossSibling() {
+	first.reschedule(day(5), day(5).plusHours(2));
+
+	assertOrder(project.getActivities(), parent, second, third, first);
+	assertOrder(parent.children, second, third, first);
+	assertTrue(project.getActivities().contains(first));
+	assertTrue(parent.children.contains(first));
+
+	project.removeActivity(first);
+	parent.removeChild(first);
+	assertFalse(project.getActivities().contains(first));
+	assertFalse(parent.children.contains(first));
+	assertEquals(3, project.getActivities().size());
+	assertEquals(2, parent.children.size());
+    }
+
+    public void testRescheduleOntoSiblingStart() {
+	third.reschedule(day(3), day(3).plusHours(2));
+
+	assertOrder(parent.children, first, second, third);
+	assertEquals(4, project.getActivities().size());
+    }
+
+    public void testRescheduleUpdatesResources() {
+	GenericActivity other = activity("Other", 6);
+	OrganizationResource resource = new OrganizationResource("Crew",
+		null, null, null, null);
+	first.addResource(resource);
+	other.addResource(resource);
+
+	first.reschedule(day(7), day(7).plusHours(2));
+
+	assertOrder(resource.getActivities(), other, first);
+	assertTrue(resource.getActivities().contains(first));
+    }
+
+    private GenericActivity activity(String name, int day) {
+	GenericActivity result = new GenericActivity(name, null, project,
+		day(day), day(day).plusHours(2), null);
+	project.addActivity(result);
+	return result;
+    }
+
+    private static DateTime day(int day) {
+	return new DateTime(2014, 9, day, 10, 0);
+    }
+
+    private static void assertOrder(Iterable<Activity> actual,
+	    Activity... expected) {
+	List<Activity> list = new ArrayList<Activity>();
+	Iterator<Activity> iter = actual.iterator();
+	while (iter.hasNext()) {
+	    list.add(iter.next());
+	}
+	assertEquals(Arrays.asList(expected), list);
+    }
+}
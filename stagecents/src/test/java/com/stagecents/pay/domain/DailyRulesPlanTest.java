@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2009-2014 Kaaterskil Management, LLC
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.stagecents.pay.domain;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+
+import com.stagecents.common.DayOfWeek;
+import com.stagecents.hr.domain.Position;
+import com.stagecents.hxt.domain.Timecard;
+import com.stagecents.pa.domain.Activity;
+import com.stagecents.pa.domain.Performance;
+import com.stagecents.pa.domain.Project;
+import com.stagecents.pa.domain.Rehearsal;
+
+/**
+ * Verifies that a compiled plan records the same hours as the reference plan.
+ *
+ * @author Blair Caple
+ */
+public class DailyRulesPlanTest extends TestCase {
+
+    private static final LocalDate START_DATE = new LocalDate(2014, 9, 1);
+    private static final LocalDate END_DATE = new LocalDate(2014, 9, 7);
+
+    private Payroll payroll;
+    private Position position;
+    private Project project;
+    private List<Activity> activities;
+
+    @Override
+    protected void setUp() {
+	PayCycle payCycle = new PayCycle("Weekly", PayCycle.Frequency.W,
+		DayOfWeek.SUNDAY, 0, false);
+	payroll = new Payroll(payCycle, null, "Payroll", null, END_DATE, 0,
+		0, 0, null, START_DATE, END_DATE);
+	position = new Position(START_DATE, END_DATE, "Position", null,
+		Position.PositionType.SINGLE, null, 1, null);
+	position.setNormalHours(new LocalTime(9, 0), new LocalTime(17, 0));
+	project = new Project("Project", null, Project.Status.APPROVED, null,
+		1, START_DATE, END_DATE);
+	activities = new ArrayList<Activity>();
+    }
+
+    public void testMinimumCall() {
+	RegularWages wages = new RegularWages("Regular", null, START_DATE,
+		END_DATE);
+	wages.addInputValue(new MinimumCallValue(4, 3, START_DATE, END_DATE));
+	Overtime overtime = new Overtime("Overtime", null, START_DATE,
+		END_DATE);
+	overtime.addInputValue(new MinimumCallValue(5, 2, START_DATE,
+		END_DATE));
+	link(wages);
+	link(overtime);
+
+	rehearsal(1, 10, 11);
+	rehearsal(2, 15, 16);
+	rehearsal(3, 6, 7);
+
+	assertEquivalent(wages, overtime);
+    }
+
+    public void testOvertimeCaps() {
+	position.setMaximumHours(20);
+	RegularWages wages = new RegularWages("Regular", null, START_DATE,
+		END_DATE);
+	Overtime overtime = new Overtime("Overtime", null, START_DATE,
+		END_DATE);
+	link(wages);
+	link(overtime);
+
+	for (int day = 1; day <= 5; day++) {
+	    rehearsal(day, 7, 19);
+	}
+
+	assertEquivalent(wages, overtime);
+    }
+
+    public void testMixedElements() {
+	position.setMaximumHours(30);
+	RegularWages wages = new RegularWages("Regular", null, START_DATE,
+		END_DATE);
+	wages.addInputValue(new MinimumCallValue(4, 4, START_DATE, END_DATE));
+	PerformanceWages performanceWages = new PerformanceWages(
+		"Performance", null, START_DATE, END_DATE);
+	performanceWages.addInputValue(new MinimumCallValue(4, 3, START_DATE,
+		END_DATE));
+	Overtime overtime = new Overtime("Overtime", null, START_DATE,
+		END_DATE);
+
+	// A subclass is always evaluated through its own rules.
+	RegularWages custom = new RegularWages("Custom", null, START_DATE,
+		END_DATE) {
+	};
+	link(wages);
+	link(performanceWages);
+	link(overtime);
+	link(custom);
+
+	rehearsal(1, 8, 12);
+	performance(1, 19, 22);
+	rehearsal(2, 10, 11);
+	performance(3, 14, 17);
+	Rehearsal multiDay = new Rehearsal("Multi-day", null, project,
+		day(4, 8), day(6, 18), null);
+	activities.add(multiDay);
+
+	assertEquivalent(wages, performanceWages, overtime, custom);
+    }
+
+    private void link(ElementType element) {
+	// Links are ordered by the sequence of their element types.
+	element.setSequence(position.getElements().size() + 1);
+	position.linkElement(new ElementLink(element, position, null, null,
+		true, START_DATE, END_DATE));
+    }
+
+    private void rehearsal(int day, int startHour, int endHour) {
+	activities.add(new Rehearsal("Rehearsal " + activities.size(), null,
+		project, day(day, startHour), day(day, endHour), null));
+    }
+
+    private void performance(int day, int startHour, int endHour) {
+	activities.add(new Performance("Performance " + activities.size(),
+		null, project, day(day, startHour), day(day, endHour), null));
+    }
+
+    private static DateTime day(int day, int hour) {
+	return START_DATE.plusDays(day - 1).toDateTime(new LocalTime(hour, 0));
+    }
+
+    /**
+     * Records every activity through a compiled plan and through the
+     * reference plan, and compares the daily hours of each element.
+     */
+    private void assertEquivalent(ElementType... elements) {
+	Timecard compiled = record(DailyRulesPlan.compile(position));
+	Timecard reference = record(DailyRulesPlan.reference(position));
+
+	for (int i = 0; i < elements.length; i++) {
+	    ElementType e = elements[i];
+	    LocalDate date = START_DATE;
+	    while (!date.isAfter(END_DATE.plusDays(1))) {
+		assertEquals(e.getName() + " before " + date,
+			reference.getPriorHours(e, date),
+			compiled.getPriorHours(e, date), 0.0001F);
+		date = date.plusDays(1);
+	    }
+	    assertEquals(e.getName(), reference.getHours(e),
+		    compiled.getHours(e), 0.0001F);
+	    assertTrue(e.getName() + " recorded no hours",
+		    reference.getHours(e) > 0);
+	}
+    }
+
+    private Timecard record(DailyRulesPlan plan) {
+	Timecard timecard = new Timecard(position, payroll, START_DATE,
+		END_DATE);
+	Iterator<Activity> iter = activities.iterator();
+	while (iter.hasNext()) {
+	    Activity act = iter.next();
+	    LocalDate date = act.getScheduledStart().toLocalDate();
+	    LocalDate endDate = act.getScheduledEnd().toLocalDate();
+	    while (!date.isAfter(endDate)) {
+		plan.processHours(new Interval(date.toDateTime(act
+			.getScheduledStart()), date.toDateTime(act
+			.getScheduledEnd())), act, timecard);
+		date = date.plusDays(1);
+	    }
+	}
+	return timecard;
+    }
+}